@@ -0,0 +1,133 @@
+package ca.gc.cyber.ops.assemblyline.java.client.clients;
+
+import ca.gc.cyber.ops.assemblyline.java.client.model.FileResults;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.stream.Collectors.toUnmodifiableList;
+import static java.util.stream.Collectors.toUnmodifiableMap;
+
+/**
+ * Compares reading the "heuristics", "attack_matrix" and "tags" tuples of {@link FileResults} straight into their
+ * objects against first building {@code Map<String, List<List<String>>>} and then converting it, which is how
+ * FileResults was deserialized before. Run with {@code -prof gc} to compare gc.alloc.rate.norm.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FileResultsTupleBenchmark {
+
+    /**
+     * Number of tags. There is one heuristic and one attack for every ten tags.
+     */
+    @Param({"1000", "50000"})
+    private int tagCount;
+
+    private ObjectMapper mapper;
+    private byte[] json;
+
+    @Setup
+    public void setUp() throws IOException {
+        mapper = AssemblylineClient.configureMapper(new ObjectMapper());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (JsonGenerator generator = mapper.getFactory().createGenerator(out)) {
+            generator.writeStartObject();
+            writeTuples(generator, "heuristics", tagCount / 10, i -> new String[]{"SERVICE." + i, "Heuristic " + i});
+            writeTuples(generator, "attack_matrix", tagCount / 10,
+                    i -> new String[]{"T" + (1000 + i), "Attack pattern " + i, "malicious"});
+            writeTuples(generator, "tags", tagCount, i -> new String[]{"10.0." + (i / 256) + "." + (i % 256), "info"});
+            generator.writeEndObject();
+        }
+        json = out.toByteArray();
+    }
+
+    @Benchmark
+    public FileResults tupleDeserializers() throws IOException {
+        return mapper.readValue(json, FileResults.class);
+    }
+
+    @Benchmark
+    public FileResults intermediateMaps() throws IOException {
+        return mapper.readValue(json, IntermediateMaps.class).toFileResults();
+    }
+
+    private interface TupleFactory {
+        String[] tuple(int i);
+    }
+
+    /**
+     * Spreads the tuples over ten keys, e.g. ten tag types.
+     */
+    private static void writeTuples(JsonGenerator generator, String field, int count, TupleFactory factory)
+            throws IOException {
+        generator.writeObjectFieldStart(field);
+        for (int key = 0; key < 10; key++) {
+            generator.writeArrayFieldStart(field + "." + key);
+            for (int i = key; i < count; i += 10) {
+                String[] tuple = factory.tuple(i);
+                generator.writeArray(tuple, 0, tuple.length);
+            }
+            generator.writeEndArray();
+        }
+        generator.writeEndObject();
+    }
+
+    /**
+     * The removed FileResults.FileResultsBuilder methods, as a baseline.
+     */
+    static class IntermediateMaps {
+        @JsonProperty("heuristics")
+        Map<String, List<List<String>>> heuristics;
+        @JsonProperty("attack_matrix")
+        Map<String, List<List<String>>> attackMatrix;
+        @JsonProperty("tags")
+        Map<String, List<List<String>>> tags;
+
+        // The fromList methods are deprecated since FileResults no longer uses them, but they are the baseline.
+        @SuppressWarnings("removal")
+        FileResults toFileResults() {
+            return FileResults.builder()
+                    .heuristics(heuristics.entrySet().stream()
+                            .collect(toUnmodifiableMap(
+                                    Map.Entry::getKey,
+                                    entry -> entry.getValue().stream()
+                                            .map(FileResults.Heuristic::fromList)
+                                            .collect(toUnmodifiableList()))))
+                    .attackMatrix(attackMatrix.entrySet().stream()
+                            .collect(toUnmodifiableMap(
+                                    Map.Entry::getKey,
+                                    entry -> entry.getValue().stream()
+                                            .map(FileResults.Attack::fromList)
+                                            .collect(toUnmodifiableList()))))
+                    .tags(tags.entrySet().stream()
+                            .collect(toUnmodifiableMap(
+                                    Map.Entry::getKey,
+                                    entry -> entry.getValue().stream()
+                                            .map(FileResults.Tag::fromList)
+                                            .collect(toUnmodifiableList()))))
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package ca.gc.cyber.ops.assemblyline.java.client.clients;
+
+import ca.gc.cyber.ops.assemblyline.java.client.model.FileResults;
+import ca.gc.cyber.ops.assemblyline.java.client.model.ResultBlock;
+import ca.gc.cyber.ops.assemblyline.java.client.model.submission.IngestSubmissionResponse;
+import ca.gc.cyber.ops.assemblyline.java.client.model.submission.SubmissionFull;
+import ca.gc.cyber.ops.assemblyline.java.client.model.submission.SubmissionTree;
+import ca.gc.cyber.ops.assemblyline.java.client.responses.AssemblylineApiResponse;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.type.TypeFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Decodes the responses in {@link MockResponseModels} with the client's mapper, the same way the client decodes
+ * responses from AssemblyLine. The responses are scaled up by repeating the parts that grow with real workloads (results,
+ * files, tags, tree nodes, messages), so that the cost of large responses can be measured. Run with {@code -prof gc} to
+ * also report gc.alloc.rate.norm.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ModelDeserializationBenchmark {
+
+    public enum Payload {
+        FILE_RESULTS(MockResponseModels::getFileResultsJson,
+                types -> types.constructType(FileResults.class),
+                "/results", "/tags/file.string.extracted", "/parents"),
+        SUBMISSION_FULL(MockResponseModels::getSubmissionFullJson,
+                types -> types.constructType(SubmissionFull.class),
+                "/results", "/file_infos", "/files"),
+        RESULT_BLOCK(MockResponseModels::getResultBlockJson,
+                types -> types.constructType(ResultBlock.class),
+                "/result/sections", "/section_hierarchy"),
+        SUBMISSION_TREE(MockResponseModels::getSubmissionTreeJson,
+                types -> types.constructType(SubmissionTree.class),
+                "/tree/49a41506349514a98c6cbb040224a8c91ed40b2cd11af570ec672df6b1d7bd36/children"),
+        INGEST_MESSAGE_LIST(MockResponseModels::getIngestMessageListJson,
+                types -> types.constructCollectionType(List.class, IngestSubmissionResponse.class),
+                "");
+
+        private final Supplier<String> json;
+        private final Function<TypeFactory, JavaType> apiResponseType;
+        /**
+         * JSON pointers, relative to "api_response", of the arrays and objects to scale up.
+         */
+        private final String[] scaledPaths;
+
+        Payload(Supplier<String> json, Function<TypeFactory, JavaType> apiResponseType, String... scaledPaths) {
+            this.json = json;
+            this.apiResponseType = apiResponseType;
+            this.scaledPaths = scaledPaths;
+        }
+    }
+
+    @Param
+    private Payload payload;
+
+    /**
+     * How many times the scaled arrays and objects are repeated.
+     */
+    @Param({"1", "1000"})
+    private int scale;
+
+    private ObjectMapper mapper;
+    private JavaType responseType;
+    private byte[] json;
+
+    @Setup
+    public void setUp() throws IOException {
+        mapper = AssemblylineClient.configureMapper(new ObjectMapper());
+        responseType = mapper.getTypeFactory().constructParametricType(AssemblylineApiResponse.class,
+                payload.apiResponseType.apply(mapper.getTypeFactory()));
+
+        JsonNode response = mapper.readTree(payload.json.get());
+        JsonNode apiResponse = response.get("api_response");
+        for (String path : payload.scaledPaths) {
+            repeat(apiResponse.at(path), scale);
+        }
+        json = mapper.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public AssemblylineApiResponse<?> decode() throws IOException {
+        return mapper.readValue(json, responseType);
+    }
+
+    /**
+     * Repeats the elements of an array, or the fields of an object, in place. Repeated fields get a suffix so that
+     * their names stay unique.
+     */
+    private static void repeat(JsonNode node, int times) {
+        if (node.isArray()) {
+            ArrayNode array = (ArrayNode) node;
+            List<JsonNode> elements = new ArrayList<>();
+            array.elements().forEachRemaining(elements::add);
+            for (int i = 1; i < times; i++) {
+                elements.forEach(element -> array.add(element.deepCopy()));
+            }
+        } else if (node.isObject()) {
+            ObjectNode object = (ObjectNode) node;
+            List<Map.Entry<String, JsonNode>> fields = new ArrayList<>(object.properties());
+            for (int i = 1; i < times; i++) {
+                for (Map.Entry<String, JsonNode> field : fields) {
+                    object.set(field.getKey() + "." + i, field.getValue().deepCopy());
+                }
+            }
+        } else {
+            throw new IllegalArgumentException("Only arrays and objects can be repeated, not " + node.getNodeType());
+        }
+    }
+}
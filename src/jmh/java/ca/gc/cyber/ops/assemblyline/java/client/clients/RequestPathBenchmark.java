@@ -0,0 +1,96 @@
+package ca.gc.cyber.ops.assemblyline.java.client.clients;
+
+import ca.gc.cyber.ops.assemblyline.java.client.authentication.PasswordAuthProperties;
+import ca.gc.cyber.ops.assemblyline.java.client.authentication.PasswordAuthentication;
+import ca.gc.cyber.ops.assemblyline.java.client.model.submission.Submission;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeStrategies;
+import org.springframework.web.util.DefaultUriBuilderFactory;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the request path of {@link AssemblylineClient}, from the call to the decoded response, without the network:
+ * a last filter answers every request with a canned response, decoded with the client's codecs. Run with
+ * {@code -prof gc} to compare gc.alloc.rate.norm. pathTemplate and uriBuilder compare expanding a {@link PathTemplate}
+ * against building the same URI with a UriBuilder, which is how the client built every URI before.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RequestPathBenchmark {
+
+    private static final String BASE_URL = "http://localhost:8080";
+    private static final String SID = "3p9RPMzkoYJ1p4vfdZj6B0";
+    private static final String SHA256 = "334d016f755cd6dc58c53a86e183882f8ec14f52fb05345887c8a5edd42c87b7";
+    private static final PathTemplate FILE_INFO_PATH = new PathTemplate(IAssemblylineClient.FILE_INFO_URL);
+
+    private AssemblylineClient client;
+    private DefaultUriBuilderFactory uriBuilderFactory;
+
+    @Setup
+    public void setUp() {
+        AssemblylineClientProperties properties = new AssemblylineClientProperties();
+        properties.setUrl(BASE_URL);
+        client = new AssemblylineClient(properties, HttpClient.create(),
+                new PasswordAuthentication(new PasswordAuthProperties("user", "password")));
+        int maxInMemorySize = Math.toIntExact(properties.getMaxInMemorySize().toBytes());
+        ExchangeStrategies strategies = ExchangeStrategies.builder()
+                .codecs(configurer -> AssemblylineClient.configureCodecs(configurer, client.mapper, maxInMemorySize))
+                .build();
+        client.addFilter((request, next) -> Mono.just(ClientResponse.create(HttpStatus.OK, strategies)
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .body(responseTo(request.url()))
+                .build()));
+        uriBuilderFactory = new DefaultUriBuilderFactory(BASE_URL + "/");
+    }
+
+    private static String responseTo(URI url) {
+        String path = url.getPath();
+        if (path.endsWith(IAssemblylineClient.LOGIN_URL)) {
+            return MockResponseModels.getLoginResponseJson();
+        }
+        return path.contains("/is_completed/")
+                ? MockResponseModels.getIsSubmissionCompleteResponseJson()
+                : MockResponseModels.getSubmissionJson();
+    }
+
+    @Benchmark
+    public Boolean isSubmissionComplete() {
+        return client.isSubmissionComplete(SID).block();
+    }
+
+    @Benchmark
+    public Submission getSubmission() {
+        return client.getSubmission(SID).block();
+    }
+
+    @Benchmark
+    public URI pathTemplate() {
+        return FILE_INFO_PATH.expand(BASE_URL, SHA256);
+    }
+
+    @Benchmark
+    public URI uriBuilder() {
+        return uriBuilderFactory.builder().path(IAssemblylineClient.FILE_INFO_URL).build(SHA256);
+    }
+}
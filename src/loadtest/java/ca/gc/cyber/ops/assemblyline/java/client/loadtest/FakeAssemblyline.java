@@ -0,0 +1,313 @@
+package ca.gc.cyber.ops.assemblyline.java.client.loadtest;
+
+import ca.gc.cyber.ops.assemblyline.java.client.clients.MockResponseModels;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.cookie.Cookie;
+import io.netty.handler.codec.http.cookie.DefaultCookie;
+import io.netty.util.concurrent.ScheduledFuture;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.http.server.HttpServerRequest;
+import reactor.netty.http.server.HttpServerResponse;
+import reactor.netty.resources.LoopResources;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A local stand-in for the AssemblyLine api/v4 endpoints used by the load test, built on Reactor Netty. Responses are
+ * the ones used by the tests ({@link MockResponseModels}), prepared once so that the server does as little work as
+ * possible per request.
+ * <p>
+ * The server runs on its own event loop threads, named {@value #THREAD_PREFIX}*, so that its work can be told apart
+ * from the client's. Like AssemblyLine behind its usual proxy, it accepts HTTP/2 (h2c, with an upgrade or with prior
+ * knowledge) as well as HTTP/1.1, and compresses JSON responses for clients that accept it. It counts the bytes that go
+ * through its connections, and the connections open, to compare the client's protocols and compression.
+ */
+final class FakeAssemblyline implements AutoCloseable {
+
+    static final String THREAD_PREFIX = "fake-assemblyline";
+
+    private static final String SESSION_COOKIE = "session";
+    private static final int DOWNLOAD_CHUNK_SIZE = 64 * 1024;
+    private static final int MIN_COMPRESSED_SIZE = 1024;
+
+    private final LoadTestOptions options;
+    private final LoopResources loops = LoopResources.create(THREAD_PREFIX);
+    private final DisposableServer server;
+
+    /**
+     * Creation time (System.nanoTime()) of each session.
+     */
+    private final Map<String, Long> sessions = new ConcurrentHashMap<>();
+    private final AtomicLong logins = new AtomicLong();
+    private final AtomicLong rejectedSessions = new AtomicLong();
+    private final AtomicLong injectedErrors = new AtomicLong();
+    private final AtomicLong wireBytes = new AtomicLong();
+    private final AtomicLong openConnections = new AtomicLong();
+
+    private final byte[] loginResponse;
+    private final byte[] notLoggedInResponse;
+    private final byte[] internalErrorResponse;
+    private final byte[] ingestResponse;
+    private final byte[] submissionResponse;
+    private final byte[] isCompletedResponse;
+    private final byte[] fileResultsResponse;
+    private final byte[] resultResponse;
+    private final byte[] downloadChunk;
+
+    FakeAssemblyline(LoadTestOptions options) {
+        this.options = options;
+        ObjectMapper mapper = new ObjectMapper();
+        loginResponse = bytes(MockResponseModels.getLoginResponseJson());
+        notLoggedInResponse = bytes(MockResponseModels.notLoggedInJson());
+        internalErrorResponse = bytes(MockResponseModels.getInternalErrorJson());
+        ingestResponse = bytes(MockResponseModels.getIngestResponseJson());
+        submissionResponse = bytes(MockResponseModels.getSubmissionJson());
+        isCompletedResponse = bytes(MockResponseModels.getIsSubmissionCompleteResponseJson());
+        fileResultsResponse = scaledFileResults(mapper, options.getResultScale());
+        resultResponse = bytes(MockResponseModels.getResultBlockJson());
+        downloadChunk = new byte[DOWNLOAD_CHUNK_SIZE];
+        ThreadLocalRandom.current().nextBytes(downloadChunk);
+
+        server = HttpServer.create()
+                .host("127.0.0.1")
+                .port(0)
+                .runOn(loops)
+                .protocol(HttpProtocol.HTTP11, HttpProtocol.H2C)
+                .compress(FakeAssemblyline::shouldCompress)
+                .doOnChannelInit((observer, channel, remoteAddress) -> {
+                    openConnections.incrementAndGet();
+                    channel.closeFuture().addListener(future -> openConnections.decrementAndGet());
+                    channel.pipeline().addFirst(new WireBytesCounter());
+                })
+                .route(routes -> routes
+                        .post("/api/v4/auth/login/", this::login)
+                        .post("/api/v4/ingest/", (request, response) -> json(request, response, ingestResponse))
+                        .post("/api/v4/submit/", (request, response) -> json(request, response, submissionResponse))
+                        .get("/api/v4/submission/is_completed/{sid}/",
+                                (request, response) -> json(request, response, isCompletedResponse))
+                        .get("/api/v4/submission/{sid}/", (request, response) -> json(request, response, submissionResponse))
+                        .get("/api/v4/file/result/{sha256}/",
+                                (request, response) -> json(request, response, fileResultsResponse))
+                        .route(request -> request.uri().startsWith("/api/v4/result/"),
+                                (request, response) -> json(request, response, resultResponse))
+                        .get("/api/v4/file/download/{sha256}/", this::download))
+                .bindNow();
+    }
+
+    /**
+     * @return Base URL to configure the client with.
+     */
+    String getUrl() {
+        return "http://127.0.0.1:" + server.port();
+    }
+
+    long getLogins() {
+        return logins.get();
+    }
+
+    long getRejectedSessions() {
+        return rejectedSessions.get();
+    }
+
+    long getInjectedErrors() {
+        return injectedErrors.get();
+    }
+
+    /**
+     * @return Bytes received and sent by the server so far, as they went over the network.
+     */
+    long getWireBytes() {
+        return wireBytes.get();
+    }
+
+    long getOpenConnections() {
+        return openConnections.get();
+    }
+
+    @Override
+    public void close() {
+        server.disposeNow();
+        loops.dispose();
+    }
+
+    private Publisher<Void> login(HttpServerRequest request, HttpServerResponse response) {
+        return request.receive().then(delay(request)).then(Mono.defer(() -> {
+            String session = UUID.randomUUID().toString();
+            sessions.put(session, System.nanoTime());
+            logins.incrementAndGet();
+            response.addCookie(new DefaultCookie(SESSION_COOKIE, session));
+            return send(response, HttpResponseStatus.OK, loginResponse);
+        }));
+    }
+
+    /**
+     * Answers with a JSON body, unless the session is rejected or an error is injected.
+     */
+    private Publisher<Void> json(HttpServerRequest request, HttpServerResponse response, byte[] body) {
+        return request.receive().then(delay(request)).then(Mono.defer(() -> {
+            HttpResponseStatus failure = failure(request);
+            if (failure != null) {
+                return send(response, failure,
+                        failure == HttpResponseStatus.UNAUTHORIZED ? notLoggedInResponse : internalErrorResponse);
+            }
+            return send(response, HttpResponseStatus.OK, body);
+        }));
+    }
+
+    private Publisher<Void> download(HttpServerRequest request, HttpServerResponse response) {
+        return request.receive().then(delay(request)).then(Mono.defer(() -> {
+            HttpResponseStatus failure = failure(request);
+            if (failure != null) {
+                return send(response, failure,
+                        failure == HttpResponseStatus.UNAUTHORIZED ? notLoggedInResponse : internalErrorResponse);
+            }
+            long size = options.getDownloadSize().toBytes();
+            List<ByteBuf> chunks = new ArrayList<>();
+            for (long sent = 0; sent < size; sent += DOWNLOAD_CHUNK_SIZE) {
+                chunks.add(Unpooled.wrappedBuffer(downloadChunk, 0, (int) Math.min(DOWNLOAD_CHUNK_SIZE, size - sent)));
+            }
+            return response.status(HttpResponseStatus.OK)
+                    .header(HttpHeaderNames.CONTENT_TYPE, HttpHeaderValues.APPLICATION_OCTET_STREAM)
+                    .header(HttpHeaderNames.CONTENT_LENGTH, Long.toString(size))
+                    .send(Flux.fromIterable(chunks))
+                    .then();
+        }));
+    }
+
+    /**
+     * Like a proxy configured for compression, skips responses too small to gain from it, and downloads, which are
+     * random bytes that would not compress.
+     */
+    private static boolean shouldCompress(HttpServerRequest request, HttpServerResponse response) {
+        String contentLength = response.responseHeaders().get(HttpHeaderNames.CONTENT_LENGTH);
+        return !request.uri().startsWith("/api/v4/file/download/")
+                && (contentLength == null || Long.parseLong(contentLength) >= MIN_COMPRESSED_SIZE);
+    }
+
+    /**
+     * @return The status to fail the request with, or null to answer it normally.
+     */
+    private HttpResponseStatus failure(HttpServerRequest request) {
+        if (!isSessionValid(request)) {
+            rejectedSessions.incrementAndGet();
+            return HttpResponseStatus.UNAUTHORIZED;
+        }
+        if (ThreadLocalRandom.current().nextDouble() < options.getErrorRate()) {
+            injectedErrors.incrementAndGet();
+            return HttpResponseStatus.INTERNAL_SERVER_ERROR;
+        }
+        return null;
+    }
+
+    private boolean isSessionValid(HttpServerRequest request) {
+        Set<Cookie> cookies = request.cookies().get(SESSION_COOKIE);
+        if (cookies == null || cookies.isEmpty()) {
+            return false;
+        }
+        Long created = sessions.get(cookies.iterator().next().value());
+        if (created == null) {
+            return false;
+        }
+        Duration lifetime = options.getSessionLifetime();
+        return lifetime.isZero() || System.nanoTime() - created < lifetime.toNanos();
+    }
+
+    /**
+     * Waits for the simulated latency on the event loop of the request's connection, rather than on
+     * {@code Schedulers.parallel()}, so that the rest of the request is handled by the server's own threads, which
+     * the load test leaves out of the client's allocations.
+     */
+    private Mono<Void> delay(HttpServerRequest request) {
+        long latency = options.getLatency().toNanos();
+        long jitter = options.getLatencyJitter().toNanos();
+        long nanos = jitter > 0 ? latency + ThreadLocalRandom.current().nextLong(jitter) : latency;
+        if (nanos <= 0) {
+            return Mono.empty();
+        }
+        return Mono.create(sink -> request.withConnection(connection -> {
+            ScheduledFuture<?> timer = connection.channel().eventLoop()
+                    .schedule(() -> sink.success(), nanos, TimeUnit.NANOSECONDS);
+            sink.onCancel(() -> timer.cancel(false));
+        }));
+    }
+
+    private static Mono<Void> send(HttpServerResponse response, HttpResponseStatus status, byte[] body) {
+        return response.status(status)
+                .header(HttpHeaderNames.CONTENT_TYPE, HttpHeaderValues.APPLICATION_JSON)
+                .header(HttpHeaderNames.CONTENT_LENGTH, Integer.toString(body.length))
+                .sendObject(Unpooled.wrappedBuffer(body))
+                .then();
+    }
+
+    /**
+     * @return The file results response, with its result blocks repeated the given number of times.
+     */
+    private static byte[] scaledFileResults(ObjectMapper mapper, int scale) {
+        try {
+            JsonNode response = mapper.readTree(MockResponseModels.getFileResultsJson());
+            ArrayNode results = (ArrayNode) response.at("/api_response/results");
+            List<JsonNode> original = new ArrayList<>();
+            results.elements().forEachRemaining(original::add);
+            for (int i = 1; i < scale; i++) {
+                original.forEach(result -> results.add(result.deepCopy()));
+            }
+            return mapper.writeValueAsBytes(response);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static byte[] bytes(String json) {
+        return json.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Counts the bytes read from and written to a connection, first in its pipeline so that they are counted after
+     * compression and HTTP/2 framing.
+     */
+    private final class WireBytesCounter extends ChannelDuplexHandler {
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            if (msg instanceof ByteBuf) {
+                wireBytes.addAndGet(((ByteBuf) msg).readableBytes());
+            }
+            ctx.fireChannelRead(msg);
+        }
+
+        @Override
+        public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+            if (msg instanceof ByteBuf) {
+                wireBytes.addAndGet(((ByteBuf) msg).readableBytes());
+            }
+            ctx.write(msg, promise);
+        }
+    }
+}
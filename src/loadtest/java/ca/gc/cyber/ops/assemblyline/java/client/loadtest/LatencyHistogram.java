@@ -0,0 +1,75 @@
+package ca.gc.cyber.ops.assemblyline.java.client.loadtest;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Records latencies in microseconds, with a relative error of less than 2%, without allocating. Latencies below 128 microseconds
+ * are exact; above that, each power of two is split into 64 buckets.
+ */
+final class LatencyHistogram {
+
+    private static final int SUB_BUCKETS = 64;
+    private static final int EXACT_LIMIT = 2 * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(SUB_BUCKETS * (Long.SIZE - 6) + SUB_BUCKETS);
+    private final AtomicLongArray maxMicros = new AtomicLongArray(1);
+
+    void record(long nanos) {
+        long micros = Math.max(0, nanos / 1000);
+        counts.incrementAndGet(index(micros));
+        maxMicros.accumulateAndGet(0, micros, Math::max);
+    }
+
+    long getCount() {
+        long count = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            count += counts.get(i);
+        }
+        return count;
+    }
+
+    long getMaxMicros() {
+        return maxMicros.get(0);
+    }
+
+    /**
+     * @param quantile e.g. 0.99 for the 99th percentile
+     * @return The latency in microseconds below which that fraction of the recorded latencies fall.
+     */
+    long getValueAtQuantile(double quantile) {
+        long count = getCount();
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(value(i), getMaxMicros());
+            }
+        }
+        return getMaxMicros();
+    }
+
+    private static int index(long micros) {
+        if (micros < EXACT_LIMIT) {
+            return (int) micros;
+        }
+        // The top 7 bits of the value; the bucket is chosen by its 6 bits after the leading one.
+        int shift = Long.SIZE - Long.numberOfLeadingZeros(micros) - 7;
+        return (int) (SUB_BUCKETS * shift + (micros >>> shift));
+    }
+
+    /**
+     * @return The middle of the range of values of a bucket.
+     */
+    private static long value(int index) {
+        if (index < EXACT_LIMIT) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        long top = index - (long) SUB_BUCKETS * shift;
+        return (top << shift) + (1L << (shift - 1));
+    }
+}
@@ -0,0 +1,193 @@
+package ca.gc.cyber.ops.assemblyline.java.client.loadtest;
+
+import ca.gc.cyber.ops.assemblyline.java.client.AssemblylineClientConfig;
+import ca.gc.cyber.ops.assemblyline.java.client.authentication.PasswordAuthProperties;
+import ca.gc.cyber.ops.assemblyline.java.client.authentication.PasswordAuthentication;
+import ca.gc.cyber.ops.assemblyline.java.client.clients.AssemblylineClient;
+import ca.gc.cyber.ops.assemblyline.java.client.clients.AssemblylineClientProperties;
+import ca.gc.cyber.ops.assemblyline.java.client.model.DownloadFileParams;
+import ca.gc.cyber.ops.assemblyline.java.client.model.ingest.BinaryFile;
+import ca.gc.cyber.ops.assemblyline.java.client.model.ingest.IngestBase;
+import ca.gc.cyber.ops.assemblyline.java.client.model.submit.Sha256Submit;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Drives an {@link AssemblylineClient} at high concurrency against a {@link FakeAssemblyline} and reports throughput,
+ * latency percentiles, allocation, bytes on the wire and connections for each scenario. See {@link LoadTestOptions} for
+ * the options. The client's HttpClient is the one the auto-configuration would create from its properties.
+ * <p>
+ * The allocation is that of every thread except the fake AssemblyLine's, so it includes the load test itself, which
+ * allocates very little per request.
+ */
+public final class LoadTest {
+
+    private static final String SHA256 = "334d016f755cd6dc58c53a86e183882f8ec14f52fb05345887c8a5edd42c87b7";
+    private static final String SID = "4Kk8ijwe6NjpHgFmgsRyhr";
+
+    public enum Scenario {
+        INGEST(loadTest -> loadTest.client.ingestBinary(loadTest.upload)),
+        SUBMIT(loadTest -> loadTest.client.submitUrlOrSha256(Sha256Submit.builder().sha256(SHA256).build())),
+        POLL(loadTest -> loadTest.client.isSubmissionComplete(SID)),
+        DOWNLOAD(loadTest -> DataBufferUtils.join(loadTest.client.downloadFileAsFlux(SHA256,
+                        DownloadFileParams.builder().encoding(DownloadFileParams.Encoding.RAW).build()))
+                .map(LoadTest::releaseAndGetSize)),
+        RESULT(loadTest -> loadTest.client.getFileResults(SHA256));
+
+        private final Function<LoadTest, Mono<?>> operation;
+
+        Scenario(Function<LoadTest, Mono<?>> operation) {
+            this.operation = operation;
+        }
+    }
+
+    private final LoadTestOptions options;
+    private final AssemblylineClient client;
+    private final FakeAssemblyline server;
+    private final BinaryFile<IngestBase> upload;
+
+    private LoadTest(LoadTestOptions options, AssemblylineClient client, FakeAssemblyline server) {
+        this.options = options;
+        this.client = client;
+        this.server = server;
+        this.upload = BinaryFile.<IngestBase>builder()
+                .filename("load-test.bin")
+                .file(new byte[Math.toIntExact(options.getUploadSize().toBytes())])
+                .metadata(IngestBase.builder().build())
+                .build();
+    }
+
+    public static void main(String[] args) {
+        LoadTestOptions options = LoadTestOptions.parse(args);
+        System.out.printf("concurrency=%d latency=%s+%s error-rate=%s session-lifetime=%s upload=%s download=%s "
+                        + "result-scale=%d max-connections=%d http2=%s compression=%s%n",
+                options.getConcurrency(), options.getLatency(), options.getLatencyJitter(), options.getErrorRate(),
+                options.getSessionLifetime(), options.getUploadSize(), options.getDownloadSize(),
+                options.getResultScale(), options.getMaxConnections(), options.isHttp2(),
+                options.isCompression());
+
+        try (FakeAssemblyline server = new FakeAssemblyline(options)) {
+            AssemblylineClientProperties properties = clientProperties(options, server);
+            AssemblylineClientConfig config = new AssemblylineClientConfig();
+            ConnectionProvider connectionProvider = config.assemblylineConnectionProvider(properties);
+            try (AssemblylineClient client = new AssemblylineClient(properties,
+                    config.assemblylineHttpClient(connectionProvider, properties),
+                    new PasswordAuthentication(new PasswordAuthProperties("password", "load-test")))) {
+                LoadTest loadTest = new LoadTest(options, client, server);
+                System.out.printf("%-9s %10s %10s %9s %9s %9s %9s %9s %12s %12s %6s%n", "scenario", "ops", "ops/s",
+                        "p50 ms", "p99 ms", "p999 ms", "max ms", "failures", "alloc/op", "wire/op", "conns");
+                for (Scenario scenario : options.getScenarios()) {
+                    loadTest.run(scenario, options.getWarmup());
+                    loadTest.run(scenario, options.getDuration()).print(scenario);
+                }
+                System.out.printf("logins=%d rejected-sessions=%d injected-errors=%d%n",
+                        server.getLogins(), server.getRejectedSessions(), server.getInjectedErrors());
+            } finally {
+                connectionProvider.disposeLater().block();
+            }
+        }
+    }
+
+    private static AssemblylineClientProperties clientProperties(LoadTestOptions options, FakeAssemblyline server) {
+        AssemblylineClientProperties properties = new AssemblylineClientProperties();
+        properties.setUrl(server.getUrl());
+        // The file results response is larger than the default when it is scaled up.
+        properties.setMaxInMemorySize(DataSize.ofMegabytes(64));
+        properties.getHttp().setMaxConnections(options.getMaxConnections() > 0 ? options.getMaxConnections()
+                : options.getConcurrency());
+        properties.getHttp().setPendingAcquireMaxCount(-1);
+        properties.getHttp().setHttp2(options.isHttp2());
+        properties.getHttp().setCompression(options.isCompression());
+        return properties;
+    }
+
+    /**
+     * Keeps options.concurrency operations in flight until the duration has passed.
+     */
+    private Measurement run(Scenario scenario, Duration duration) {
+        Measurement measurement = new Measurement();
+        long deadline = System.nanoTime() + duration.toNanos();
+        long wireBytesBefore = server.getWireBytes();
+        long allocatedBefore = allocatedBytes();
+        long start = System.nanoTime();
+        Flux.range(0, Integer.MAX_VALUE)
+                .takeWhile(i -> System.nanoTime() < deadline)
+                .flatMap(i -> {
+                    long operationStart = System.nanoTime();
+                    return scenario.operation.apply(this)
+                            .doOnSuccess(result -> measurement.latencies.record(System.nanoTime() - operationStart))
+                            .onErrorResume(e -> {
+                                measurement.failures.computeIfAbsent(e.getClass().getSimpleName(),
+                                        name -> new AtomicLong()).incrementAndGet();
+                                return Mono.empty();
+                            });
+                }, options.getConcurrency())
+                .blockLast();
+        measurement.elapsedNanos = System.nanoTime() - start;
+        measurement.allocatedBytes = allocatedBytes() - allocatedBefore;
+        measurement.wireBytes = server.getWireBytes() - wireBytesBefore;
+        measurement.connections = server.getOpenConnections();
+        return measurement;
+    }
+
+    /**
+     * @return Bytes allocated so far by all live threads except the fake AssemblyLine's.
+     */
+    private static long allocatedBytes() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        return Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> !thread.getName().startsWith(FakeAssemblyline.THREAD_PREFIX))
+                .mapToLong(thread -> threads.getThreadAllocatedBytes(thread.getId()))
+                .filter(bytes -> bytes > 0)
+                .sum();
+    }
+
+    private static int releaseAndGetSize(DataBuffer dataBuffer) {
+        int size = dataBuffer.readableByteCount();
+        DataBufferUtils.release(dataBuffer);
+        return size;
+    }
+
+    private static final class Measurement {
+        private final LatencyHistogram latencies = new LatencyHistogram();
+        private final Map<String, AtomicLong> failures = new ConcurrentHashMap<>();
+        private long elapsedNanos;
+        private long allocatedBytes;
+        private long wireBytes;
+        /**
+         * Connections open at the end of the measurement.
+         */
+        private long connections;
+
+        void print(Scenario scenario) {
+            long operations = latencies.getCount();
+            long failureCount = failures.values().stream().mapToLong(AtomicLong::get).sum();
+            long attempts = Math.max(1, operations + failureCount);
+            System.out.printf("%-9s %10d %10.0f %9.2f %9.2f %9.2f %9.2f %9d %12s %12s %6d%n",
+                    scenario, operations, operations / (elapsedNanos / 1e9),
+                    millis(latencies.getValueAtQuantile(0.5)), millis(latencies.getValueAtQuantile(0.99)),
+                    millis(latencies.getValueAtQuantile(0.999)), millis(latencies.getMaxMicros()),
+                    failureCount, DataSize.ofBytes(allocatedBytes / attempts), DataSize.ofBytes(wireBytes / attempts),
+                    connections);
+            if (!failures.isEmpty()) {
+                System.out.printf("          failures: %s%n", new TreeMap<>(failures));
+            }
+        }
+
+        private static double millis(long micros) {
+            return micros / 1000.0;
+        }
+    }
+}
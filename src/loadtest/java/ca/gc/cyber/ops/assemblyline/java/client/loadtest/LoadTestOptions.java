@@ -0,0 +1,165 @@
+package ca.gc.cyber.ops.assemblyline.java.client.loadtest;
+
+import lombok.Builder;
+import lombok.Value;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Options of a load test run, for both the client and the fake AssemblyLine. Durations and sizes use the same format
+ * as the client's properties, e.g. 5ms or 64KB.
+ */
+@Value
+@Builder
+public class LoadTestOptions {
+
+    private static final List<String> OPTION_NAMES = List.of("scenarios", "concurrency", "warmup", "duration",
+            "latency", "latency-jitter", "error-rate", "session-lifetime", "upload-size", "download-size",
+            "result-scale", "max-connections", "http2", "compression");
+
+    /**
+     * Operations to run, one after the other.
+     */
+    @Builder.Default
+    Set<LoadTest.Scenario> scenarios = EnumSet.allOf(LoadTest.Scenario.class);
+    /**
+     * Number of requests in flight at any time.
+     */
+    @Builder.Default
+    int concurrency = 256;
+    /**
+     * How long each scenario runs before it is measured.
+     */
+    @Builder.Default
+    Duration warmup = Duration.ofSeconds(5);
+    /**
+     * How long each scenario is measured.
+     */
+    @Builder.Default
+    Duration duration = Duration.ofSeconds(30);
+
+    /**
+     * Time the fake AssemblyLine takes before answering each request.
+     */
+    @Builder.Default
+    Duration latency = Duration.ofMillis(5);
+    /**
+     * Up to this much time is added at random to the latency of each request.
+     */
+    @Builder.Default
+    Duration latencyJitter = Duration.ZERO;
+    /**
+     * Fraction of requests (other than logins) answered with a 500.
+     */
+    @Builder.Default
+    double errorRate = 0;
+    /**
+     * Sessions are rejected with a 401 once they are this old, so that the client has to log in again. Zero means
+     * that sessions never expire.
+     */
+    @Builder.Default
+    Duration sessionLifetime = Duration.ZERO;
+    /**
+     * Size of the file uploaded by each ingest.
+     */
+    @Builder.Default
+    DataSize uploadSize = DataSize.ofKilobytes(64);
+    /**
+     * Size of each downloaded file.
+     */
+    @Builder.Default
+    DataSize downloadSize = DataSize.ofMegabytes(1);
+    /**
+     * How many times the result blocks of the file results response are repeated, to make it larger.
+     */
+    @Builder.Default
+    int resultScale = 1;
+
+    /**
+     * Maximum number of connections of the client. Zero means one per request in flight.
+     */
+    int maxConnections;
+    /**
+     * Whether the client uses HTTP/2, through the http.http2 property.
+     */
+    boolean http2;
+    /**
+     * Whether the client asks for compressed responses, through the http.compression property.
+     */
+    boolean compression;
+
+    /**
+     * @param args Options of the form --name=value, where name is the kebab-case name of a field, e.g.
+     *             --session-lifetime=30s, --scenarios=poll,result or --http2=true
+     * @return The options, with defaults for those not given.
+     * @throws IllegalArgumentException if an option is unknown or its value is invalid
+     */
+    public static LoadTestOptions parse(String... args) {
+        LoadTestOptionsBuilder builder = builder();
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (!arg.startsWith("--") || equals < 0) {
+                throw new IllegalArgumentException("Expected --name=value but got " + arg);
+            }
+            String name = arg.substring(2, equals);
+            String value = arg.substring(equals + 1);
+            switch (name) {
+                case "scenarios":
+                    builder.scenarios(Arrays.stream(value.split(","))
+                            .map(scenario -> LoadTest.Scenario.valueOf(scenario.strip().toUpperCase(Locale.ROOT)))
+                            .collect(Collectors.toCollection(() -> EnumSet.noneOf(LoadTest.Scenario.class))));
+                    break;
+                case "concurrency":
+                    builder.concurrency(Integer.parseInt(value));
+                    break;
+                case "warmup":
+                    builder.warmup(DurationStyle.detectAndParse(value));
+                    break;
+                case "duration":
+                    builder.duration(DurationStyle.detectAndParse(value));
+                    break;
+                case "latency":
+                    builder.latency(DurationStyle.detectAndParse(value));
+                    break;
+                case "latency-jitter":
+                    builder.latencyJitter(DurationStyle.detectAndParse(value));
+                    break;
+                case "error-rate":
+                    builder.errorRate(Double.parseDouble(value));
+                    break;
+                case "session-lifetime":
+                    builder.sessionLifetime(DurationStyle.detectAndParse(value));
+                    break;
+                case "upload-size":
+                    builder.uploadSize(DataSize.parse(value));
+                    break;
+                case "download-size":
+                    builder.downloadSize(DataSize.parse(value));
+                    break;
+                case "result-scale":
+                    builder.resultScale(Integer.parseInt(value));
+                    break;
+                case "max-connections":
+                    builder.maxConnections(Integer.parseInt(value));
+                    break;
+                case "http2":
+                    builder.http2(Boolean.parseBoolean(value));
+                    break;
+                case "compression":
+                    builder.compression(Boolean.parseBoolean(value));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option --" + name + ". Known options: " + OPTION_NAMES);
+            }
+        }
+        return builder.build();
+    }
+}
@@ -6,15 +6,38 @@ import ca.gc.cyber.ops.assemblyline.java.client.authentication.AssemblylineAuthe
 import ca.gc.cyber.ops.assemblyline.java.client.authentication.PasswordAuthProperties;
 import ca.gc.cyber.ops.assemblyline.java.client.authentication.PasswordAuthentication;
 import ca.gc.cyber.ops.assemblyline.java.client.clients.AssemblylineClient;
+import ca.gc.cyber.ops.assemblyline.java.client.clients.AssemblylineClientCustomizer;
+import ca.gc.cyber.ops.assemblyline.java.client.clients.AssemblylineClientMetrics;
 import ca.gc.cyber.ops.assemblyline.java.client.clients.AssemblylineClientProperties;
 import ca.gc.cyber.ops.assemblyline.java.client.clients.IAssemblylineClient;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.channel.ChannelOption;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.timeout.ReadTimeoutHandler;
+import io.netty.handler.timeout.WriteTimeoutHandler;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.AnyNestedCondition;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.context.properties.PropertyMapper;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Conditional;
 import org.springframework.context.annotation.Configuration;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.Http2AllocationStrategy;
 import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 @Configuration
 @EnableConfigurationProperties(
@@ -22,13 +45,18 @@ import reactor.netty.http.client.HttpClient;
 @Slf4j
 public class AssemblylineClientConfig {
 
+    private static final String ACCEPT_ENCODING = "gzip, deflate";
+
     @Bean
-    @ConditionalOnProperty("assemblyline-java-client.url")
+    @Conditional(OnUrlCondition.class)
     @ConditionalOnMissingBean
     public IAssemblylineClient assemblylineClient(HttpClient assemblylineHttpClient, AssemblylineAuthenticationMethod authMethod,
-                                                  AssemblylineClientProperties assemblylineClientProperties) {
-        return new AssemblylineClient(assemblylineClientProperties, assemblylineHttpClient,
+                                                  AssemblylineClientProperties assemblylineClientProperties,
+                                                  ObjectProvider<AssemblylineClientCustomizer> customizers) {
+        AssemblylineClient client = new AssemblylineClient(assemblylineClientProperties, assemblylineHttpClient,
                 authMethod);
+        customizers.orderedStream().forEach(customizer -> customizer.customize(client));
+        return client;
     }
 
     @Bean
@@ -46,13 +74,163 @@ public class AssemblylineClientConfig {
     }
 
     /**
-     * Returns a basic HttpClient with HTTPS support enabled.
+     * Returns the connection pool used by the default HttpClient, configured from the
+     * {@code assemblyline-java-client.http} properties. It is only created along with the default HttpClient, and
+     * disposed with it when the context is closed. It must be declared before {@link #assemblylineHttpClient}, since
+     * the condition on HttpClient only sees the beans registered so far.
+     *
+     * @return ConnectionProvider
+     */
+    @Bean(destroyMethod = "dispose")
+    @ConditionalOnMissingBean(value = HttpClient.class, name = "assemblylineConnectionProvider")
+    public ConnectionProvider assemblylineConnectionProvider(AssemblylineClientProperties assemblylineClientProperties) {
+        AssemblylineClientProperties.Http http = assemblylineClientProperties.getHttp();
+        ConnectionProvider.Builder builder = ConnectionProvider.builder("assemblyline");
+        PropertyMapper map = PropertyMapper.get().alwaysApplyingWhenNonNull();
+        map.from(http::getMaxConnections).to(builder::maxConnections);
+        map.from(http::getPendingAcquireMaxCount).to(builder::pendingAcquireMaxCount);
+        map.from(http::getPendingAcquireTimeout).to(builder::pendingAcquireTimeout);
+        map.from(http::getMaxIdleTime).to(builder::maxIdleTime);
+        map.from(http::getMaxLifeTime).to(builder::maxLifeTime);
+        map.from(http::getEvictInBackground).to(builder::evictInBackground);
+        if (Boolean.TRUE.equals(http.getHttp2())) {
+            /* Without a minimum of connections, the pool opens a new connection for every request made while the
+            others are still being negotiated, so a burst of requests would hardly share connections at all. The
+            maximum applies to HTTP/1.1 connections too, if AssemblyLine does not support HTTP/2. */
+            builder.allocationStrategy(Http2AllocationStrategy.builder()
+                    .minConnections(1)
+                    .maxConnections(Optional.ofNullable(http.getMaxConnections())
+                            .orElse(ConnectionProvider.DEFAULT_POOL_MAX_CONNECTIONS))
+                    .build());
+        }
+        return builder.build();
+    }
+
+    /**
+     * Returns an HttpClient with HTTPS support enabled, using the given connection pool and the timeouts, compression
+     * and protocols from the {@code assemblyline-java-client.http} properties.
      *
      * @return HttpClient
      */
     @Bean
     @ConditionalOnMissingBean
-    public HttpClient assemblylineHttpClient() {
-        return HttpClient.create().secure();
+    public HttpClient assemblylineHttpClient(ConnectionProvider assemblylineConnectionProvider,
+                                             AssemblylineClientProperties assemblylineClientProperties) {
+        AssemblylineClientProperties.Http http = assemblylineClientProperties.getHttp();
+        HttpClient httpClient = HttpClient.create(assemblylineConnectionProvider).secure();
+
+        if (Boolean.TRUE.equals(http.getHttp2())) {
+            // h2 is negotiated through ALPN for https URLs, h2c with an upgrade request for http URLs.
+            httpClient = httpClient.protocol(HttpProtocol.H2, HttpProtocol.H2C, HttpProtocol.HTTP11);
+        }
+        if (Boolean.TRUE.equals(http.getCompression())) {
+            // compress(true) only asks for gzip, but the decoder it adds handles deflate as well.
+            httpClient = httpClient.compress(true)
+                    .headers(headers -> headers.set(HttpHeaderNames.ACCEPT_ENCODING, ACCEPT_ENCODING));
+        }
+
+        if (http.getConnectTimeout() != null) {
+            httpClient = httpClient.option(ChannelOption.CONNECT_TIMEOUT_MILLIS,
+                    Math.toIntExact(http.getConnectTimeout().toMillis()));
+        }
+        if (http.getTcpKeepAlive() != null) {
+            httpClient = httpClient.option(ChannelOption.SO_KEEPALIVE, http.getTcpKeepAlive());
+        }
+        if (http.getResponseTimeout() != null) {
+            httpClient = httpClient.responseTimeout(http.getResponseTimeout());
+        }
+        /* Handlers added to a pooled connection are removed when the connection is released, so the read/write
+        timeouts have to be added for every request rather than once when the connection is opened. AssemblyLine sends
+        nothing while it reads an upload, so the read timeout only starts once the request has been sent. */
+        Duration readTimeout = http.getReadTimeout();
+        Duration writeTimeout = http.getWriteTimeout();
+        if (writeTimeout != null) {
+            httpClient = httpClient.doOnRequest((request, connection) -> connection.addHandlerLast(
+                    "assemblylineWriteTimeout", new WriteTimeoutHandler(writeTimeout.toMillis(), TimeUnit.MILLISECONDS)));
+        }
+        if (readTimeout != null) {
+            httpClient = httpClient.doAfterRequest((request, connection) -> connection.addHandlerLast(
+                    "assemblylineReadTimeout", new ReadTimeoutHandler(readTimeout.toMillis(), TimeUnit.MILLISECONDS)));
+        }
+        return httpClient;
+    }
+
+    /**
+     * Publishes the changes of state of the client's circuit breakers as application events, so that they can be
+     * handled with {@code @EventListener(CircuitBreakerEvent.class)}, until the application context is closed.
+     *
+     * @return AssemblylineClientCustomizer
+     */
+    @Bean
+    @ConditionalOnProperty("assemblyline-java-client.circuit-breaker.enabled")
+    public AssemblylineClientCustomizer assemblylineCircuitBreakerEventsCustomizer(
+            ApplicationEventPublisher publisher) {
+        return new CircuitBreakerEventsPublisher(publisher);
+    }
+
+    /**
+     * Subscribes to the circuit breaker events of each client it customizes, and cancels the subscriptions when the
+     * bean is destroyed.
+     */
+    static class CircuitBreakerEventsPublisher implements AssemblylineClientCustomizer, DisposableBean {
+
+        private final ApplicationEventPublisher publisher;
+        private final Disposable.Composite subscriptions = Disposables.composite();
+
+        CircuitBreakerEventsPublisher(ApplicationEventPublisher publisher) {
+            this.publisher = publisher;
+        }
+
+        @Override
+        public void customize(AssemblylineClient client) {
+            subscriptions.add(client.circuitBreakerEvents().subscribe(publisher::publishEvent));
+        }
+
+        @Override
+        public void destroy() {
+            subscriptions.dispose();
+        }
+    }
+
+    /**
+     * Matches when either {@code assemblyline-java-client.url} or {@code assemblyline-java-client.urls} is set.
+     */
+    static class OnUrlCondition extends AnyNestedCondition {
+
+        OnUrlCondition() {
+            super(ConfigurationPhase.REGISTER_BEAN);
+        }
+
+        @ConditionalOnProperty("assemblyline-java-client.url")
+        static class OnUrl {
+        }
+
+        // Set as a comma-separated list.
+        @ConditionalOnProperty("assemblyline-java-client.urls")
+        static class OnUrls {
+        }
+
+        // Set as an indexed list, e.g. in YAML.
+        @ConditionalOnProperty("assemblyline-java-client.urls[0]")
+        static class OnUrlsList {
+        }
+    }
+
+    /**
+     * Records metrics for every request to AssemblyLine when Micrometer is on the classpath and there is a
+     * MeterRegistry bean, unless {@code assemblyline-java-client.metrics.enabled} is false.
+     */
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass(name = "io.micrometer.core.instrument.MeterRegistry")
+    @ConditionalOnProperty(name = "assemblyline-java-client.metrics.enabled", matchIfMissing = true)
+    static class MetricsConfig {
+
+        @Bean
+        AssemblylineClientCustomizer assemblylineClientMetricsCustomizer(
+                ObjectProvider<MeterRegistry> registry, AssemblylineClientProperties assemblylineClientProperties) {
+            boolean percentileHistogram = assemblylineClientProperties.getMetrics().isPercentileHistogram();
+            return client -> registry.ifAvailable(meterRegistry ->
+                    new AssemblylineClientMetrics(meterRegistry, percentileHistogram).instrument(client));
+        }
     }
 }
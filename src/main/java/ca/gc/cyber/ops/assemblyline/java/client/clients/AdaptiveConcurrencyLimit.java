@@ -0,0 +1,200 @@
+package ca.gc.cyber.ops.assemblyline.java.client.clients;
+
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Limits the number of requests in flight, adapting the limit to how well AssemblyLine copes (additive increase,
+ * multiplicative decrease). The limit shrinks by the backoff ratio when a request is overloaded: rejected with a 429
+ * or 503, failed without a response, or slower than latencyTolerance times the usual latency. It shrinks at most once
+ * per usual latency, so that a burst of failures counts as one. Otherwise the limit grows by about one per limit's
+ * worth of requests, but only while at least half of it is in use.
+ * <p>
+ * The usual latency is a slow moving average of the latency of requests that were not rejected, so it follows a
+ * lasting change in the latency of AssemblyLine, but not a sudden one.
+ * <p>
+ * Requests over the limit wait in order for a request to finish, for up to their maximum wait.
+ */
+class AdaptiveConcurrencyLimit {
+
+    /**
+     * Weight of each new latency in the usual latency.
+     */
+    private static final double LATENCY_SMOOTHING = 0.05;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+    private final double latencyTolerance;
+    private final int maxQueued;
+
+    private final Deque<Waiter> waiters = new ArrayDeque<>();
+    private double limit;
+    private int inFlight;
+    private double usualLatencyNanos;
+    private long lastDecrease = System.nanoTime();
+
+    AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, double backoffRatio,
+                             double latencyTolerance, int maxQueued) {
+        if (minLimit < 1 || maxLimit < minLimit) {
+            throw new IllegalArgumentException("Concurrency limits must satisfy 1 <= min <= max. Min = " + minLimit
+                    + ", max = " + maxLimit);
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.backoffRatio = backoffRatio;
+        this.latencyTolerance = latencyTolerance;
+        this.maxQueued = maxQueued;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    /**
+     * @param maxWaitNanos How long the caller is willing to wait for a permit.
+     * @return A Mono of the permit to send a request, which must be released once the request is done. The Mono is
+     * empty if no permit was available within maxWaitNanos, or too many requests were already waiting.
+     */
+    Mono<Permit> acquire(long maxWaitNanos) {
+        return Mono.create(sink -> {
+            Waiter waiter = new Waiter(sink);
+            boolean granted = false;
+            boolean queued = false;
+            synchronized (this) {
+                if (waiters.isEmpty() && inFlight < (int) limit) {
+                    inFlight++;
+                    granted = true;
+                } else if (maxWaitNanos > 0 && waiters.size() < maxQueued) {
+                    waiter.permit.queued = true;
+                    waiters.add(waiter);
+                    queued = true;
+                }
+            }
+            if (granted) {
+                sink.success(waiter.permit);
+            } else if (!queued) {
+                sink.success();
+            } else {
+                sink.onCancel(() -> {
+                    if (!remove(waiter)) {
+                        // Granted, but too late to be delivered.
+                        waiter.permit.cancel();
+                    }
+                });
+                waiter.timeout = Schedulers.parallel().schedule(() -> {
+                    if (remove(waiter)) {
+                        sink.success();
+                    }
+                }, maxWaitNanos, TimeUnit.NANOSECONDS);
+            }
+        });
+    }
+
+    synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    synchronized int getQueued() {
+        return waiters.size();
+    }
+
+    private synchronized boolean remove(Waiter waiter) {
+        return waiters.remove(waiter);
+    }
+
+    /**
+     * @param latencyNanos Latency of the request, or -1 if it was cancelled, in which case the limit is not adjusted.
+     * @param overloaded   Whether the request was rejected or failed because AssemblyLine is overloaded.
+     */
+    private void release(long latencyNanos, boolean overloaded) {
+        List<Waiter> granted = new ArrayList<>();
+        synchronized (this) {
+            if (latencyNanos >= 0) {
+                adjust(latencyNanos, overloaded);
+            }
+            inFlight--;
+            while (inFlight < (int) limit && !waiters.isEmpty()) {
+                inFlight++;
+                granted.add(waiters.poll());
+            }
+        }
+        for (Waiter waiter : granted) {
+            // The timeout is set just after the waiter is queued, so it may not be set yet. If so, it does nothing.
+            Disposable timeout = waiter.timeout;
+            if (timeout != null) {
+                timeout.dispose();
+            }
+            waiter.sink.success(waiter.permit);
+        }
+    }
+
+    private void adjust(long latencyNanos, boolean overloaded) {
+        boolean slow = usualLatencyNanos > 0 && latencyNanos > latencyTolerance * usualLatencyNanos;
+        if (overloaded || slow) {
+            long now = System.nanoTime();
+            if (now - lastDecrease > usualLatencyNanos) {
+                limit = Math.max(minLimit, limit * backoffRatio);
+                lastDecrease = now;
+            }
+        } else if (inFlight >= limit / 2) {
+            limit = Math.min(maxLimit, limit + 1 / limit);
+        }
+        if (!overloaded) {
+            usualLatencyNanos = usualLatencyNanos == 0 ? latencyNanos
+                    : usualLatencyNanos + LATENCY_SMOOTHING * (latencyNanos - usualLatencyNanos);
+        }
+    }
+
+    /**
+     * Permission to send one request. Only the first release counts.
+     */
+    class Permit {
+        private final AtomicBoolean released = new AtomicBoolean();
+        private boolean queued;
+
+        /**
+         * @return Whether the request had to wait for the permit.
+         */
+        boolean wasQueued() {
+            return queued;
+        }
+
+        /**
+         * @param latencyNanos How long the request took.
+         * @param overloaded   Whether the request was rejected or failed because AssemblyLine is overloaded.
+         */
+        void release(long latencyNanos, boolean overloaded) {
+            if (released.compareAndSet(false, true)) {
+                AdaptiveConcurrencyLimit.this.release(latencyNanos, overloaded);
+            }
+        }
+
+        /**
+         * Releases the permit of a request that was cancelled, without adjusting the limit.
+         */
+        void cancel() {
+            release(-1, false);
+        }
+    }
+
+    private class Waiter {
+        private final MonoSink<Permit> sink;
+        private final Permit permit = new Permit();
+        private volatile Disposable timeout;
+
+        Waiter(MonoSink<Permit> sink) {
+            this.sink = sink;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package ca.gc.cyber.ops.assemblyline.java.client.clients;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Decodes the "api_response" array of an AssemblyLine response one element at a time, as the response body arrives.
+ * <p>
+ * Unlike decoding the whole {@link ca.gc.cyber.ops.assemblyline.java.client.responses.AssemblylineApiResponse}, only
+ * one element is held in memory at a time, and each element is emitted as soon as its last byte has been received.
+ * The other fields of the response are skipped.
+ *
+ * @param <T> The type of the array elements.
+ */
+final class ApiResponseArrayDecoder<T> extends ApiResponseDecoder<T> {
+
+    private final JavaType elementType;
+    private final int maxElementSize;
+
+    private boolean inArray;
+    private int skipDepth;
+
+    /**
+     * Tokens of the element currently being decoded, or null between elements.
+     */
+    private TokenBuffer element;
+    private int elementDepth;
+    private long elementStart;
+
+    private ApiResponseArrayDecoder(ObjectMapper mapper, JavaType elementType, int maxElementSize) throws IOException {
+        super(mapper);
+        this.elementType = elementType;
+        this.maxElementSize = maxElementSize;
+    }
+
+    /**
+     * @param body           Response body.
+     * @param mapper         Mapper used to decode each element.
+     * @param elementType    Type of the array elements.
+     * @param maxElementSize Maximum size of a single element, in bytes, or -1 for no limit.
+     * @param <T>            Type of the array elements.
+     * @return The elements of the "api_response" array. Empty if the response has no such array.
+     */
+    static <T> Flux<T> decode(Flux<DataBuffer> body, ObjectMapper mapper, Class<T> elementType, int maxElementSize) {
+        return Flux.defer(() -> {
+            ApiResponseArrayDecoder<T> decoder;
+            try {
+                decoder = new ApiResponseArrayDecoder<>(mapper, mapper.constructType(elementType), maxElementSize);
+            } catch (IOException e) {
+                return Flux.error(new DecodingException("Failed to create JSON parser.", e));
+            }
+            return decoder.decode(body);
+        });
+    }
+
+    @Override
+    protected boolean apiResponseToken(JsonToken token, List<T> decoded) throws IOException {
+        if (skipDepth > 0 || (!inArray && token != JsonToken.START_ARRAY)) {
+            // An api_response that isn't an array is skipped.
+            if (token.isStructStart()) {
+                skipDepth++;
+            } else if (token.isStructEnd()) {
+                skipDepth--;
+            }
+            return skipDepth == 0;
+        }
+        if (!inArray) {
+            inArray = true;
+            return false;
+        }
+        if (element != null) {
+            continueElement(token, decoded);
+            return false;
+        }
+        if (token == JsonToken.END_ARRAY) {
+            inArray = false;
+            return true;
+        }
+        startElement(token, decoded);
+        return false;
+    }
+
+    private void startElement(JsonToken token, List<T> decoded) throws IOException {
+        element = new TokenBuffer(parser);
+        elementStart = parser.currentTokenLocation().getByteOffset();
+        elementDepth = 0;
+        continueElement(token, decoded);
+    }
+
+    private void continueElement(JsonToken token, List<T> decoded) throws IOException {
+        element.copyCurrentEvent(parser);
+        if (token.isStructStart()) {
+            elementDepth++;
+        } else if (token.isStructEnd()) {
+            elementDepth--;
+        }
+
+        if (maxElementSize >= 0 && parser.currentLocation().getByteOffset() - elementStart > maxElementSize) {
+            throw new DataBufferLimitException(
+                    "Exceeded limit on max bytes per api_response element: " + maxElementSize);
+        }
+
+        if (elementDepth == 0) {
+            try (JsonParser elementParser = element.asParser()) {
+                decoded.add(mapper.readValue(elementParser, elementType));
+            }
+            element = null;
+        }
+    }
+}
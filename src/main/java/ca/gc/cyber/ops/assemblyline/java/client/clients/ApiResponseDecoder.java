@@ -0,0 +1,120 @@
+package ca.gc.cyber.ops.assemblyline.java.client.clients;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteBufferFeeder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Base class for decoders that read the "api_response" field of an AssemblyLine response as the response body arrives,
+ * using Jackson's non-blocking parser. The other fields of the response are skipped. Subclasses decide what to do with
+ * the tokens of the "api_response" value.
+ *
+ * @param <T> The type of the decoded values.
+ */
+abstract class ApiResponseDecoder<T> {
+
+    private static final String API_RESPONSE_FIELD = "api_response";
+
+    protected final ObjectMapper mapper;
+    protected final JsonParser parser;
+    private final ByteBufferFeeder feeder;
+
+    /**
+     * Nesting depth of the response outside of the "api_response" value. The top-level object is depth 1.
+     */
+    private int depth;
+    private boolean apiResponseValueNext;
+    private boolean inApiResponse;
+
+    protected ApiResponseDecoder(ObjectMapper mapper) throws IOException {
+        this.mapper = mapper;
+        this.parser = mapper.getFactory().createNonBlockingByteBufferParser();
+        this.feeder = (ByteBufferFeeder) parser.getNonBlockingInputFeeder();
+    }
+
+    /**
+     * Feeds the body through the decoder.
+     *
+     * @return The values emitted by the decoder.
+     */
+    protected Flux<T> decode(Flux<DataBuffer> body) {
+        return body.concatMapIterable(this::feed)
+                .concatWith(Flux.defer(() -> Flux.fromIterable(endOfInput())))
+                .doOnDiscard(DataBuffer.class, DataBufferUtils::release);
+    }
+
+    /**
+     * Called with each token of the "api_response" value, starting with its first token.
+     *
+     * @param token   The current token of {@link #parser}.
+     * @param decoded Values to emit.
+     * @return true if this was the last token of the "api_response" value.
+     */
+    protected abstract boolean apiResponseToken(JsonToken token, List<T> decoded) throws IOException;
+
+    /**
+     * Called once the whole response has been read.
+     *
+     * @param decoded Values to emit.
+     */
+    protected void endOfApiResponse(List<T> decoded) throws IOException {
+    }
+
+    private List<T> feed(DataBuffer dataBuffer) {
+        List<T> decoded = new ArrayList<>();
+        try (DataBuffer.ByteBufferIterator byteBuffers = dataBuffer.readableByteBuffers()) {
+            while (byteBuffers.hasNext()) {
+                feeder.feedInput(byteBuffers.next());
+                // The parser consumes all of the input before returning NOT_AVAILABLE, so the buffer can be released after.
+                parseAvailableTokens(decoded);
+            }
+        } catch (IOException e) {
+            throw new DecodingException("JSON decoding error: " + e.getMessage(), e);
+        } finally {
+            DataBufferUtils.release(dataBuffer);
+        }
+        return decoded;
+    }
+
+    private List<T> endOfInput() {
+        List<T> decoded = new ArrayList<>();
+        feeder.endOfInput();
+        try {
+            parseAvailableTokens(decoded);
+            if (inApiResponse) {
+                throw new DecodingException("Response ended in the middle of api_response.");
+            }
+            endOfApiResponse(decoded);
+        } catch (IOException e) {
+            throw new DecodingException("JSON decoding error: " + e.getMessage(), e);
+        }
+        return decoded;
+    }
+
+    private void parseAvailableTokens(List<T> decoded) throws IOException {
+        JsonToken token;
+        while ((token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+            if (inApiResponse || apiResponseValueNext) {
+                apiResponseValueNext = false;
+                inApiResponse = !apiResponseToken(token, decoded);
+            } else {
+                apiResponseValueNext = token == JsonToken.FIELD_NAME && depth == 1
+                        && API_RESPONSE_FIELD.equals(parser.currentName());
+                if (token.isStructStart()) {
+                    depth++;
+                } else if (token.isStructEnd()) {
+                    depth--;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package ca.gc.cyber.ops.assemblyline.java.client.clients;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Decodes selected fields of the "api_response" object of an AssemblyLine response, as the response body arrives.
+ * <p>
+ * Only the tokens of the selected fields are kept; the other fields are skipped as they are parsed, without being
+ * built into objects or buffered. The size limit therefore only applies to the selected fields, so a large response
+ * can be decoded under a small limit as long as the selected fields are small.
+ *
+ * @param <T> The type of the "api_response" object.
+ */
+final class ApiResponseObjectDecoder<T> extends ApiResponseDecoder<T> {
+
+    private final JavaType type;
+    private final Predicate<String> includeField;
+    private final int maxSize;
+
+    /**
+     * Tokens of the selected fields, or null until the "api_response" object starts.
+     */
+    private TokenBuffer selected;
+    private long selectedSize;
+    private boolean skipping;
+    private int skipDepth;
+
+    /**
+     * True while reading the value of a field; valueDepth is the nesting depth within that value.
+     */
+    private boolean inValue;
+    private boolean keepingValue;
+    private int valueDepth;
+    private long valueStart;
+
+    private ApiResponseObjectDecoder(ObjectMapper mapper, JavaType type, Predicate<String> includeField,
+                                     int maxSize) throws IOException {
+        super(mapper);
+        this.type = type;
+        this.includeField = includeField;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * @param body         Response body.
+     * @param mapper       Mapper used to decode the selected fields.
+     * @param type         Type of the "api_response" object.
+     * @param includeField Selects the fields of the "api_response" object to decode, by their name in the JSON.
+     * @param maxSize      Maximum total size of the selected fields, in bytes, or -1 for no limit.
+     * @param <T>          Type of the "api_response" object.
+     * @return The "api_response" object, with only the selected fields set. Empty if the response has no such object.
+     */
+    static <T> Mono<T> decode(Flux<DataBuffer> body, ObjectMapper mapper, Class<T> type,
+                              Predicate<String> includeField, int maxSize) {
+        return Mono.defer(() -> {
+            ApiResponseObjectDecoder<T> decoder;
+            try {
+                decoder = new ApiResponseObjectDecoder<>(mapper, mapper.constructType(type), includeField, maxSize);
+            } catch (IOException e) {
+                return Mono.error(new DecodingException("Failed to create JSON parser.", e));
+            }
+            return decoder.decode(body).singleOrEmpty();
+        });
+    }
+
+    @Override
+    protected boolean apiResponseToken(JsonToken token, List<T> decoded) throws IOException {
+        if (selected == null && !skipping) {
+            if (token != JsonToken.START_OBJECT) {
+                // An api_response that isn't an object (e.g. null) is skipped.
+                skipping = true;
+            } else {
+                selected = new TokenBuffer(parser);
+                selected.copyCurrentEvent(parser);
+                return false;
+            }
+        }
+        if (skipping) {
+            if (token.isStructStart()) {
+                skipDepth++;
+            } else if (token.isStructEnd()) {
+                skipDepth--;
+            }
+            return skipDepth == 0;
+        }
+
+        if (inValue) {
+            valueToken(token);
+            return false;
+        }
+        if (token == JsonToken.END_OBJECT) {
+            selected.copyCurrentEvent(parser);
+            return true;
+        }
+        // Otherwise this is the name of the next field.
+        inValue = true;
+        valueDepth = 0;
+        keepingValue = includeField.test(parser.currentName());
+        if (keepingValue) {
+            selected.copyCurrentEvent(parser);
+            valueStart = parser.currentLocation().getByteOffset();
+        }
+        return false;
+    }
+
+    @Override
+    protected void endOfApiResponse(List<T> decoded) throws IOException {
+        if (selected == null) {
+            return;
+        }
+        try (JsonParser selectedParser = selected.asParser()) {
+            T value = mapper.readValue(selectedParser, type);
+            if (value != null) {
+                decoded.add(value);
+            }
+        }
+    }
+
+    private void valueToken(JsonToken token) throws IOException {
+        if (token.isStructStart()) {
+            valueDepth++;
+        } else if (token.isStructEnd()) {
+            valueDepth--;
+        }
+        if (!keepingValue) {
+            inValue = valueDepth > 0;
+            return;
+        }
+
+        selected.copyCurrentEvent(parser);
+        long valueSize = parser.currentLocation().getByteOffset() - valueStart;
+        if (maxSize >= 0 && selectedSize + valueSize > maxSize) {
+            throw new DataBufferLimitException("Exceeded limit on max bytes to buffer : " + maxSize);
+        }
+        if (valueDepth == 0) {
+            selectedSize += valueSize;
+            inValue = false;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package ca.gc.cyber.ops.assemblyline.java.client.clients;
+
+import ca.gc.cyber.ops.assemblyline.java.client.model.FileInfo;
+import ca.gc.cyber.ops.assemblyline.java.client.model.FileResultForService;
+import ca.gc.cyber.ops.assemblyline.java.client.model.FileResults;
+import ca.gc.cyber.ops.assemblyline.java.client.model.HashSearchResult;
+import ca.gc.cyber.ops.assemblyline.java.client.model.IngestResponse;
+import ca.gc.cyber.ops.assemblyline.java.client.model.LoginResponse;
+import ca.gc.cyber.ops.assemblyline.java.client.model.ResultBlock;
+import ca.gc.cyber.ops.assemblyline.java.client.model.submission.Submission;
+import ca.gc.cyber.ops.assemblyline.java.client.model.submission.SubmissionFileResults;
+import ca.gc.cyber.ops.assemblyline.java.client.model.submission.SubmissionFull;
+import ca.gc.cyber.ops.assemblyline.java.client.model.submission.SubmissionTree;
+import ca.gc.cyber.ops.assemblyline.java.client.responses.AssemblylineApiResponse;
+import org.springframework.core.ParameterizedTypeReference;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The response types of the AssemblyLine endpoints, created once. Every {@code new ParameterizedTypeReference<>() {}}
+ * is an instance of an anonymous class whose type argument is looked up by reflection when it is created, and since
+ * the decoder resolves the {@code JavaType} of each type only once, reusing the same type also makes that lookup
+ * cheaper.
+ */
+final class ApiResponseTypes {
+
+    static final ParameterizedTypeReference<AssemblylineApiResponse<Boolean>> BOOLEAN =
+            new ParameterizedTypeReference<>() {
+            };
+    static final ParameterizedTypeReference<AssemblylineApiResponse<FileInfo>> FILE_INFO =
+            new ParameterizedTypeReference<>() {
+            };
+    static final ParameterizedTypeReference<AssemblylineApiResponse<FileResults>> FILE_RESULTS =
+            new ParameterizedTypeReference<>() {
+            };
+    static final ParameterizedTypeReference<AssemblylineApiResponse<FileResultForService>> FILE_RESULT_FOR_SERVICE =
+            new ParameterizedTypeReference<>() {
+            };
+    static final ParameterizedTypeReference<AssemblylineApiResponse<Map<String, HashSearchResult>>> HASH_SEARCH =
+            new ParameterizedTypeReference<>() {
+            };
+    static final ParameterizedTypeReference<AssemblylineApiResponse<List<String>>> HASH_SEARCH_DATA_SOURCES =
+            new ParameterizedTypeReference<>() {
+            };
+    static final ParameterizedTypeReference<AssemblylineApiResponse<IngestResponse>> INGEST =
+            new ParameterizedTypeReference<>() {
+            };
+    static final ParameterizedTypeReference<AssemblylineApiResponse<LoginResponse>> LOGIN =
+            new ParameterizedTypeReference<>() {
+            };
+    static final ParameterizedTypeReference<AssemblylineApiResponse<ResultBlock>> RESULT =
+            new ParameterizedTypeReference<>() {
+            };
+    static final ParameterizedTypeReference<AssemblylineApiResponse<Submission>> SUBMISSION =
+            new ParameterizedTypeReference<>() {
+            };
+    static final ParameterizedTypeReference<AssemblylineApiResponse<SubmissionFileResults>> SUBMISSION_FILE_RESULTS =
+            new ParameterizedTypeReference<>() {
+            };
+    static final ParameterizedTypeReference<AssemblylineApiResponse<SubmissionFull>> SUBMISSION_FULL =
+            new ParameterizedTypeReference<>() {
+            };
+    static final ParameterizedTypeReference<AssemblylineApiResponse<SubmissionTree>> SUBMISSION_TREE =
+            new ParameterizedTypeReference<>() {
+            };
+
+    private ApiResponseTypes() {
+    }
+}
@@ -2,23 +2,32 @@ package ca.gc.cyber.ops.assemblyline.java.client.clients;
 
 import ca.gc.cyber.ops.assemblyline.java.client.authentication.AssemblylineAuthenticationMethod;
 import ca.gc.cyber.ops.assemblyline.java.client.model.DownloadFileParams;
+import ca.gc.cyber.ops.assemblyline.java.client.model.DownloadResult;
 import ca.gc.cyber.ops.assemblyline.java.client.model.FileInfo;
 import ca.gc.cyber.ops.assemblyline.java.client.model.FileResultForService;
 import ca.gc.cyber.ops.assemblyline.java.client.model.FileResults;
+import ca.gc.cyber.ops.assemblyline.java.client.model.FileResultsView;
 import ca.gc.cyber.ops.assemblyline.java.client.model.HashSearchResult;
+import ca.gc.cyber.ops.assemblyline.java.client.model.IngestMessageStreamOptions;
 import ca.gc.cyber.ops.assemblyline.java.client.model.IngestResponse;
 import ca.gc.cyber.ops.assemblyline.java.client.model.LoginResponse;
 import ca.gc.cyber.ops.assemblyline.java.client.model.ResultBlock;
 import ca.gc.cyber.ops.assemblyline.java.client.model.ingest.AsyncBinaryFile;
 import ca.gc.cyber.ops.assemblyline.java.client.model.ingest.BinaryFile;
+import ca.gc.cyber.ops.assemblyline.java.client.model.ingest.BulkIngestOptions;
 import ca.gc.cyber.ops.assemblyline.java.client.model.ingest.IngestBase;
+import ca.gc.cyber.ops.assemblyline.java.client.model.ingest.IngestOutcome;
 import ca.gc.cyber.ops.assemblyline.java.client.model.ingest.NonBinaryIngest;
+import ca.gc.cyber.ops.assemblyline.java.client.model.ingest.PathBinaryFile;
+import ca.gc.cyber.ops.assemblyline.java.client.model.ingest.Sha256Ingest;
+import ca.gc.cyber.ops.assemblyline.java.client.model.submission.AwaitOptions;
 import ca.gc.cyber.ops.assemblyline.java.client.model.submission.IngestSubmissionResponse;
 import ca.gc.cyber.ops.assemblyline.java.client.model.submission.Submission;
 import ca.gc.cyber.ops.assemblyline.java.client.model.submission.SubmissionFileResults;
 import ca.gc.cyber.ops.assemblyline.java.client.model.submission.SubmissionFull;
 import ca.gc.cyber.ops.assemblyline.java.client.model.submission.SubmissionTree;
 import ca.gc.cyber.ops.assemblyline.java.client.model.submit.NonBinarySubmit;
+import ca.gc.cyber.ops.assemblyline.java.client.model.submit.SubmitBase;
 import ca.gc.cyber.ops.assemblyline.java.client.model.submit.SubmitMetadata;
 import ca.gc.cyber.ops.assemblyline.java.client.responses.AssemblylineApiResponse;
 import com.fasterxml.jackson.annotation.JsonInclude;
@@ -28,11 +37,15 @@ import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.PropertyNamingStrategies;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
-import lombok.Getter;
+import io.netty.handler.codec.http.cookie.DefaultCookie;
+import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.logging.log4j.util.Strings;
+import org.reactivestreams.Publisher;
 import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.core.codec.DecodingException;
 import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.core.io.buffer.DataBufferUtils;
 import org.springframework.http.HttpCookie;
@@ -41,7 +54,7 @@ import org.springframework.http.MediaType;
 import org.springframework.http.client.MultipartBodyBuilder;
 import org.springframework.http.client.reactive.ClientHttpRequest;
 import org.springframework.http.client.reactive.ReactorClientHttpConnector;
-import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.codec.CodecConfigurer;
 import org.springframework.http.codec.json.Jackson2JsonEncoder;
 import org.springframework.util.MimeType;
 import org.springframework.web.reactive.function.BodyExtractors;
@@ -50,51 +63,112 @@ import org.springframework.web.reactive.function.BodyInserters;
 import org.springframework.web.reactive.function.client.ClientRequest;
 import org.springframework.web.reactive.function.client.ClientResponse;
 import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
+import org.springframework.web.util.DefaultUriBuilderFactory;
 import org.springframework.web.util.UriBuilder;
+import reactor.core.Disposable;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
 import reactor.core.scheduler.Schedulers;
 import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.client.HttpClientRequest;
+import reactor.util.context.Context;
 import reactor.util.retry.Retry;
 
-import java.io.IOException;
 import java.io.InputStream;
-import java.io.PipedInputStream;
-import java.io.PipedOutputStream;
+import java.lang.reflect.Type;
 import java.net.URI;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
 @Slf4j
-public class AssemblylineClient implements IAssemblylineClient {
+public class AssemblylineClient implements IAssemblylineClient, AutoCloseable {
 
     private static final String SESSION_COOKIE = "session";
     private static final String MULTIPART_MSG_JSON_PART = "json";
     private static final String MULTIPART_MSG_BINARY_PART = "bin";
 
-    @Getter
-    protected String session = "";
+    /**
+     * Key of the Reactor context entry that holds the retry attempt of a request: absent for the first attempt, 1 for
+     * the retry after a 401. Filters added with {@link #addFilter} can read it with {@link Mono#deferContextual}.
+     */
+    public static final String RETRY_ATTEMPT_CONTEXT_KEY = AssemblylineClient.class.getName() + ".retryAttempt";
+
+    /**
+     * Key of the Reactor context entry that holds the {@link NodeSelection} of a request.
+     */
+    private static final String NODE_SELECTION_CONTEXT_KEY = AssemblylineClient.class.getName() + ".nodeSelection";
+
+    /**
+     * Key of the Reactor context entry that holds the session cookie to send with a request.
+     */
+    private static final String SESSION_COOKIE_CONTEXT_KEY = AssemblylineClient.class.getName() + ".sessionCookie";
+
+    private static final PathTemplate LOGIN_PATH = new PathTemplate(LOGIN_URL);
+    private static final PathTemplate FILE_INFO_PATH = new PathTemplate(FILE_INFO_URL);
+    private static final PathTemplate FILE_RESULTS_PATH = new PathTemplate(FILE_RESULTS_URL);
+    private static final PathTemplate FILE_RESULT_FOR_SERVICE_PATH = new PathTemplate(FILE_RESULT_FOR_SERVICE_URL);
+    private static final PathTemplate HASH_SEARCH_DATA_SOURCES_PATH = new PathTemplate(HASH_SEARCH_LIST_DATA_SOURCES);
+    private static final PathTemplate INGEST_PATH = new PathTemplate(INGEST_URL);
+    private static final PathTemplate INGEST_GET_MESSAGE_LIST_PATH = new PathTemplate(INGEST_GET_MESSAGE_LIST_URL);
+    private static final PathTemplate RESULT_PATH = new PathTemplate(RESULT_URL);
+    private static final PathTemplate SUBMISSION_COMPLETE_PATH = new PathTemplate(SUBMISSION_COMPLETE_URL);
+    private static final PathTemplate SUBMISSION_PATH = new PathTemplate(SUBMISSION_URL);
+    private static final PathTemplate SUBMISSION_FILE_RESULTS_PATH = new PathTemplate(SUBMISSION_FILE_RESULTS_URL);
+    private static final PathTemplate SUBMISSION_FULL_PATH = new PathTemplate(SUBMISSION_FULL_URL);
+    private static final PathTemplate SUBMISSION_TREE_PATH = new PathTemplate(SUBMISSION_TREE_URL);
+    private static final PathTemplate SUBMIT_PATH = new PathTemplate(SUBMIT_URL);
+
+    /**
+     * The session of the first node. This replaces the protected String {@code session} field of earlier versions;
+     * subclasses read the cookie with {@link #getSession()} and set it with {@link #setSession(String)}.
+     */
+    private AssemblylineSession primarySession;
     protected WebClient webClient;
     protected ObjectMapper mapper;
     protected AssemblylineAuthenticationMethod assemblylineAuthenticationMethod;
 
-    protected ExchangeFilterFunction addSession = (request, next) -> {
-        ClientRequest updatedRequest = ClientRequest.from(request)
-                .cookie(SESSION_COOKIE, session)
-                .build();
-        return next.exchange(updatedRequest);
-    };
+    protected ExchangeFilterFunction addSession = this::exchangeWithNode;
+
+    private NodeBalancer nodes;
 
     private String authBearerToken;
+    private int maxInMemorySize;
+    private long downloadBufferSize;
+    private boolean hashFirstIngest;
+    private FilePresenceCache knownFiles;
+    private ResponseCache responseCache;
+    private boolean useResponseCache;
+    private boolean coalesceRequests;
+    private DefaultUriBuilderFactory uriBuilderFactory;
+    private boolean sessionCookieFromContext;
+    private Map<InFlightRequestKey, SharedExchange<?>> inFlightRequests = new ConcurrentHashMap<>();
+    private AtomicLong coalescedRequestCount = new AtomicLong();
+    private PollBudget submissionPollBudget;
+    private Map<String, IngestMessageStreamStats> ingestMessageStreamStats = new ConcurrentHashMap<>();
+    private RequestLimiter requestLimiter;
+    private RetryPolicy retryPolicy;
+    private CircuitBreakers circuitBreakers;
+    private Bulkheads bulkheads;
+    private String idempotencyKeyMetadata;
 
     /**
      * Constructs a new instance of AssemblylineClient.
@@ -117,11 +191,61 @@ public class AssemblylineClient implements IAssemblylineClient {
                               AssemblylineAuthenticationMethod assemblylineAuthenticationMethod) {
         this.mapper = defaultMapper.copy();
         this.assemblylineAuthenticationMethod = assemblylineAuthenticationMethod;
+        this.nodes = new NodeBalancer(assemblylineClientProperties);
+        this.primarySession = nodes.getPrimary().getSession();
+        this.hashFirstIngest = assemblylineClientProperties.getHashFirst().isEnabled();
+        this.knownFiles = new FilePresenceCache(assemblylineClientProperties.getHashFirst().getPresenceCacheSize());
+        this.downloadBufferSize = assemblylineClientProperties.getDownloadBufferSize().toBytes();
+        this.responseCache = new ResponseCache(assemblylineClientProperties.getCache());
+        this.useResponseCache = assemblylineClientProperties.getCache().isEnabled();
+        this.coalesceRequests = assemblylineClientProperties.isCoalesceRequests();
+        this.submissionPollBudget = new PollBudget(assemblylineClientProperties.getAwaitCompletion().getMaxPollsPerSecond());
+        if (RequestLimiter.isEnabled(assemblylineClientProperties.getLimiter())) {
+            this.requestLimiter = new RequestLimiter(assemblylineClientProperties.getLimiter());
+        }
+        if (assemblylineClientProperties.getRetry().isEnabled()) {
+            this.retryPolicy = new RetryPolicy(assemblylineClientProperties.getRetry());
+        }
+        if (assemblylineClientProperties.getCircuitBreaker().isEnabled()) {
+            this.circuitBreakers = new CircuitBreakers(assemblylineClientProperties.getCircuitBreaker());
+        }
+        if (Bulkheads.isEnabled(assemblylineClientProperties.getBulkhead())) {
+            this.bulkheads = new Bulkheads(assemblylineClientProperties.getBulkhead());
+        }
+        this.idempotencyKeyMetadata = assemblylineClientProperties.getRetry().getIdempotencyKeyMetadata();
+        // Kept so that get() and post() can build the exact URI the WebClient will request, e.g. to detect identical
+        // requests.
+        this.uriBuilderFactory = new DefaultUriBuilderFactory(nodes.getPrimary().getBaseUrl() + "/");
+        configureMapper(mapper);
+        this.buildWebClient(assemblylineClientProperties, httpClient);
+    }
+
+    /**
+     * Applies the settings used to read and write the JSON of AssemblyLine requests and responses.
+     *
+     * @param mapper The mapper to configure.
+     * @return The same mapper.
+     */
+    static ObjectMapper configureMapper(ObjectMapper mapper) {
         mapper.setPropertyNamingStrategy(PropertyNamingStrategies.SNAKE_CASE);
         mapper.setSerializationInclusion(JsonInclude.Include.NON_EMPTY);
         mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
         mapper.registerModule(new JavaTimeModule());
-        this.buildWebClient(assemblylineClientProperties, httpClient);
+        return mapper;
+    }
+
+    /**
+     * Sets up the codecs used to read and write AssemblyLine requests and responses.
+     *
+     * @param configurer      The configurer of the WebClient's codecs.
+     * @param mapper          The mapper, configured by {@link #configureMapper}.
+     * @param maxInMemorySize The maximum number of bytes of a response that can be buffered.
+     */
+    static void configureCodecs(CodecConfigurer configurer, ObjectMapper mapper, int maxInMemorySize) {
+        configurer.defaultCodecs().maxInMemorySize(maxInMemorySize);
+
+        configurer.defaultCodecs().jackson2JsonDecoder(new CachingJackson2JsonDecoder(mapper));
+        configurer.defaultCodecs().jackson2JsonEncoder(new Jackson2JsonEncoder(mapper));
     }
 
     /**
@@ -148,7 +272,26 @@ public class AssemblylineClient implements IAssemblylineClient {
         this.mapper = original.mapper;
         this.assemblylineAuthenticationMethod = original.assemblylineAuthenticationMethod;
         this.webClient = original.webClient;
-        this.session = original.session;
+        this.maxInMemorySize = original.maxInMemorySize;
+        this.downloadBufferSize = original.downloadBufferSize;
+        this.primarySession = original.primarySession;
+        this.nodes = original.nodes;
+        this.hashFirstIngest = original.hashFirstIngest;
+        this.knownFiles = original.knownFiles;
+        this.responseCache = original.responseCache;
+        this.useResponseCache = original.useResponseCache;
+        this.coalesceRequests = original.coalesceRequests;
+        this.uriBuilderFactory = original.uriBuilderFactory;
+        this.sessionCookieFromContext = original.sessionCookieFromContext;
+        this.inFlightRequests = original.inFlightRequests;
+        this.coalescedRequestCount = original.coalescedRequestCount;
+        this.submissionPollBudget = original.submissionPollBudget;
+        this.ingestMessageStreamStats = original.ingestMessageStreamStats;
+        this.requestLimiter = original.requestLimiter;
+        this.retryPolicy = original.retryPolicy;
+        this.circuitBreakers = original.circuitBreakers;
+        this.bulkheads = original.bulkheads;
+        this.idempotencyKeyMetadata = original.idempotencyKeyMetadata;
     }
 
     /**
@@ -164,156 +307,684 @@ public class AssemblylineClient implements IAssemblylineClient {
         return newClient;
     }
 
+    /**
+     * Creates a copy of the current AssemblylineClient that neither reads from nor adds to the response cache.
+     *
+     * @return the new client.
+     */
+    @Override
+    public AssemblylineClient withoutCache() {
+        AssemblylineClient newClient = new AssemblylineClient(this);
+        newClient.authBearerToken = this.authBearerToken;
+        newClient.useResponseCache = false;
+        return newClient;
+    }
+
     protected void buildWebClient(AssemblylineClientProperties assemblylineClientProperties,
                                   HttpClient httpClient) {
-        webClient = WebClient.builder()
-                .clientConnector(new ReactorClientHttpConnector(httpClient))
-                .codecs(clientCodecConfigurer -> {
-                    // toIntExact() will throw an error if the property is more than 2GB (Integer.MAX_VALUE bytes)
-                    clientCodecConfigurer.defaultCodecs().maxInMemorySize(Math.toIntExact(
-                            assemblylineClientProperties.getMaxInMemorySize().toBytes()));
-
-                    clientCodecConfigurer.defaultCodecs().jackson2JsonDecoder(new Jackson2JsonDecoder(mapper));
-                    clientCodecConfigurer.defaultCodecs().jackson2JsonEncoder(new Jackson2JsonEncoder(mapper));
-                })
-                .filter(addSession)
-                .baseUrl(assemblylineClientProperties.getUrl())
-                .build();
+        // toIntExact() will throw an error if the property is more than 2GB (Integer.MAX_VALUE bytes)
+        maxInMemorySize = Math.toIntExact(assemblylineClientProperties.getMaxInMemorySize().toBytes());
+        // The session cookie is added to each request as it is sent, from the Reactor context, rather than by copying
+        // the request in a filter.
+        sessionCookieFromContext = true;
+        WebClient.Builder builder = WebClient.builder()
+                .clientConnector(new ReactorClientHttpConnector(
+                        httpClient.doOnRequest((request, connection) -> addSessionCookie(request))))
+                .codecs(clientCodecConfigurer -> configureCodecs(clientCodecConfigurer, mapper, maxInMemorySize))
+                .uriBuilderFactory(uriBuilderFactory);
+        /* Every retry chooses its node, and goes through the circuit breaker and the limits, again. An open circuit
+        breaker fails requests before they wait for the limits, and the bulkhead only counts requests that are past
+        them. Filters added later, such as metrics, see each attempt, and only once it is past the limits. */
+        if (retryPolicy != null) {
+            builder.filter(retryPolicy);
+        }
+        builder.filter(addSession);
+        if (circuitBreakers != null) {
+            builder.filter(circuitBreakers);
+        }
+        if (requestLimiter != null) {
+            builder.filter(requestLimiter);
+        }
+        if (bulkheads != null) {
+            builder.filter(bulkheads);
+        }
+        webClient = builder.build();
+    }
+
+    /**
+     * Adds a filter to every request made by this client from now on, after the filters already added. Copies made
+     * by {@link #withAuthBearerToken(String)} or {@link #withoutCache()} before this call are not affected. Requests
+     * carry their {@link AssemblylineEndpoint} as a request attribute. The session cookie is only added as the request
+     * is sent, so it is not in {@link ClientRequest#cookies()}.
+     *
+     * @param filter The filter to add.
+     */
+    public void addFilter(ExchangeFilterFunction filter) {
+        webClient = webClient.mutate().filter(filter).build();
     }
 
+    /**
+     * Logs in to the first node, whose session cookie is the one returned by {@link #getSession()}. With several
+     * nodes, the others are logged in to the first time they reject a request.
+     */
     @Override
     public Mono<LoginResponse> login() {
+        return login(nodes.getPrimary());
+    }
 
-        return webClient.post().uri(LOGIN_URL)
-                .body(BodyInserters.fromFormData(this.assemblylineAuthenticationMethod.getAuthBody()))
-                .exchangeToMono(cr ->
-                        clientResponseToMono(cr, new ParameterizedTypeReference<AssemblylineApiResponse<LoginResponse>>() {
-                        })
-                                .doOnSuccess(lr -> this.setSession(cr)));
+    /**
+     * @param node The node to log in to.
+     */
+    private Mono<LoginResponse> login(AssemblylineNode node) {
+        return Mono.defer(() -> {
+            NodeSelection selection = new NodeSelection(node);
+            return webClient.post().uri(buildUri(LOGIN_PATH))
+                    .attribute(AssemblylineEndpoint.ATTRIBUTE, AssemblylineEndpoint.LOGIN)
+                    .body(BodyInserters.fromFormData(this.assemblylineAuthenticationMethod.getAuthBody()))
+                    .exchangeToMono(cr ->
+                            clientResponseToMono(cr, ApiResponseTypes.LOGIN)
+                                    .doOnSuccess(lr -> {
+                                        AssemblylineNode loggedIn = selection.getNode();
+                                        loggedIn.getSession().loggedIn(lr.getSessionDuration(), () -> login(loggedIn));
+                                    }))
+                    .contextWrite(context -> context.put(NODE_SELECTION_CONTEXT_KEY, selection));
+        });
+    }
+
+    /**
+     * Sends a request to the node chosen for it, with that node's session cookie, and keeps any new session cookie
+     * the node sets in a successful response. Requests sent again after a 401 go to the node that rejected them; other
+     * requests, including retries of transient failures, go to the node chosen by the balancer, avoiding the node of
+     * the previous attempt.
+     */
+    private Mono<ClientResponse> exchangeWithNode(ClientRequest request, ExchangeFunction next) {
+        return Mono.deferContextual(context -> {
+            NodeSelection selection = context.getOrDefault(NODE_SELECTION_CONTEXT_KEY, null);
+            AssemblylineNode node = selection == null ? nodes.choose(null)
+                    : selection.isPinned() ? selection.getNode()
+                    : nodes.choose(selection.getNode());
+            AssemblylineSession nodeSession = node.getSession();
+            // Logins must not wait for the login in progress, which may be themselves.
+            Mono<Void> ready = AssemblylineEndpoint.of(request).orElse(null) == AssemblylineEndpoint.LOGIN
+                    ? Mono.empty()
+                    : nodeSession.beforeRequest(() -> login(node));
+            return ready.then(Mono.defer(() -> {
+                if (selection != null) {
+                    selection.sent(node, nodeSession.getGeneration());
+                }
+                // The request is only copied if it goes to another node than the one its URL was built on.
+                ClientRequest nodeRequest = request;
+                URI url = node.rebase(request.url(), nodes.getPrimary().getBaseUrl());
+                if (url != request.url() || !sessionCookieFromContext) {
+                    ClientRequest.Builder builder = ClientRequest.from(request).url(url);
+                    if (!sessionCookieFromContext) {
+                        builder.cookie(SESSION_COOKIE, nodeSession.getCookie());
+                    }
+                    nodeRequest = builder.build();
+                }
+                Mono<ClientResponse> response = nodes.isSingleNode() ? next.exchange(nodeRequest)
+                        : node.exchange(nodeRequest, next);
+                if (sessionCookieFromContext) {
+                    response = response.contextWrite(Context.of(SESSION_COOKIE_CONTEXT_KEY, nodeSession.getCookie()));
+                }
+                return response.doOnNext(clientResponse -> {
+                    if (!clientResponse.statusCode().isError()) {
+                        setSession(clientResponse, nodeSession);
+                    }
+                });
+            }));
+        });
     }
 
     @Override
     public Mono<Boolean> isSubmissionComplete(String sid) {
-        return get(buildUri(SUBMISSION_COMPLETE_URL, sid), new ParameterizedTypeReference<>() {
-        });
+        return get(AssemblylineEndpoint.SUBMISSION_COMPLETE,
+                buildUri(SUBMISSION_COMPLETE_PATH, sid), ApiResponseTypes.BOOLEAN);
     }
 
     @Override
     public Mono<FileInfo> getFileInfo(String sha256) {
-        return get(buildUri(FILE_INFO_URL, sha256), new ParameterizedTypeReference<>() {
-        });
+        return getCached(ResponseCache.Endpoint.FILE_INFO, sha256, null, AssemblylineEndpoint.FILE_INFO,
+                buildUri(FILE_INFO_PATH, sha256), ApiResponseTypes.FILE_INFO);
     }
 
     @Override
     public Mono<FileResults> getFileResults(String sha256) {
-        return get(buildUri(FILE_RESULTS_URL, sha256), new ParameterizedTypeReference<>() {
-        });
+        return getCached(ResponseCache.Endpoint.FILE_RESULTS, sha256, null, AssemblylineEndpoint.FILE_RESULT,
+                buildUri(FILE_RESULTS_PATH, sha256), ApiResponseTypes.FILE_RESULTS);
+    }
+
+    /**
+     * Gets the results for a file, decoding only the selected sections. The other sections are skipped while the
+     * response is read, and maxInMemorySize only applies to the selected sections. These responses are not cached.
+     *
+     * @param sha256 SHA256 of the file
+     * @param view   The sections to decode
+     * @return The results, with only the selected sections set
+     */
+    @Override
+    public Mono<FileResults> getFileResults(String sha256, FileResultsView view) {
+        return this.retryWrapper(webClient.get()
+                .uri(buildUri(FILE_RESULTS_PATH, sha256))
+                .attribute(AssemblylineEndpoint.ATTRIBUTE, AssemblylineEndpoint.FILE_RESULT)
+                .headers(this::addAuthBearerHeader)
+                .accept(MediaType.APPLICATION_JSON)
+                .exchangeToMono(cr -> this.checkForException(cr)
+                        .flatMap(c -> ApiResponseObjectDecoder.decode(c.body(BodyExtractors.toDataBuffers()),
+                                mapper, FileResults.class, view::includes, maxInMemorySize))));
     }
 
     @Override
     public Mono<FileResultForService> getFileResultForService(String sha256, String serviceName) {
-        return get(buildUri(FILE_RESULT_FOR_SERVICE_URL, sha256, serviceName), new ParameterizedTypeReference<>() {
-        });
+        return getCached(ResponseCache.Endpoint.FILE_RESULT_FOR_SERVICE, sha256, serviceName,
+                AssemblylineEndpoint.FILE_RESULT_FOR_SERVICE,
+                buildUri(FILE_RESULT_FOR_SERVICE_PATH, sha256, serviceName),
+                ApiResponseTypes.FILE_RESULT_FOR_SERVICE);
     }
 
     @Override
     public Mono<ResultBlock> getResult(String cacheKey) {
-        return get(buildUri(RESULT_URL, cacheKey), new ParameterizedTypeReference<>() {
+        return getCached(ResponseCache.Endpoint.RESULT, cacheKey, null, AssemblylineEndpoint.RESULT,
+                buildUri(RESULT_PATH, cacheKey), ApiResponseTypes.RESULT);
+    }
+
+    @Override
+    public void invalidateCachedFile(String sha256) {
+        responseCache.invalidateFile(sha256);
+    }
+
+    @Override
+    public void invalidateCachedResult(String cacheKey) {
+        responseCache.invalidateResult(cacheKey);
+    }
+
+    @Override
+    public void invalidateCache() {
+        responseCache.invalidateAll();
+    }
+
+    /**
+     * @return Counters for the response cache, shared with all copies of this client.
+     */
+    public ResponseCacheStats getResponseCacheStats() {
+        return responseCache.getStats();
+    }
+
+    /**
+     * @return Counters for the rate and concurrency limits of each limited group of endpoints. Empty if no limits are
+     * configured.
+     */
+    public Map<AssemblylineEndpoint.Group, RequestLimiterStats> getRequestLimiterStats() {
+        return requestLimiter != null ? requestLimiter.getStats() : Map.of();
+    }
+
+    /**
+     * @return The state of the circuit breaker of each group of endpoints, or an empty map if circuit breakers are not
+     * enabled.
+     */
+    public Map<AssemblylineEndpoint.Group, CircuitBreakerStats> getCircuitBreakerStats() {
+        return circuitBreakers != null ? circuitBreakers.getStats() : Map.of();
+    }
+
+    /**
+     * Publishes every change of state of the circuit breakers to the subscribers present at the time. Never completes;
+     * empty if circuit breakers are not enabled.
+     *
+     * @return The changes of state of the circuit breakers.
+     */
+    public Flux<CircuitBreakerEvent> circuitBreakerEvents() {
+        return circuitBreakers != null ? circuitBreakers.events() : Flux.empty();
+    }
+
+    /**
+     * @return Counters for each group of endpoints with a cap on its requests in flight.
+     */
+    public Map<AssemblylineEndpoint.Group, BulkheadStats> getBulkheadStats() {
+        return bulkheads != null ? bulkheads.getStats() : Map.of();
+    }
+
+    /**
+     * @return Counters for the retries of transient failures, or empty if retries are not enabled.
+     */
+    public Optional<RetryStats> getRetryStats() {
+        return Optional.ofNullable(retryPolicy).map(RetryPolicy::getStats);
+    }
+
+    /**
+     * Answers a lookup from the response cache if possible, otherwise sends the request and caches the response. The
+     * cache holds the body of the response rather than the decoded object: every caller decodes its own copy, which it
+     * may change without affecting later hits, and the size of an entry is known without serializing it again.
+     */
+    private <T> Mono<T> getCached(ResponseCache.Endpoint cacheEndpoint, String id, String service,
+                                  AssemblylineEndpoint endpoint, URI uri,
+                                  ParameterizedTypeReference<AssemblylineApiResponse<T>> responseType) {
+        if (!useResponseCache || !responseCache.isCached(cacheEndpoint)) {
+            return get(endpoint, uri, responseType);
+        }
+        return Mono.defer(() -> {
+            byte[] cachedBody = responseCache.get(cacheEndpoint, authBearerToken, id, service);
+            if (cachedBody != null) {
+                return decodeApiResponse(cachedBody, responseType);
+            }
+            return getBody(endpoint, uri)
+                    .flatMap(body -> decodeApiResponse(body, responseType)
+                            // Only responses that could be decoded are cached.
+                            .doOnNext(response -> responseCache.put(cacheEndpoint, authBearerToken, id, service,
+                                    body)));
+        });
+    }
+
+    /**
+     * @return The "api_response" section of the response body, or empty if it is null.
+     */
+    private <T> Mono<T> decodeApiResponse(byte[] body,
+                                          ParameterizedTypeReference<AssemblylineApiResponse<T>> responseType) {
+        return Mono.fromCallable(() -> {
+            try {
+                AssemblylineApiResponse<T> response = mapper.readValue(body,
+                        mapper.getTypeFactory().constructType(responseType.getType()));
+                return response.getApiResponse();
+            } catch (JsonProcessingException e) {
+                throw new DecodingException("JSON decoding error: " + e.getOriginalMessage(), e);
+            }
         });
     }
 
     @Override
     public Mono<SubmissionFileResults> getSubmissionFileResults(String sid, String sha256) {
-        return get(buildUri(SUBMISSION_FILE_RESULTS_URL, sid, sha256), new ParameterizedTypeReference<>() {
-        });
+        return get(AssemblylineEndpoint.SUBMISSION_FILE_RESULTS,
+                buildUri(SUBMISSION_FILE_RESULTS_PATH, sid, sha256), ApiResponseTypes.SUBMISSION_FILE_RESULTS);
     }
 
     @Override
     public Mono<SubmissionTree> getSubmissionTree(String sid) {
-        return get(buildUri(SUBMISSION_TREE_URL, sid), new ParameterizedTypeReference<>() {
-        });
+        return get(AssemblylineEndpoint.SUBMISSION_TREE,
+                buildUri(SUBMISSION_TREE_PATH, sid), ApiResponseTypes.SUBMISSION_TREE);
     }
 
     @Override
     public Mono<Submission> getSubmission(String sid) {
-        return get(buildUri(SUBMISSION_URL, sid), new ParameterizedTypeReference<>() {
+        return get(AssemblylineEndpoint.SUBMISSION, buildUri(SUBMISSION_PATH, sid), ApiResponseTypes.SUBMISSION);
+    }
+
+    /**
+     * Waits for a submission to complete, checking often at first and then less and less often. Checks made by all
+     * waiting submissions together are limited by {@code await-completion.max-polls-per-second}, and their delays all
+     * run on Reactor's shared parallel scheduler.
+     *
+     * @param sid     ID of the submission
+     * @param options Polling intervals and timeout
+     * @return The completed submission, or a {@link SubmissionTimeoutException} if it did not complete in time.
+     */
+    @Override
+    public Mono<Submission> awaitCompletion(String sid, AwaitOptions options) {
+        return Mono.defer(() -> {
+            AtomicReference<Duration> interval = new AtomicReference<>();
+            Mono<Boolean> poll = submissionPollBudget.acquire()
+                    .then(isSubmissionComplete(sid))
+                    .retryWhen(Retry.backoff(Long.MAX_VALUE, options.getInitialInterval())
+                            .maxBackoff(options.getMaxInterval())
+                            .jitter(options.getJitter())
+                            .filter(AssemblylineClient::isTransientFailure));
+            return poll
+                    .filter(Boolean::booleanValue)
+                    .repeatWhenEmpty(Integer.MAX_VALUE, emptyPolls -> emptyPolls.concatMap(attempt -> {
+                        Duration delay = nextAwaitInterval(interval.get(), options);
+                        interval.set(delay);
+                        return Mono.delay(jittered(delay, options.getJitter()), Schedulers.parallel());
+                    }))
+                    .flatMap(complete -> getSubmission(sid))
+                    .timeout(options.getTimeout(),
+                            Mono.error(() -> new SubmissionTimeoutException(sid, options.getTimeout())));
         });
     }
 
+    /**
+     * Waits for many submissions to complete. Submissions are emitted as they complete. A submission that fails or
+     * times out doesn't stop the others; the errors are reported once all other submissions have been emitted.
+     *
+     * @param sids    IDs of the submissions
+     * @param options Polling intervals and timeout, for each submission
+     * @return The completed submissions
+     * @see #awaitCompletion(String, AwaitOptions)
+     */
+    @Override
+    public Flux<Submission> awaitCompletion(Publisher<String> sids, AwaitOptions options) {
+        // All submissions are waited on at once; the poll budget, not the concurrency here, limits the request rate.
+        return Flux.from(sids)
+                .flatMapDelayError(sid -> awaitCompletion(sid, options), Integer.MAX_VALUE, 1);
+    }
+
+    private static Duration nextAwaitInterval(Duration previous, AwaitOptions options) {
+        if (previous == null) {
+            return options.getInitialInterval();
+        }
+        Duration doubled = previous.multipliedBy(2);
+        return doubled.compareTo(options.getMaxInterval()) > 0 ? options.getMaxInterval() : doubled;
+    }
+
     @Override
     public Mono<SubmissionFull> getSubmissionFull(String sid) {
-        return get(buildUri(SUBMISSION_FULL_URL, sid), new ParameterizedTypeReference<>() {
-        });
+        return get(AssemblylineEndpoint.SUBMISSION_FULL,
+                buildUri(SUBMISSION_FULL_PATH, sid), ApiResponseTypes.SUBMISSION_FULL);
     }
 
     @Override
     public Mono<IngestResponse> ingestUrlOrSha256(NonBinaryIngest ingest) {
 
-        return post(buildUri(INGEST_URL), new ParameterizedTypeReference<>() {
-                },
-                BodyInserters.fromValue(ingest), MediaType.APPLICATION_JSON);
+        return withIdempotencyKey(ingest, post(AssemblylineEndpoint.INGEST, buildUri(INGEST_PATH),
+                ApiResponseTypes.INGEST,
+                BodyInserters.fromValue(ingest), MediaType.APPLICATION_JSON));
 
     }
 
     @Override
     public Mono<IngestResponse> ingestBinary(BinaryFile<IngestBase> binaryIngest) {
-        return ingestBinary(() -> this.multipartInserterFromBinaryIngest(binaryIngest));
-
+        Mono<IngestResponse> upload = withIdempotencyKey(binaryIngest.getMetadata(),
+                ingestBinary(() -> this.multipartInserterFromBinaryIngest(binaryIngest)));
+        if (!hashFirstIngest) {
+            return upload;
+        }
+        return Mono.fromCallable(() -> Sha256Digest.of(binaryIngest.getFile()))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(sha256 -> ingestHashFirst(sha256, binaryIngest.getMetadata(), binaryIngest.getFilename(),
+                        upload));
     }
 
     @Override
     public Mono<IngestResponse> ingestAsyncBinary(AsyncBinaryFile<IngestBase> asyncBinaryIngest) {
-        return ingestBinary(() -> this.multipartInserterFromAsyncBinaryIngest(asyncBinaryIngest));
+        return withSingleUseBody(withIdempotencyKey(asyncBinaryIngest.getMetadata(),
+                ingestBinary(() -> this.multipartInserterFromAsyncBinaryIngest(asyncBinaryIngest))));
+    }
+
+    @Override
+    public Mono<IngestResponse> ingestPathBinary(PathBinaryFile<IngestBase> pathBinaryIngest) {
+        Mono<IngestResponse> upload = withIdempotencyKey(pathBinaryIngest.getMetadata(),
+                ingestBinary(() -> this.multipartInserterFromPathBinaryIngest(pathBinaryIngest)));
+        if (!hashFirstIngest) {
+            return upload;
+        }
+        String filename = pathBinaryIngest.getFilename() != null
+                ? pathBinaryIngest.getFilename()
+                : pathBinaryIngest.getFile().getFileName().toString();
+        return Sha256Digest.of(pathBinaryIngest.getFile())
+                .flatMap(sha256 -> ingestHashFirst(sha256, pathBinaryIngest.getMetadata(), filename, upload));
+    }
+
+    /**
+     * Ingests a file by SHA256 if AssemblyLine already has it, and uploads it otherwise.
+     *
+     * @param sha256   SHA256 of the file, computed locally.
+     * @param metadata Ingestion metadata for the file.
+     * @param filename Name of the file.
+     * @param upload   Uploads the file, if needed.
+     * @return The ingest response.
+     */
+    private Mono<IngestResponse> ingestHashFirst(String sha256, IngestBase metadata, String filename,
+                                                 Mono<IngestResponse> upload) {
+        return isFileKnown(sha256)
+                .flatMap(known -> known
+                        ? ingestUrlOrSha256(sha256IngestFromMetadata(sha256, metadata, filename))
+                        // The file may have expired from AssemblyLine since we last saw it.
+                        .onErrorResume(WebClientResponseException.NotFound.class, e -> {
+                            knownFiles.remove(sha256);
+                            return upload;
+                        })
+                        : upload)
+                .doOnSuccess(response -> knownFiles.add(sha256));
+    }
+
+    private Mono<Boolean> isFileKnown(String sha256) {
+        if (knownFiles.contains(sha256)) {
+            return Mono.just(true);
+        }
+        return getFileInfo(sha256)
+                .map(fileInfo -> true)
+                /* A 404 means AssemblyLine doesn't have the file. For other client errors (e.g. no permission to read
+                file info), uploading is still the safe choice. */
+                .onErrorResume(WebClientResponseException.class,
+                        e -> e.getStatusCode().is4xxClientError() ? Mono.just(false) : Mono.error(e))
+                .defaultIfEmpty(false);
+    }
+
+    private static Sha256Ingest sha256IngestFromMetadata(String sha256, IngestBase metadata, String filename) {
+        IngestBase base = metadata != null ? metadata : new IngestBase();
+        return Sha256Ingest.builder()
+                .sha256(sha256)
+                /* For a binary upload, AssemblyLine names the file after the multipart filename unless the metadata
+                names it explicitly; keep that behaviour. */
+                .name(base.getName() != null ? base.getName() : filename)
+                .metadata(base.getMetadata())
+                .params(base.getParams())
+                .submissionProfile(base.getSubmissionProfile())
+                .generateAlert(base.getGenerateAlert())
+                .notificationQueue(base.getNotificationQueue())
+                .notificationThreshold(base.getNotificationThreshold())
+                .build();
     }
 
     private Mono<IngestResponse> ingestBinary(Callable<BodyInserters.MultipartInserter> bodyInserter) {
         return Mono.fromCallable(bodyInserter)
                 .subscribeOn(Schedulers.boundedElastic())
-                .flatMap(multipartInserter -> post(buildUri(INGEST_URL), new ParameterizedTypeReference<>() {
-                        },
+                .flatMap(multipartInserter -> post(AssemblylineEndpoint.INGEST,
+                        buildUri(INGEST_PATH), ApiResponseTypes.INGEST,
                         multipartInserter, MediaType.MULTIPART_FORM_DATA));
 
     }
 
+    /**
+     * Ingests a stream of binary files, with a bounded number of requests in flight.
+     *
+     * @param files   Files to ingest. Files are requested from this publisher as earlier requests complete.
+     * @param options Concurrency, ordering and retry options.
+     * @return One outcome per file. A file that fails produces a failed outcome instead of terminating the stream.
+     */
+    @Override
+    public Flux<IngestOutcome<AsyncBinaryFile<IngestBase>>> ingestAll(Publisher<AsyncBinaryFile<IngestBase>> files,
+                                                                      BulkIngestOptions options) {
+        return ingestAll(files, options, this::ingestAsyncBinary,
+                file -> new RetryPolicy.Safety(hasIdempotencyKey(file.getMetadata()), true));
+    }
+
+    /**
+     * Ingests a stream of URLs or SHA256s, with a bounded number of requests in flight.
+     *
+     * @param ingests Items to ingest. Items are requested from this publisher as earlier requests complete.
+     * @param options Concurrency, ordering and retry options.
+     * @return One outcome per item. An item that fails produces a failed outcome instead of terminating the stream.
+     */
+    @Override
+    public Flux<IngestOutcome<NonBinaryIngest>> ingestAllUrlOrSha256(Publisher<? extends NonBinaryIngest> ingests,
+                                                                     BulkIngestOptions options) {
+        return ingestAll(Flux.<NonBinaryIngest>from(ingests), options, this::ingestUrlOrSha256,
+                ingest -> new RetryPolicy.Safety(hasIdempotencyKey(ingest), false));
+    }
+
+    /**
+     * @param safety How safe it is to ingest an item again. Ingest is not idempotent, so an item is only retried if
+     *               the {@link RetryPolicy} would retry its request, e.g. not after a read timeout or a 500, which
+     *               may come after AssemblyLine already received the item.
+     */
+    private <T> Flux<IngestOutcome<T>> ingestAll(Publisher<T> items, BulkIngestOptions options,
+                                                 Function<T, Mono<IngestResponse>> ingest,
+                                                 Function<T, RetryPolicy.Safety> safety) {
+        Function<T, Mono<IngestOutcome<T>>> ingestOne = item -> ingest.apply(item)
+                .retryWhen(Retry.backoff(options.getMaxRetries(), options.getRetryBackoff())
+                        .filter(safety.apply(item)::allowsRetryOf)
+                        // Report the error from the last attempt rather than a generic "retries exhausted" error.
+                        .onRetryExhaustedThrow((spec, signal) -> signal.failure()))
+                .map(response -> IngestOutcome.<T>builder().item(item).response(response).build())
+                .onErrorResume(e -> Mono.just(IngestOutcome.<T>builder().item(item).error(e).build()));
+
+        /* Both operators only request as many items from the source as there are free slots, which gives us
+        backpressure. flatMapSequential holds completed outcomes until the ones before them are done. */
+        return options.isOrdered()
+                ? Flux.from(items).flatMapSequential(ingestOne, options.getMaxInFlight())
+                : Flux.from(items).flatMap(ingestOne, options.getMaxInFlight());
+    }
+
+    /**
+     * Only for idempotent requests, such as polls; see {@link RetryPolicy.Safety} for the others.
+     *
+     * @return true if the error is worth retrying: the request failed without a response, or AssemblyLine (or a load
+     * balancer in front of it) reported a temporary problem.
+     */
+    static boolean isTransientFailure(Throwable throwable) {
+        if (throwable instanceof WebClientRequestException) {
+            return true;
+        }
+        return throwable instanceof WebClientResponseException e
+                && (e.getStatusCode().is5xxServerError() || e.getStatusCode().value() == 429);
+    }
+
     @Override
     public Flux<IngestSubmissionResponse> getIngestMessageList(String notification) {
+        /* A batch of messages can be large, so the messages are decoded and emitted one at a time as the response
+        arrives instead of waiting for (and buffering) the whole list. maxInMemorySize applies to each message. */
+        return this.retryWrapper(webClient.get()
+                .uri(buildUri(INGEST_GET_MESSAGE_LIST_PATH, notification))
+                .attribute(AssemblylineEndpoint.ATTRIBUTE, AssemblylineEndpoint.INGEST_MESSAGE_LIST)
+                .headers(this::addAuthBearerHeader)
+                .accept(MediaType.APPLICATION_JSON)
+                .exchangeToFlux(cr -> this.checkForException(cr)
+                        .flatMapMany(c -> ApiResponseArrayDecoder.decode(c.body(BodyExtractors.toDataBuffers()),
+                                mapper, IngestSubmissionResponse.class, maxInMemorySize))));
+    }
 
-        return get(buildUri(INGEST_GET_MESSAGE_LIST_URL, notification),
-                new ParameterizedTypeReference<AssemblylineApiResponse<List<IngestSubmissionResponse>>>() {
-                })
-                .flatMapMany(Flux::fromIterable);
+    /**
+     * Continuously reads a notification queue. The queue is polled again immediately after a non-empty batch, and
+     * with an increasing, jittered delay after empty ones. Polls are only sent while there is downstream demand.
+     *
+     * @param notificationQueue Name of the notification queue.
+     * @param options           Number of pollers and backoff settings.
+     * @return An endless stream of messages from the queue. Transient polling errors are retried with backoff; other
+     * errors terminate the stream.
+     * @see #getIngestMessageStreamStats(String)
+     */
+    @Override
+    public Flux<IngestSubmissionResponse> streamIngestMessages(String notificationQueue,
+                                                               IngestMessageStreamOptions options) {
+        IngestMessageStreamStats stats = getIngestMessageStreamStats(notificationQueue);
+        // Each poller holds at most one batch, so only request one message at a time from each.
+        return Flux.range(0, options.getPollers())
+                .flatMap(poller -> pollIngestMessages(notificationQueue, options, stats), options.getPollers(), 1);
+    }
+
+    /**
+     * @param notificationQueue Name of the notification queue.
+     * @return Counters for all streams reading the given queue through this client.
+     */
+    public IngestMessageStreamStats getIngestMessageStreamStats(String notificationQueue) {
+        return ingestMessageStreamStats.computeIfAbsent(notificationQueue, queue -> new IngestMessageStreamStats());
+    }
+
+    private Flux<IngestSubmissionResponse> pollIngestMessages(String notificationQueue,
+                                                              IngestMessageStreamOptions options,
+                                                              IngestMessageStreamStats stats) {
+        return Flux.defer(() -> {
+            AtomicReference<Duration> backoff = new AtomicReference<>(Duration.ZERO);
+            Mono<List<IngestSubmissionResponse>> poll = getIngestMessageList(notificationQueue)
+                    .collectList()
+                    .retryWhen(Retry.backoff(Long.MAX_VALUE, options.getMinBackoff())
+                            .maxBackoff(options.getMaxBackoff())
+                            .jitter(options.getJitter())
+                            .filter(AssemblylineClient::isTransientFailure))
+                    .doOnNext(stats::recordPoll)
+                    .flatMap(batch -> {
+                        if (!batch.isEmpty()) {
+                            backoff.set(Duration.ZERO);
+                            return Mono.just(batch);
+                        }
+                        Duration delay = nextPollBackoff(backoff.get(), options);
+                        backoff.set(delay);
+                        return Mono.delay(jittered(delay, options.getJitter())).thenReturn(batch);
+                    });
+
+            /* generate() only emits when requested and concatMap() with no prefetch only subscribes to the next poll
+            once the previous one is done and there is demand, so nothing is polled while downstream is busy. */
+            return Flux.<Integer>generate(sink -> sink.next(0))
+                    .concatMap(tick -> poll, 0)
+                    .flatMapIterable(Function.identity(), 1);
+        });
+    }
+
+    private static Duration nextPollBackoff(Duration previous, IngestMessageStreamOptions options) {
+        if (previous.isZero()) {
+            return options.getMinBackoff();
+        }
+        Duration doubled = previous.multipliedBy(2);
+        return doubled.compareTo(options.getMaxBackoff()) > 0 ? options.getMaxBackoff() : doubled;
+    }
 
+    /**
+     * @return The given delay, with a random fraction of up to {@code jitter} of it removed.
+     */
+    static Duration jittered(Duration delay, double jitter) {
+        long millis = delay.toMillis();
+        long jitterMillis = (long) (millis * jitter * ThreadLocalRandom.current().nextDouble());
+        return Duration.ofMillis(millis - jitterMillis);
     }
 
     @Override
     public Mono<Submission> submitUrlOrSha256(NonBinarySubmit submit) {
 
-        return post(buildUri(SUBMIT_URL), new ParameterizedTypeReference<>() {
-                },
-                BodyInserters.fromValue(submit), MediaType.APPLICATION_JSON);
+        return withIdempotencyKey(submit, post(AssemblylineEndpoint.SUBMIT, buildUri(SUBMIT_PATH),
+                ApiResponseTypes.SUBMISSION,
+                BodyInserters.fromValue(submit), MediaType.APPLICATION_JSON));
 
     }
 
     @Override
     public Mono<Submission> submitBinary(BinaryFile<SubmitMetadata> binaryIngest) {
-        return submitBinary(() -> this.multipartInserterFromBinaryIngest(binaryIngest));
+        return withIdempotencyKey(binaryIngest.getMetadata(),
+                submitBinary(() -> this.multipartInserterFromBinaryIngest(binaryIngest)));
     }
 
     @Override
     public Mono<Submission> submitAsyncBinary(AsyncBinaryFile<SubmitMetadata> binaryIngest) {
-        return submitBinary(() -> this.multipartInserterFromAsyncBinaryIngest(binaryIngest));
+        return withSingleUseBody(withIdempotencyKey(binaryIngest.getMetadata(),
+                submitBinary(() -> this.multipartInserterFromAsyncBinaryIngest(binaryIngest))));
+    }
+
+    @Override
+    public Mono<Submission> submitPathBinary(PathBinaryFile<SubmitMetadata> pathBinaryIngest) {
+        return withIdempotencyKey(pathBinaryIngest.getMetadata(),
+                submitBinary(() -> this.multipartInserterFromPathBinaryIngest(pathBinaryIngest)));
+    }
+
+    /**
+     * Marks the request as safe to retry if its metadata contains an idempotency key.
+     */
+    private <T> Mono<T> withIdempotencyKey(SubmitBase submission, Mono<T> request) {
+        if (!hasIdempotencyKey(submission)) {
+            return request;
+        }
+        return request.contextWrite(context -> context.put(RetryPolicy.IDEMPOTENT_CONTEXT_KEY, true));
+    }
+
+    private boolean hasIdempotencyKey(SubmitBase submission) {
+        return submission != null && submission.getMetadata() != null
+                && submission.getMetadata().containsKey(idempotencyKeyMetadata);
+    }
+
+    /**
+     * Marks the request as having a body that can only be written once, such as one read from a publisher.
+     */
+    private static <T> Mono<T> withSingleUseBody(Mono<T> request) {
+        return request.contextWrite(context -> context.put(RetryPolicy.SINGLE_USE_BODY_CONTEXT_KEY, true));
     }
 
     private Mono<Submission> submitBinary(Callable<BodyInserters.MultipartInserter> bodyInserter) {
         return Mono.fromCallable(bodyInserter)
                 .subscribeOn(Schedulers.boundedElastic())
-                .flatMap(multipartInserter -> post(buildUri(SUBMIT_URL), new ParameterizedTypeReference<>() {
-                        },
+                .flatMap(multipartInserter -> post(AssemblylineEndpoint.SUBMIT,
+                        buildUri(SUBMIT_PATH), ApiResponseTypes.SUBMISSION,
                         multipartInserter, MediaType.MULTIPART_FORM_DATA));
     }
 
-    private Flux<DataBuffer> downloadFileAsFlux(String sha256, DownloadFileParams params) {
-        return webClient.get()
+    @Override
+    public Flux<DataBuffer> downloadFileAsFlux(String sha256, DownloadFileParams params) {
+        Flux<DataBuffer> download = webClient.get()
                 .uri(uriBuilder -> {
                     uriBuilder.path(FILE_DOWNLOAD_URL)
                             .queryParam("encoding", params.getEncoding().name().toLowerCase());
@@ -328,14 +999,12 @@ public class AssemblylineClient implements IAssemblylineClient {
 
                     return uriBuilder.build(sha256);
                 })
+                .attribute(AssemblylineEndpoint.ATTRIBUTE, AssemblylineEndpoint.FILE_DOWNLOAD)
                 .headers(this::addAuthBearerHeader)
                 .exchangeToFlux(cr ->
                         this.checkForException(cr)
-                                .flatMapMany(c -> c.body(BodyExtractors.toDataBuffers())))
-                .retryWhen(Retry.max(1)
-                        .filter(throwable -> throwable instanceof WebClientResponseException.Unauthorized)
-                        .doBeforeRetryAsync(retrySignal ->
-                                this.login().then()));
+                                .flatMapMany(c -> c.body(BodyExtractors.toDataBuffers())));
+        return this.retryWrapper(download);
     }
 
     @Override
@@ -345,55 +1014,49 @@ public class AssemblylineClient implements IAssemblylineClient {
 
     @Override
     public InputStream downloadFile(String sha256, DownloadFileParams params) {
-        PipedOutputStream writablePipeEnd = new PipedOutputStream();
-        /* We need an effectively-final variable for use in lambdas, so we need a temporary variable for use in a try
-        block that can then be assigned to an effectively-final variable. */
-        PipedInputStream tmp;
-        try {
-            tmp = new PipedInputStream(writablePipeEnd);
-        } catch (IOException e) {
-            throw new IllegalStateException("Failed to set up piped streams.", e);
-        }
-        PipedInputStream readablePipeEnd = tmp;
-
-        // This lambda is used twice, so it's a bit nicer to store it in a variable instead of defining it in line.
-        Consumer<? super Throwable> handleError = throwable -> {
-            log.error("Error encountered while reading response body.", throwable);
-
-            // An error occurred, so we need to close the InputStream to "notify"/un-block the thread reading the InputStream.
-            try {
-                readablePipeEnd.close();
-            } catch (IOException ioe) {
-                log.error("Failed to close PipedInputStream.", ioe);
-            }
-        };
-
-        Flux<DataBuffer> bufferFlux = downloadFileAsFlux(sha256, params)
-                .doOnError(handleError)
-                .doFinally(signalType -> {
-                    //Once all the DataBuffers have been read, close the PipedOutputStream to send EOF to the PipedInputStream.
-                    try {
-                        writablePipeEnd.close();
-                    } catch (IOException ioe) {
-                        log.error("Failed to close PipedOutputStream.", ioe);
-                    }
-                });
+        /* Errors are reported to the reader as an IOException once it has read everything received before the error.
+        Closing the stream early cancels the download. */
+        return new DataBufferInputStream(downloadFileAsFlux(sha256, params), downloadBufferSize);
+    }
 
-        DataBufferUtils.write(bufferFlux, writablePipeEnd)
-                .doOnError(handleError)
-                /* We need this subscribe() for two reasons:
-                 *   1. The write() won't actually start until it is subscribed to.
-                 *   2. write() does not release the DataBuffers, so we need to do that ourselves.
-                 */
-                .subscribe(DataBufferUtils.releaseConsumer());
+    @Override
+    public Mono<DownloadResult> downloadTo(Path destination, String sha256) {
+        return downloadTo(destination, sha256, DownloadFileParams.builder().build());
+    }
 
-        return readablePipeEnd;
+    @Override
+    public Mono<DownloadResult> downloadTo(Path destination, String sha256, DownloadFileParams params) {
+        return Mono.defer(() -> {
+            Sha256Digest digest = new Sha256Digest();
+            AtomicLong size = new AtomicLong();
+            Flux<DataBuffer> download = downloadFileAsFlux(sha256, params)
+                    .doOnNext(dataBuffer -> {
+                        size.addAndGet(dataBuffer.readableByteCount());
+                        digest.update(dataBuffer);
+                    });
+
+            // DataBufferUtils.write() writes through an AsynchronousFileChannel and releases the buffers.
+            return DataBufferUtils.write(download, destination)
+                    .then(Mono.fromCallable(() -> DownloadResult.builder()
+                            .path(destination)
+                            .size(size.get())
+                            .sha256(digest.hex())
+                            .build()))
+                    // Don't leave a partial file behind that could be mistaken for a complete download.
+                    .onErrorResume(e -> Mono.fromCallable(() -> Files.deleteIfExists(destination))
+                            .subscribeOn(Schedulers.boundedElastic())
+                            .onErrorResume(deleteError -> {
+                                log.warn("Failed to delete partial download {}.", destination, deleteError);
+                                return Mono.empty();
+                            })
+                            .then(Mono.error(e)));
+        });
     }
 
     @Override
     public Mono<List<String>> getHashSearchDataSources() {
-        return get(buildUri(HASH_SEARCH_LIST_DATA_SOURCES), new ParameterizedTypeReference<>() {
-        });
+        return get(AssemblylineEndpoint.HASH_SEARCH_DATA_SOURCES,
+                buildUri(HASH_SEARCH_DATA_SOURCES_PATH), ApiResponseTypes.HASH_SEARCH_DATA_SOURCES);
     }
 
     /**
@@ -416,8 +1079,8 @@ public class AssemblylineClient implements IAssemblylineClient {
         if (maxTimeout != null) {
             params.put("max_timeout", maxTimeout.toString());
         }
-        return get(buildUriWithParams(HASH_SEARCH, params, fileHash), new ParameterizedTypeReference<>() {
-        });
+        return get(AssemblylineEndpoint.HASH_SEARCH,
+                buildUriWithParams(HASH_SEARCH, params, fileHash), ApiResponseTypes.HASH_SEARCH);
     }
 
     /**
@@ -432,19 +1095,137 @@ public class AssemblylineClient implements IAssemblylineClient {
         return hashSearch(fileHash, null, null);
     }
 
+    /**
+     * @return The session cookie of the first node, the one {@link #login()} logs in to.
+     */
+    @Override
+    public String getSession() {
+        return primarySession.getCookie();
+    }
+
+    /**
+     * @return The number of logins performed by the client itself, either because a request was rejected with a 401
+     * or to refresh the session before it expires, over all nodes.
+     */
+    public long getLoginCount() {
+        return nodes.getNodes().stream().mapToLong(node -> node.getSession().getLoginCount()).sum();
+    }
+
+    /**
+     * @return The number of requests rejected with a 401 that waited on (or reused the result of) another request's
+     * login instead of logging in themselves, over all nodes.
+     */
+    public long getCoalescedLoginCount() {
+        return nodes.getNodes().stream().mapToLong(node -> node.getSession().getCoalescedLoginCount()).sum();
+    }
+
+    /**
+     * @return Counters for each node, in the order of the urls property, or an empty list if there is only one node.
+     */
+    public List<NodeStats> getNodeStats() {
+        return nodes.isSingleNode() ? List.of() : nodes.getNodes().stream().map(AssemblylineNode::getStats).toList();
+    }
+
+    /**
+     * @return The number of GET requests that were answered by an identical request already in flight, if
+     * {@code coalesce-requests} is enabled.
+     */
+    public long getCoalescedRequestCount() {
+        return coalescedRequestCount.get();
+    }
+
+    /**
+     * Stops the background session refresh, if enabled. Copies made by {@link #withAuthBearerToken(String)} share
+     * their session with the original client, so closing any of them stops the refresh for all of them.
+     */
+    @Override
+    public void close() {
+        nodes.getNodes().forEach(node -> node.getSession().close());
+    }
+
+    /**
+     * Sets the session cookie of the first node from a response, if it has one.
+     */
     protected void setSession(ClientResponse clientResponse) {
+        setSession(clientResponse, primarySession);
+    }
+
+    /**
+     * Sets the session cookie of the first node, for subclasses that used to assign the former {@code session} field.
+     *
+     * @param session The session cookie.
+     * @deprecated The client manages the session cookie itself, logging in again when it is rejected or about to
+     * expire.
+     */
+    @Deprecated
+    protected void setSession(String session) {
+        primarySession.setCookie(session);
+    }
+
+    /**
+     * Adds the session cookie of the node a request was sent to, as the request is sent.
+     */
+    private static void addSessionCookie(HttpClientRequest request) {
+        String cookie = request.currentContextView().getOrDefault(SESSION_COOKIE_CONTEXT_KEY, null);
+        if (cookie != null) {
+            request.addCookie(new DefaultCookie(SESSION_COOKIE, cookie));
+        }
+    }
+
+    private static void setSession(ClientResponse clientResponse, AssemblylineSession nodeSession) {
         Optional.ofNullable(clientResponse.cookies().get(SESSION_COOKIE))
                 .flatMap(sessionCookie -> sessionCookie.stream().findFirst()
                         .map(HttpCookie::getValue))
-                .ifPresent(s -> session = s);
+                .ifPresent(nodeSession::setCookie);
     }
 
+    /**
+     * Retries the request once if it was rejected with a 401, on the same node. All requests to a node that are
+     * rejected at the same time share a single login.
+     *
+     * @param monoContent The request to send.
+     * @param <T>         The type of data returned by the request.
+     * @return The result of the request, or of its retry.
+     */
     protected <T> Mono<T> retryWrapper(Mono<T> monoContent) {
-        return monoContent
-                .retryWhen(Retry.max(1)
-                        .filter(throwable -> throwable instanceof WebClientResponseException.Unauthorized)
-                        .doBeforeRetryAsync(retrySignal ->
-                                this.login().then()));
+        return Mono.defer(() -> {
+            NodeSelection selection = new NodeSelection(null);
+            return monoContent.onErrorResume(WebClientResponseException.Unauthorized.class,
+                            e -> reauthenticate(selection).then(monoContent
+                                    .contextWrite(context -> context
+                                            .put(RETRY_ATTEMPT_CONTEXT_KEY, 1)
+                                            .put(NODE_SELECTION_CONTEXT_KEY, new NodeSelection(selection.getNode())))))
+                    .contextWrite(context -> context.put(NODE_SELECTION_CONTEXT_KEY, selection));
+        });
+    }
+
+    /**
+     * Same as {@link #retryWrapper(Mono)}, for requests with a streamed response body. A 401 is always received
+     * before any of the body, so retrying never duplicates elements.
+     *
+     * @param fluxContent The request to send.
+     * @param <T>         The type of data returned by the request.
+     * @return The result of the request, or of its retry.
+     */
+    protected <T> Flux<T> retryWrapper(Flux<T> fluxContent) {
+        return Flux.defer(() -> {
+            NodeSelection selection = new NodeSelection(null);
+            return fluxContent.onErrorResume(WebClientResponseException.Unauthorized.class,
+                            e -> reauthenticate(selection).thenMany(fluxContent
+                                    .contextWrite(context -> context
+                                            .put(RETRY_ATTEMPT_CONTEXT_KEY, 1)
+                                            .put(NODE_SELECTION_CONTEXT_KEY, new NodeSelection(selection.getNode())))))
+                    .contextWrite(context -> context.put(NODE_SELECTION_CONTEXT_KEY, selection));
+        });
+    }
+
+    /**
+     * Logs in again to the node that rejected a request with a 401, unless someone else already did since the request
+     * was sent.
+     */
+    private Mono<Void> reauthenticate(NodeSelection selection) {
+        AssemblylineNode node = selection.getNode();
+        return node.getSession().reauthenticate(selection.getGeneration(), () -> login(node));
     }
 
     private Mono<ClientResponse> checkForException(ClientResponse rc) {
@@ -467,7 +1248,6 @@ public class AssemblylineClient implements IAssemblylineClient {
                     .flatMap(Mono::error)
                     );
         }
-        this.setSession(rc);
         return Mono.just(rc);
     }
 
@@ -499,11 +1279,75 @@ public class AssemblylineClient implements IAssemblylineClient {
      */
     protected <T> Mono<T> get(Function<UriBuilder, URI> uriBuilder,
                               ParameterizedTypeReference<AssemblylineApiResponse<T>> responseType) {
-        return this.retryWrapper(webClient.get()
-                .uri(uriBuilder)
+        return get(null, uriBuilder, responseType);
+    }
+
+    /**
+     * Same as {@link #get(Function, ParameterizedTypeReference)}, for a request to a known endpoint.
+     *
+     * @param <T>          The type of data that will be in the response.
+     * @param endpoint     The endpoint of the request, added to it as a request attribute. May be null.
+     * @param uriBuilder   UriBuilder that will generate the URI to GET.
+     * @param responseType A parameterized type reference representing the type of data that will be in the response.
+     * @return The content of the "api_response" section of the response.
+     */
+    protected <T> Mono<T> get(AssemblylineEndpoint endpoint, Function<UriBuilder, URI> uriBuilder,
+                              ParameterizedTypeReference<AssemblylineApiResponse<T>> responseType) {
+        return get(endpoint, uriBuilder.apply(uriBuilderFactory.builder()), responseType);
+    }
+
+    private <T> Mono<T> get(AssemblylineEndpoint endpoint, URI uri,
+                            ParameterizedTypeReference<AssemblylineApiResponse<T>> responseType) {
+        Mono<T> request = this.retryWrapper(webClient.get()
+                .uri(uri)
+                .attributes(attributes -> addEndpoint(attributes, endpoint))
                 .headers(this::addAuthBearerHeader)
                 .accept(MediaType.APPLICATION_JSON)
                 .exchangeToMono(cr -> this.clientResponseToMono(cr, responseType)));
+        if (!coalesceRequests) {
+            return request;
+        }
+        return coalesce(new InFlightRequestKey(uri, authBearerToken, responseType.getType()), request);
+    }
+
+    /**
+     * Same as {@link #get(AssemblylineEndpoint, URI, ParameterizedTypeReference)}, without decoding the body.
+     */
+    private Mono<byte[]> getBody(AssemblylineEndpoint endpoint, URI uri) {
+        Mono<byte[]> request = this.retryWrapper(webClient.get()
+                .uri(uri)
+                .attributes(attributes -> addEndpoint(attributes, endpoint))
+                .headers(this::addAuthBearerHeader)
+                .accept(MediaType.APPLICATION_JSON)
+                .exchangeToMono(cr -> this.checkForException(cr)
+                        .flatMap(c -> c.bodyToMono(byte[].class))));
+        if (!coalesceRequests) {
+            return request;
+        }
+        return coalesce(new InFlightRequestKey(uri, authBearerToken, byte[].class), request);
+    }
+
+    /**
+     * Shares a single exchange between all concurrent subscribers to identical requests. Every subscriber receives the
+     * same decoded response, or the same error, including subscribers that join after it was received but before the
+     * exchange was removed from the in-flight requests. A subscriber that cancels only stops waiting; the exchange
+     * itself is cancelled once every subscriber has cancelled. Requests made after the exchange has finished start a
+     * new one.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> Mono<T> coalesce(InFlightRequestKey key, Mono<T> request) {
+        return Mono.defer(() -> {
+            AtomicReference<SharedExchange<T>> created = new AtomicReference<>();
+            SharedExchange<?> shared = inFlightRequests.computeIfAbsent(key, k -> {
+                SharedExchange<T> newShared = new SharedExchange<>(request, self -> inFlightRequests.remove(k, self));
+                created.set(newShared);
+                return newShared;
+            });
+            if (shared != created.get()) {
+                coalescedRequestCount.incrementAndGet();
+            }
+            return ((SharedExchange<T>) shared).join();
+        });
     }
 
     /**
@@ -525,8 +1369,35 @@ public class AssemblylineClient implements IAssemblylineClient {
                                ParameterizedTypeReference<AssemblylineApiResponse<T>> responseType,
                                BodyInserter<?, ? super ClientHttpRequest> bodyInserter,
                                MediaType contentType) {
+        return post(null, uriBuilder, responseType, bodyInserter, contentType);
+    }
+
+    /**
+     * Same as {@link #post(Function, ParameterizedTypeReference, BodyInserter, MediaType)}, for a request to a known
+     * endpoint.
+     *
+     * @param <T>          The type of data that will be in the response.
+     * @param endpoint     The endpoint of the request, added to it as a request attribute. May be null.
+     * @param uriBuilder   UriBuilder that will generate the URI to POST.
+     * @param responseType A parameterized type reference representing the type of data that will be in the response.
+     * @param bodyInserter BodyInserter to construct the body of the Post Request
+     * @param contentType  MediaType of the request body
+     * @return The content of the "api_response" section of the response.
+     */
+    protected <T> Mono<T> post(AssemblylineEndpoint endpoint, Function<UriBuilder, URI> uriBuilder,
+                               ParameterizedTypeReference<AssemblylineApiResponse<T>> responseType,
+                               BodyInserter<?, ? super ClientHttpRequest> bodyInserter,
+                               MediaType contentType) {
+        return post(endpoint, uriBuilder.apply(uriBuilderFactory.builder()), responseType, bodyInserter, contentType);
+    }
+
+    private <T> Mono<T> post(AssemblylineEndpoint endpoint, URI uri,
+                             ParameterizedTypeReference<AssemblylineApiResponse<T>> responseType,
+                             BodyInserter<?, ? super ClientHttpRequest> bodyInserter,
+                             MediaType contentType) {
         return this.retryWrapper(webClient.post()
-                .uri(uriBuilder)
+                .uri(uri)
+                .attributes(attributes -> addEndpoint(attributes, endpoint))
                 .contentType(contentType)
                 .headers(this::addAuthBearerHeader)
                 .body(bodyInserter)
@@ -535,16 +1406,14 @@ public class AssemblylineClient implements IAssemblylineClient {
     }
 
     /**
-     * Helper to build URIs.
-     * <p>
-     * Given the return type, the name of this method may be a little surprising, but it should help with readability at call sites.
+     * Helper to build URIs, on the base URL of the first node.
      *
      * @param pathTemplate Template for the path in the URI.
      * @param args         Values to substitute into the template
-     * @return A UriBuilder
+     * @return The URI
      */
-    private Function<UriBuilder, URI> buildUri(String pathTemplate, Object... args) {
-        return buildUriWithParams(pathTemplate, null, args);
+    private URI buildUri(PathTemplate pathTemplate, Object... args) {
+        return pathTemplate.expand(nodes.getPrimary().getBaseUrl(), args);
     }
 
     /**
@@ -595,6 +1464,25 @@ public class AssemblylineClient implements IAssemblylineClient {
         return BodyInserters.fromMultipartData(mbb.build());
     }
 
+    private BodyInserters.MultipartInserter multipartInserterFromPathBinaryIngest(PathBinaryFile<?> binaryFile) throws JsonProcessingException {
+        /* The file is only opened once the request body is written. Spring then reads it in chunks into buffers from
+        the connector's (pooled) buffer factory, so the file is never held in memory as a whole. */
+        FileSystemResource resource = new FileSystemResource(binaryFile.getFile());
+        String filename = binaryFile.getFilename() != null ? binaryFile.getFilename() : resource.getFilename();
+        MultipartBodyBuilder mbb = new MultipartBodyBuilder();
+        mbb.part(MULTIPART_MSG_BINARY_PART, resource)
+                .filename(filename)
+                .contentType(MediaType.APPLICATION_OCTET_STREAM);
+        mbb.part(MULTIPART_MSG_JSON_PART, mapper.writeValueAsString(binaryFile.getMetadata()));
+        return BodyInserters.fromMultipartData(mbb.build());
+    }
+
+    private static void addEndpoint(Map<String, Object> attributes, AssemblylineEndpoint endpoint) {
+        if (endpoint != null) {
+            attributes.put(AssemblylineEndpoint.ATTRIBUTE, endpoint);
+        }
+    }
+
     private void addAuthBearerHeader(HttpHeaders httpHeaders) {
         if (authBearerToken != null) {
             httpHeaders.add(HttpHeaders.AUTHORIZATION, "Bearer " + authBearerToken);
@@ -622,4 +1510,98 @@ public class AssemblylineClient implements IAssemblylineClient {
                         .map(AssemblylineApiResponse::getApiResponse));
     }
 
+    /**
+     * An exchange shared by identical requests. It is started by the first subscriber, with that subscriber's context,
+     * and its outcome is replayed to every subscriber, however late it joins.
+     */
+    private static class SharedExchange<T> {
+        private final Mono<T> request;
+        private final Consumer<SharedExchange<T>> onTerminate;
+        private final Sinks.One<T> outcome = Sinks.one();
+
+        /* Guarded by this. */
+        private int subscribers;
+        private Disposable exchange;
+        private boolean cancelled;
+
+        /**
+         * @param request     The request to share.
+         * @param onTerminate Called once the exchange has completed, failed or been cancelled.
+         */
+        SharedExchange(Mono<T> request, Consumer<SharedExchange<T>> onTerminate) {
+            this.request = request;
+            this.onTerminate = onTerminate;
+        }
+
+        Mono<T> join() {
+            return Mono.deferContextual(context -> {
+                synchronized (this) {
+                    if (cancelled) {
+                        // Every earlier subscriber gave up before it finished; this one makes its own exchange.
+                        return request;
+                    }
+                    subscribers++;
+                    if (exchange == null) {
+                        exchange = request
+                                .contextWrite(context)
+                                .doFinally(signal -> onTerminate.accept(this))
+                                .subscribe(outcome::tryEmitValue, outcome::tryEmitError, outcome::tryEmitEmpty);
+                    }
+                }
+                return outcome.asMono().doOnCancel(this::leave);
+            });
+        }
+
+        private synchronized void leave() {
+            if (--subscribers == 0) {
+                cancelled = true;
+                exchange.dispose();
+            }
+        }
+    }
+
+    /**
+     * Identifies requests that can share a single exchange: same URI, same identity, and same response type.
+     */
+    @Value
+    private static class InFlightRequestKey {
+        URI uri;
+        String authBearerToken;
+        Type responseType;
+    }
+
+    /**
+     * The node a request was sent to, and the generation of the node's session at the time, so that a 401 can be
+     * handled by logging in to the same node. Set by the filter that chooses the node of each attempt.
+     */
+    private static class NodeSelection {
+        private final boolean pinned;
+        private volatile AssemblylineNode node;
+        private volatile long generation;
+
+        /**
+         * @param node The node every attempt must be sent to, or null to let the balancer choose.
+         */
+        NodeSelection(AssemblylineNode node) {
+            this.pinned = node != null;
+            this.node = node;
+        }
+
+        boolean isPinned() {
+            return pinned;
+        }
+
+        AssemblylineNode getNode() {
+            return node;
+        }
+
+        long getGeneration() {
+            return generation;
+        }
+
+        void sent(AssemblylineNode node, long generation) {
+            this.node = node;
+            this.generation = generation;
+        }
+    }
 }
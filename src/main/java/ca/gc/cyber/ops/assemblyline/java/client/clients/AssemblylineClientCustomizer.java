@@ -0,0 +1,14 @@
+package ca.gc.cyber.ops.assemblyline.java.client.clients;
+
+/**
+ * Customizes the {@link AssemblylineClient} created by {@code AssemblylineClientConfig}, e.g. to add filters with
+ * {@link AssemblylineClient#addFilter}. Every customizer bean is applied, in their {@code @Order}.
+ */
+@FunctionalInterface
+public interface AssemblylineClientCustomizer {
+
+    /**
+     * @param client The client to customize, before it is made available as a bean.
+     */
+    void customize(AssemblylineClient client);
+}
@@ -0,0 +1,379 @@
+package ca.gc.cyber.ops.assemblyline.java.client.clients;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.reactivestreams.Publisher;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.reactive.ClientHttpRequest;
+import org.springframework.http.client.reactive.ClientHttpRequestDecorator;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Records Micrometer metrics for the requests made by an {@link AssemblylineClient}. Add it to a client with
+ * {@link #instrument(AssemblylineClient)}; {@code AssemblylineClientConfig} does so automatically when there is a
+ * {@link MeterRegistry} bean.
+ * <p>
+ * Every meter is tagged with the {@link AssemblylineEndpoint} of the request rather than its URI, so that SHA256s and
+ * SIDs do not create a new meter per file. Requests that do not carry an endpoint are tagged "other".
+ * <ul>
+ *     <li>{@value #REQUESTS}: Timer, from sending the request until the response body has been read, tagged with
+ *     endpoint, method, status, outcome and retry (0 for the first attempt, 1 for the retry after a 401). A request
+ *     that fails without a response has status IO_ERROR, one that is cancelled before the response has status
+ *     CANCELLED.</li>
+ *     <li>{@value #REQUEST_SIZE}: DistributionSummary of the bytes written in request bodies, by endpoint.</li>
+ *     <li>{@value #RESPONSE_SIZE}: DistributionSummary of the bytes read from response bodies, by endpoint.</li>
+ *     <li>{@value #RETRIES}: Counter of retried requests, by endpoint. Retries of transient failures are tagged with
+ *     their attempt number in {@value #REQUESTS} as well.</li>
+ * </ul>
+ * With {@link #instrument(AssemblylineClient)}, the rate and concurrency limits of the client are also measured, by
+ * group of endpoints:
+ * <ul>
+ *     <li>{@value #LIMITER_WAIT}: FunctionTimer of the requests let through and the time they spent waiting.</li>
+ *     <li>{@value #LIMITER_REJECTED}: FunctionCounter of the requests that failed with a
+ *     {@link RequestLimitExceededException}.</li>
+ *     <li>{@value #LIMITER_LIMIT}, {@value #LIMITER_IN_FLIGHT}, {@value #LIMITER_QUEUED}: Gauges of the current
+ *     concurrency limit, and of the requests in flight and waiting for it.</li>
+ * </ul>
+ * Circuit breakers and bulkheads, if enabled, are measured by group of endpoints as well:
+ * <ul>
+ *     <li>{@value #CIRCUIT_BREAKER_STATE}: Gauge for each state, tagged with state, which is 1 for the current state of
+ *     the breaker and 0 for the others.</li>
+ *     <li>{@value #CIRCUIT_BREAKER_FAILURE_RATE}: Gauge of the failure rate over the sliding window.</li>
+ *     <li>{@value #CIRCUIT_BREAKER_NOT_PERMITTED}: FunctionCounter of the requests that failed with a
+ *     {@link CircuitBreakerOpenException}.</li>
+ *     <li>{@value #BULKHEAD_IN_FLIGHT}: Gauge of the requests in flight under the cap.</li>
+ *     <li>{@value #BULKHEAD_REJECTED}: FunctionCounter of the requests that failed with a
+ *     {@link BulkheadFullException}.</li>
+ * </ul>
+ * If requests are balanced over several nodes, each node is measured, tagged with its base URL:
+ * <ul>
+ *     <li>{@value #NODE_OUTSTANDING}: Gauge of the requests sent to the node whose response bodies have not been read
+ *     yet.</li>
+ *     <li>{@value #NODE_FAILURES}: FunctionCounter of the requests that failed with a 5xx or without a response.</li>
+ *     <li>{@value #NODE_EJECTED}: Gauge that is 1 while the node is ejected, 0 otherwise.</li>
+ * </ul>
+ * If retries are enabled, they are measured too:
+ * <ul>
+ *     <li>{@value #RETRIES_GIVEN_UP}: FunctionCounter of the requests that failed transiently but were not retried,
+ *     tagged with reason: exhausted (out of attempts), budget (retry budget used up) or unsafe (the request may have
+ *     been processed and is not idempotent).</li>
+ *     <li>{@value #RETRY_BUDGET}: Gauge of the tokens left in the retry budget.</li>
+ * </ul>
+ */
+public class AssemblylineClientMetrics implements ExchangeFilterFunction {
+
+    public static final String REQUESTS = "assemblyline.client.requests";
+    public static final String REQUEST_SIZE = "assemblyline.client.request.size";
+    public static final String RESPONSE_SIZE = "assemblyline.client.response.size";
+    public static final String RETRIES = "assemblyline.client.retries";
+    public static final String LIMITER_WAIT = "assemblyline.client.limiter.wait";
+    public static final String LIMITER_REJECTED = "assemblyline.client.limiter.rejected";
+    public static final String LIMITER_LIMIT = "assemblyline.client.limiter.limit";
+    public static final String LIMITER_IN_FLIGHT = "assemblyline.client.limiter.in_flight";
+    public static final String LIMITER_QUEUED = "assemblyline.client.limiter.queued";
+    public static final String CIRCUIT_BREAKER_STATE = "assemblyline.client.circuit_breaker.state";
+    public static final String CIRCUIT_BREAKER_FAILURE_RATE = "assemblyline.client.circuit_breaker.failure_rate";
+    public static final String CIRCUIT_BREAKER_NOT_PERMITTED = "assemblyline.client.circuit_breaker.not_permitted";
+    public static final String BULKHEAD_IN_FLIGHT = "assemblyline.client.bulkhead.in_flight";
+    public static final String BULKHEAD_REJECTED = "assemblyline.client.bulkhead.rejected";
+    public static final String NODE_OUTSTANDING = "assemblyline.client.node.outstanding";
+    public static final String NODE_FAILURES = "assemblyline.client.node.failures";
+    public static final String NODE_EJECTED = "assemblyline.client.node.ejected";
+    public static final String RETRIES_GIVEN_UP = "assemblyline.client.retries.given_up";
+    public static final String RETRY_BUDGET = "assemblyline.client.retries.budget";
+
+    private static final String OTHER_ENDPOINT = "other";
+
+    private final MeterRegistry registry;
+    private final boolean percentileHistogram;
+
+    /**
+     * @param registry Registry to record the metrics in.
+     */
+    public AssemblylineClientMetrics(MeterRegistry registry) {
+        this(registry, false);
+    }
+
+    /**
+     * @param registry            Registry to record the metrics in.
+     * @param percentileHistogram Whether to publish histogram buckets for the timer and the size distributions, for
+     *                            monitoring systems that compute percentiles across instances.
+     */
+    public AssemblylineClientMetrics(MeterRegistry registry, boolean percentileHistogram) {
+        this.registry = registry;
+        this.percentileHistogram = percentileHistogram;
+    }
+
+    /**
+     * Adds this filter to the client, and registers the meters of its rate and concurrency limits, circuit breakers,
+     * bulkheads, nodes and retries.
+     *
+     * @param client The client to instrument.
+     */
+    public void instrument(AssemblylineClient client) {
+        client.addFilter(this);
+        client.getRequestLimiterStats().forEach((group, stats) -> {
+            String groupTag = groupTag(group);
+            FunctionTimer.builder(LIMITER_WAIT, stats, RequestLimiterStats::getAcquired,
+                            s -> s.getTotalWait().toNanos(), TimeUnit.NANOSECONDS)
+                    .description("Requests let through the client's limits, and the time they waited")
+                    .tag("group", groupTag)
+                    .register(registry);
+            FunctionCounter.builder(LIMITER_REJECTED, stats, RequestLimiterStats::getRejected)
+                    .description("Requests not sent because the client's limits were not available in time")
+                    .tag("group", groupTag)
+                    .register(registry);
+            Gauge.builder(LIMITER_LIMIT, stats, RequestLimiterStats::getConcurrencyLimit)
+                    .description("Current concurrency limit")
+                    .tag("group", groupTag)
+                    .register(registry);
+            Gauge.builder(LIMITER_IN_FLIGHT, stats, RequestLimiterStats::getInFlight)
+                    .description("Requests in flight under the concurrency limit")
+                    .tag("group", groupTag)
+                    .register(registry);
+            Gauge.builder(LIMITER_QUEUED, stats, RequestLimiterStats::getQueued)
+                    .description("Requests waiting for the concurrency limit")
+                    .tag("group", groupTag)
+                    .register(registry);
+        });
+        client.getCircuitBreakerStats().forEach((group, stats) -> {
+            String groupTag = groupTag(group);
+            for (CircuitBreakerState state : CircuitBreakerState.values()) {
+                Gauge.builder(CIRCUIT_BREAKER_STATE, stats, s -> s.getState() == state ? 1 : 0)
+                        .description("Whether the circuit breaker is in this state")
+                        .tag("group", groupTag)
+                        .tag("state", state.name().toLowerCase(Locale.ROOT))
+                        .register(registry);
+            }
+            Gauge.builder(CIRCUIT_BREAKER_FAILURE_RATE, stats, CircuitBreakerStats::getFailureRate)
+                    .description("Fraction of the recent requests that failed while the circuit breaker was closed")
+                    .tag("group", groupTag)
+                    .register(registry);
+            FunctionCounter.builder(CIRCUIT_BREAKER_NOT_PERMITTED, stats, CircuitBreakerStats::getNotPermitted)
+                    .description("Requests not sent because the circuit breaker was open")
+                    .tag("group", groupTag)
+                    .register(registry);
+        });
+        client.getBulkheadStats().forEach((group, stats) -> {
+            String groupTag = groupTag(group);
+            Gauge.builder(BULKHEAD_IN_FLIGHT, stats, BulkheadStats::getInFlight)
+                    .description("Requests in flight under the bulkhead's cap")
+                    .tag("group", groupTag)
+                    .register(registry);
+            FunctionCounter.builder(BULKHEAD_REJECTED, stats, BulkheadStats::getRejected)
+                    .description("Requests not sent because the bulkhead was full")
+                    .tag("group", groupTag)
+                    .register(registry);
+        });
+        client.getNodeStats().forEach(stats -> {
+            Gauge.builder(NODE_OUTSTANDING, stats, NodeStats::getOutstanding)
+                    .description("Requests sent to the node whose response bodies have not been read yet")
+                    .tag("node", stats.getUrl())
+                    .register(registry);
+            FunctionCounter.builder(NODE_FAILURES, stats, NodeStats::getFailures)
+                    .description("Requests to the node that failed with a 5xx or without a response")
+                    .tag("node", stats.getUrl())
+                    .register(registry);
+            Gauge.builder(NODE_EJECTED, stats, s -> s.isEjected() ? 1 : 0)
+                    .description("Whether the node is ejected because too many requests to it failed")
+                    .tag("node", stats.getUrl())
+                    .register(registry);
+        });
+        client.getRetryStats().ifPresent(stats -> {
+            registerGivenUp(stats, "exhausted", RetryStats::getExhausted);
+            registerGivenUp(stats, "budget", RetryStats::getBudgetExceeded);
+            registerGivenUp(stats, "unsafe", RetryStats::getUnsafe);
+            Gauge.builder(RETRY_BUDGET, stats, RetryStats::getBudgetTokens)
+                    .description("Tokens left in the retry budget; retries stop at half of the maximum")
+                    .register(registry);
+        });
+    }
+
+    private static String groupTag(AssemblylineEndpoint.Group group) {
+        return group.name().toLowerCase(Locale.ROOT);
+    }
+
+    private void registerGivenUp(RetryStats stats, String reason, ToDoubleFunction<RetryStats> count) {
+        FunctionCounter.builder(RETRIES_GIVEN_UP, stats, count)
+                .description("Requests that failed transiently and were not retried")
+                .tag("reason", reason)
+                .register(registry);
+    }
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        String endpoint = AssemblylineEndpoint.of(request)
+                .map(AssemblylineEndpoint::getLogicalName)
+                .orElse(OTHER_ENDPOINT);
+        return Mono.deferContextual(context -> {
+            int retry = context.getOrDefault(AssemblylineClient.RETRY_ATTEMPT_CONTEXT_KEY, 0);
+            if (retry > 0) {
+                Counter.builder(RETRIES)
+                        .description("Requests to AssemblyLine that were retries of an earlier attempt")
+                        .tag("endpoint", endpoint)
+                        .register(registry)
+                        .increment();
+            }
+            Exchange exchange = new Exchange(endpoint, request.method().name(), retry);
+            return next.exchange(exchange.countRequestBody(request))
+                    .map(exchange::countResponseBody)
+                    .doOnError(e -> exchange.record("IO_ERROR", "UNKNOWN"))
+                    .doOnCancel(() -> exchange.recordIfNoResponse("CANCELLED"));
+        });
+    }
+
+    private DistributionSummary sizeSummary(String name, String description, String endpoint) {
+        return DistributionSummary.builder(name)
+                .description(description)
+                .baseUnit("bytes")
+                .tag("endpoint", endpoint)
+                .publishPercentileHistogram(percentileHistogram)
+                .register(registry);
+    }
+
+    /**
+     * @return The same outcome as Spring Boot's HTTP client metrics.
+     */
+    private static String outcome(int status) {
+        HttpStatus.Series series = HttpStatus.Series.resolve(status);
+        if (series == null) {
+            return "UNKNOWN";
+        }
+        return switch (series) {
+            case INFORMATIONAL -> "INFORMATIONAL";
+            case SUCCESSFUL -> "SUCCESS";
+            case REDIRECTION -> "REDIRECTION";
+            case CLIENT_ERROR -> "CLIENT_ERROR";
+            case SERVER_ERROR -> "SERVER_ERROR";
+        };
+    }
+
+    /**
+     * The state of a single attempt at a request.
+     */
+    private class Exchange {
+        private final String endpoint;
+        private final String method;
+        private final int retry;
+        private final Timer.Sample sample = Timer.start(registry);
+        private final AtomicBoolean responseReceived = new AtomicBoolean();
+        private final AtomicBoolean recorded = new AtomicBoolean();
+
+        Exchange(String endpoint, String method, int retry) {
+            this.endpoint = endpoint;
+            this.method = method;
+            this.retry = retry;
+        }
+
+        /**
+         * GET requests have no body, so they are sent as they are rather than copied.
+         */
+        ClientRequest countRequestBody(ClientRequest request) {
+            if (HttpMethod.GET.equals(request.method())) {
+                return request;
+            }
+            AtomicLong bytes = new AtomicLong();
+            return ClientRequest.from(request)
+                    .body((outputMessage, context) -> request.body()
+                            .insert(new CountingRequest(outputMessage, bytes), context)
+                            .doOnSuccess(done -> {
+                                if (bytes.get() > 0) {
+                                    sizeSummary(REQUEST_SIZE, "Size of the bodies of requests to AssemblyLine",
+                                            endpoint).record(bytes.get());
+                                }
+                            }))
+                    .build();
+        }
+
+        /**
+         * The timer stops once the body has been read or released, so that it includes the download of the body. The
+         * body may be subscribed to more than once (e.g. read, then released), but only the first is recorded. It is
+         * recorded before the end of the body is passed on rather than in doFinally, which runs after the caller has
+         * already received the decoded response.
+         */
+        ClientResponse countResponseBody(ClientResponse response) {
+            responseReceived.set(true);
+            int status = response.statusCode().value();
+            AtomicLong bytes = new AtomicLong();
+            Runnable recordResponse = () -> {
+                if (record(Integer.toString(status), outcome(status))) {
+                    sizeSummary(RESPONSE_SIZE, "Size of the bodies of responses from AssemblyLine", endpoint)
+                            .record(bytes.get());
+                }
+            };
+            return response.mutate()
+                    .body(body -> body
+                            .doOnNext(dataBuffer -> bytes.addAndGet(dataBuffer.readableByteCount()))
+                            .doOnComplete(recordResponse)
+                            .doOnError(e -> recordResponse.run())
+                            .doOnCancel(recordResponse))
+                    .build();
+        }
+
+        void recordIfNoResponse(String status) {
+            if (!responseReceived.get()) {
+                record(status, "UNKNOWN");
+            }
+        }
+
+        /**
+         * @return Whether this call recorded the request, i.e. it was not recorded before.
+         */
+        boolean record(String status, String outcome) {
+            if (!recorded.compareAndSet(false, true)) {
+                return false;
+            }
+            sample.stop(Timer.builder(REQUESTS)
+                    .description("Requests to AssemblyLine")
+                    .tag("endpoint", endpoint)
+                    .tag("method", method)
+                    .tag("status", status)
+                    .tag("outcome", outcome)
+                    .tag("retry", Integer.toString(retry))
+                    .publishPercentileHistogram(percentileHistogram)
+                    .register(registry));
+            return true;
+        }
+    }
+
+    private static class CountingRequest extends ClientHttpRequestDecorator {
+        private final AtomicLong bytes;
+
+        CountingRequest(ClientHttpRequest delegate, AtomicLong bytes) {
+            super(delegate);
+            this.bytes = bytes;
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            return super.writeWith(Flux.from(body).doOnNext(this::count));
+        }
+
+        @Override
+        public Mono<Void> writeAndFlushWith(Publisher<? extends Publisher<? extends DataBuffer>> body) {
+            return super.writeAndFlushWith(Flux.from(body).map(part -> Flux.from(part).doOnNext(this::count)));
+        }
+
+        private void count(DataBuffer dataBuffer) {
+            bytes.addAndGet(dataBuffer.readableByteCount());
+        }
+    }
+}
@@ -4,15 +4,480 @@ import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.util.unit.DataSize;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 @Data
 @ConfigurationProperties(prefix = "assemblyline-java-client")
 public class AssemblylineClientProperties {
 
     private String url;
 
+    /**
+     * Base URLs of several AssemblyLine nodes to spread requests over, each with its own session. If set, url is
+     * ignored.
+     */
+    private List<String> urls = new ArrayList<>();
+
+    /**
+     * How requests are spread over the nodes in urls.
+     */
+    private LoadBalancing loadBalancing = new LoadBalancing();
+
+    @Data
+    public static class LoadBalancing {
+        private Strategy strategy = Strategy.POWER_OF_TWO_CHOICES;
+
+        /**
+         * Number of requests in a row that must fail, with a 5xx or without a response, for a node to be ejected.
+         */
+        private int ejectAfterFailures = 5;
+
+        /**
+         * How long an ejected node gets no requests while other nodes are available.
+         */
+        private Duration ejectionDuration = Duration.ofSeconds(30);
+
+        public enum Strategy {
+            /**
+             * Send each request to the node with the fewest requests in flight.
+             */
+            LEAST_OUTSTANDING,
+            /**
+             * Pick two nodes at random, and send the request to the one with fewer requests in flight.
+             */
+            POWER_OF_TWO_CHOICES
+        }
+    }
+
     /**
      * Maximum size of data that can be buffered by the internal WebClient when reading a response from
      * AssemblyLine. The default value is 256 KiB, which is the same as Spring's default value.
      */
     private DataSize maxInMemorySize = DataSize.ofKilobytes(256);
+
+    /**
+     * How far the download behind an InputStream returned by downloadFile() may get ahead of the reader. Larger
+     * values keep the connection busy on high-latency links, at the cost of memory per download.
+     */
+    private DataSize downloadBufferSize = DataSize.ofMegabytes(1);
+
+    /**
+     * If enabled, concurrent identical GET requests (same URL and auth bearer token) share a single exchange with
+     * AssemblyLine and a single decoded response.
+     */
+    private boolean coalesceRequests = false;
+
+    /**
+     * Settings for the AssemblyLine session cookie.
+     */
+    private Session session = new Session();
+
+    /**
+     * Settings for the connection pool and timeouts of the auto-configured HttpClient. These have no effect if a
+     * custom HttpClient bean is supplied.
+     */
+    private Http http = new Http();
+
+    /**
+     * Unless stated otherwise, a setting that is not set uses Reactor Netty's default.
+     */
+    @Data
+    public static class Http {
+        /**
+         * Maximum number of connections to AssemblyLine.
+         */
+        private Integer maxConnections;
+
+        /**
+         * Maximum number of requests waiting for a connection once all connections are in use. Requests beyond this
+         * fail immediately instead of queueing.
+         */
+        private Integer pendingAcquireMaxCount;
+
+        /**
+         * Maximum time a request waits for a connection before failing.
+         */
+        private Duration pendingAcquireTimeout;
+
+        /**
+         * Connections that have been idle for longer than this are closed instead of being reused. Default: no limit.
+         */
+        private Duration maxIdleTime;
+
+        /**
+         * Connections that have been open for longer than this are closed instead of being reused. Default: no limit.
+         */
+        private Duration maxLifeTime;
+
+        /**
+         * Interval at which idle and expired connections are closed in the background. Default: connections are only
+         * checked when they are about to be reused.
+         */
+        private Duration evictInBackground;
+
+        /**
+         * Maximum time to establish a TCP connection.
+         */
+        private Duration connectTimeout;
+
+        /**
+         * Maximum time without receiving any data while waiting for or reading a response. Default: no limit.
+         */
+        private Duration readTimeout;
+
+        /**
+         * Maximum time a single write of the request may take. Default: no limit.
+         */
+        private Duration writeTimeout;
+
+        /**
+         * Maximum time between sending a request and receiving the response headers. Default: no limit.
+         */
+        private Duration responseTimeout;
+
+        /**
+         * Enables TCP keep-alive on connections to AssemblyLine.
+         */
+        private Boolean tcpKeepAlive;
+
+        /**
+         * Asks AssemblyLine to compress its responses with gzip or deflate, and decompresses them. Large JSON responses,
+         * such as full submissions and file results, are several times smaller on the wire.
+         */
+        private Boolean compression;
+
+        /**
+         * Uses HTTP/2 when AssemblyLine supports it, negotiated with ALPN over HTTPS or with an upgrade request over
+         * plain HTTP, and HTTP/1.1 otherwise. Concurrent requests then share a few connections instead of each taking
+         * its own, so maxConnections, which still applies, can be much lower than with HTTP/1.1.
+         */
+        private Boolean http2;
+    }
+
+    /**
+     * Settings for hash-first ingestion.
+     */
+    private HashFirst hashFirst = new HashFirst();
+
+    @Data
+    public static class HashFirst {
+        /**
+         * If enabled, ingestBinary() and ingestPathBinary() first hash the file locally and check whether
+         * AssemblyLine already has it. Known files are ingested by SHA256 instead of being uploaded again.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Number of SHA256s known to be in AssemblyLine to remember, which saves a presence check when the same file
+         * is seen again. Set to 0 to always check.
+         */
+        private int presenceCacheSize = 10_000;
+    }
+
+    /**
+     * Settings for the in-process cache of file and result lookups.
+     */
+    private Cache cache = new Cache();
+
+    /**
+     * A TTL of zero disables caching for that lookup.
+     */
+    @Data
+    public static class Cache {
+        /**
+         * If enabled, the responses of getFileInfo(), getFileResults(), getFileResultForService() and getResult() are
+         * cached in memory.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Maximum number of cached responses. The least recently used responses are evicted first.
+         */
+        private int maxEntries = 10_000;
+
+        /**
+         * Maximum total size of the cached responses, measured as their size in JSON.
+         */
+        private DataSize maxWeight = DataSize.ofMegabytes(64);
+
+        /**
+         * How long to cache getFileInfo() responses.
+         */
+        private Duration fileInfoTtl = Duration.ofHours(1);
+
+        /**
+         * How long to cache getResult() responses. A result is identified by its cache key, so it never changes.
+         */
+        private Duration resultTtl = Duration.ofHours(24);
+
+        /**
+         * How long to cache getFileResultForService() responses. These change when the file is analyzed again.
+         */
+        private Duration fileResultForServiceTtl = Duration.ofMinutes(5);
+
+        /**
+         * How long to cache getFileResults() responses. These change while the file is being analyzed, so they are not
+         * cached by default.
+         */
+        private Duration fileResultsTtl = Duration.ZERO;
+    }
+
+    /**
+     * Settings for awaitCompletion().
+     */
+    private AwaitCompletion awaitCompletion = new AwaitCompletion();
+
+    @Data
+    public static class AwaitCompletion {
+        /**
+         * Maximum number of checks per second for whether submissions are complete, shared by all submissions being
+         * waited on. Set to 0 for no limit.
+         */
+        private double maxPollsPerSecond = 20;
+    }
+
+    /**
+     * Rate and concurrency limits for each group of endpoints. See {@link AssemblylineEndpoint.Group}.
+     */
+    private Limiter limiter = new Limiter();
+
+    @Data
+    public static class Limiter {
+        /**
+         * Maximum time a request waits for its rate and concurrency limits before failing with a
+         * RequestLimitExceededException.
+         */
+        private Duration maxWait = Duration.ofSeconds(10);
+
+        /**
+         * Maximum number of requests of each group waiting for the concurrency limit. Requests beyond this fail right
+         * away.
+         */
+        private int maxQueued = 1000;
+
+        /**
+         * Rate limit of each group of endpoints, e.g. ingest or read. Groups without a rate are not rate limited.
+         */
+        private Map<AssemblylineEndpoint.Group, Rate> rates = new HashMap<>();
+
+        /**
+         * Adaptive concurrency limit, applied separately to each group of endpoints.
+         */
+        private Concurrency concurrency = new Concurrency();
+
+        @Data
+        public static class Rate {
+            /**
+             * Average number of requests per second.
+             */
+            private double requestsPerSecond;
+
+            /**
+             * Number of requests that may be sent at once after a quiet period.
+             */
+            private int burst = 1;
+        }
+
+        @Data
+        public static class Concurrency {
+            /**
+             * If enabled, the number of requests in flight to each group of endpoints is limited. The limit shrinks
+             * when AssemblyLine answers with 429 or 503, fails to answer, or slows down, and grows back as it
+             * recovers.
+             */
+            private boolean enabled = false;
+
+            private int initialLimit = 20;
+
+            private int minLimit = 1;
+
+            private int maxLimit = 200;
+
+            /**
+             * Factor the limit is multiplied by when AssemblyLine is overloaded.
+             */
+            private double backoffRatio = 0.9;
+
+            /**
+             * A request taking more than this many times the usual latency counts as AssemblyLine being overloaded.
+             */
+            private double latencyTolerance = 2.0;
+        }
+    }
+
+    /**
+     * Circuit breakers for each group of endpoints, except logins. See {@link AssemblylineEndpoint.Group}.
+     */
+    private CircuitBreaker circuitBreaker = new CircuitBreaker();
+
+    @Data
+    public static class CircuitBreaker {
+        /**
+         * If enabled, the requests of a group of endpoints fail right away with a CircuitBreakerOpenException while
+         * too many of its recent requests failed with a 5xx or without a response.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Fraction of failed requests in the sliding window at or above which the breaker opens.
+         */
+        private double failureRateThreshold = 0.5;
+
+        /**
+         * Number of the most recent requests of each group whose outcome is counted.
+         */
+        private int slidingWindowSize = 50;
+
+        /**
+         * Number of requests that must be counted before the breaker can open.
+         */
+        private int minimumCalls = 20;
+
+        /**
+         * How long the breaker stays open before letting trial requests through.
+         */
+        private Duration openDuration = Duration.ofSeconds(30);
+
+        /**
+         * Number of trial requests that must succeed to close the breaker. A single failure opens it again.
+         */
+        private int halfOpenCalls = 5;
+    }
+
+    /**
+     * Caps on the requests of each group of endpoints in flight at once. See {@link AssemblylineEndpoint.Group}.
+     */
+    private Bulkhead bulkhead = new Bulkhead();
+
+    @Data
+    public static class Bulkhead {
+        /**
+         * Maximum number of requests of each group in flight at once, from sending the request until its response body
+         * has been read. Requests over the cap fail right away with a BulkheadFullException. Groups that are not
+         * listed, and logins, are not capped.
+         */
+        private Map<AssemblylineEndpoint.Group, Integer> maxConcurrent = new HashMap<>();
+    }
+
+    /**
+     * Retries of requests that fail transiently. Retrying after a 401 is not affected by these settings.
+     */
+    private Retry retry = new Retry();
+
+    @Data
+    public static class Retry {
+        /**
+         * If enabled, requests that fail without a response or with one of the status codes are sent again. Lookups
+         * are always retried; ingest and submit are only retried if they cannot have been processed, unless their
+         * metadata contains the idempotency key.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Maximum number of attempts of each request, including the first.
+         */
+        private int maxAttempts = 3;
+
+        /**
+         * Delay before the first retry. The delay is multiplied by the multiplier for each further retry.
+         */
+        private Duration initialBackoff = Duration.ofMillis(200);
+
+        private double multiplier = 2.0;
+
+        /**
+         * Maximum delay before a retry, including delays asked for by a Retry-After header.
+         */
+        private Duration maxBackoff = Duration.ofSeconds(5);
+
+        /**
+         * Fraction of each delay that is randomly removed, so that clients that failed together do not retry together.
+         */
+        private double jitter = 0.5;
+
+        /**
+         * Statuses that are retried.
+         */
+        private Set<Integer> statusCodes = new HashSet<>(Set.of(429, 502, 503, 504));
+
+        /**
+         * Name of the metadata entry holding an idempotency key. Ingest and submit requests with this entry in their
+         * metadata are retried like lookups, leaving it to the caller to recognize duplicates.
+         */
+        private String idempotencyKeyMetadata = "idempotency_key";
+
+        private Budget budget = new Budget();
+
+        @Data
+        public static class Budget {
+            /**
+             * Size of the retry budget. Each retryable failure takes a token, and retries stop while half or less of
+             * the tokens are left.
+             */
+            private int maxTokens = 100;
+
+            /**
+             * Tokens given back by each request that does not fail. In the long run, retries stop when there are more
+             * than this many failures per success.
+             */
+            private double tokenRatio = 0.1;
+        }
+    }
+
+    /**
+     * Settings for the Micrometer metrics of the client. See {@link AssemblylineClientMetrics}.
+     */
+    private Metrics metrics = new Metrics();
+
+    @Data
+    public static class Metrics {
+        /**
+         * If enabled, and there is a MeterRegistry bean, metrics are recorded for every request to AssemblyLine.
+         */
+        private boolean enabled = true;
+
+        /**
+         * Whether to publish histogram buckets for the request timer and the request and response sizes, for
+         * monitoring systems that compute percentiles across instances.
+         */
+        private boolean percentileHistogram = false;
+    }
+
+    @Data
+    public static class Session {
+        /**
+         * If enabled, the client logs in again shortly before the session reported by AssemblyLine expires, instead
+         * of waiting for a request to be rejected with a 401.
+         */
+        private boolean refreshEnabled = false;
+
+        /**
+         * How long before the session expires the client logs in again. If this is longer than the session itself,
+         * the client logs in again halfway through the session instead.
+         */
+        private Duration refreshMargin = Duration.ofMinutes(1);
+
+        /**
+         * How long the client waits before refreshing the session again after a refresh failed. Requests keep being
+         * sent with the current cookie meanwhile, and a request rejected with a 401 still logs in again right away.
+         */
+        private Duration refreshRetryInterval = Duration.ofSeconds(30);
+
+        /**
+         * If enabled, requests wait for a login that is in progress to finish instead of being sent with the old
+         * cookie.
+         */
+        private boolean holdRequestsDuringRefresh = false;
+
+        /**
+         * Maximum time a request waits for a login in progress. Once this elapses, the request is sent anyway.
+         */
+        private Duration maxHoldTime = Duration.ofSeconds(5);
+    }
 }
@@ -0,0 +1,103 @@
+package ca.gc.cyber.ops.assemblyline.java.client.clients;
+
+import org.springframework.web.reactive.function.client.ClientRequest;
+
+import java.util.Optional;
+
+/**
+ * The AssemblyLine API endpoints called by the client. Every request to AssemblyLine carries its endpoint as a request
+ * attribute, so that filters can tell requests apart without parsing their URIs, which contain SHA256s and SIDs.
+ */
+public enum AssemblylineEndpoint {
+    LOGIN("auth.login", Group.AUTH),
+    FILE_DOWNLOAD("file.download", Group.DOWNLOAD),
+    FILE_INFO("file.info", Group.READ),
+    FILE_RESULT("file.result", Group.READ),
+    FILE_RESULT_FOR_SERVICE("file.result.service", Group.READ),
+    HASH_SEARCH("hash_search", Group.HASH_SEARCH),
+    HASH_SEARCH_DATA_SOURCES("hash_search.data_sources", Group.HASH_SEARCH),
+    INGEST("ingest", Group.INGEST),
+    INGEST_MESSAGE_LIST("ingest.message_list", Group.READ),
+    RESULT("result", Group.READ),
+    SUBMISSION("submission", Group.READ),
+    SUBMISSION_COMPLETE("submission.is_completed", Group.READ),
+    SUBMISSION_FILE_RESULTS("submission.file", Group.READ),
+    SUBMISSION_FULL("submission.full", Group.READ),
+    SUBMISSION_TREE("submission.tree", Group.READ),
+    SUBMIT("submit", Group.SUBMIT);
+
+    /**
+     * Endpoints that load AssemblyLine in a similar way, and so share limits.
+     */
+    public enum Group {
+        /**
+         * Logging in. Never limited, so that a session can always be renewed.
+         */
+        AUTH,
+        /**
+         * Ingesting files, which queues them for analysis.
+         */
+        INGEST,
+        /**
+         * Submitting files, which analyzes them ahead of the ingestion queue.
+         */
+        SUBMIT,
+        /**
+         * Lookups of files, results and submissions.
+         */
+        READ,
+        /**
+         * Downloads of files.
+         */
+        DOWNLOAD,
+        /**
+         * Hash searches, which AssemblyLine forwards to external data sources.
+         */
+        HASH_SEARCH
+    }
+
+    /**
+     * Name of the {@link ClientRequest} attribute that holds the endpoint.
+     */
+    public static final String ATTRIBUTE = AssemblylineEndpoint.class.getName();
+
+    private final String logicalName;
+    private final Group group;
+
+    AssemblylineEndpoint(String logicalName, Group group) {
+        this.logicalName = logicalName;
+        this.group = group;
+    }
+
+    /**
+     * @return A short, stable name for the endpoint, e.g. "file.result", suitable for metric tags and logs.
+     */
+    public String getLogicalName() {
+        return logicalName;
+    }
+
+    /**
+     * @return The group of endpoints this endpoint belongs to.
+     */
+    public Group getGroup() {
+        return group;
+    }
+
+    /**
+     * @return Whether sending a request to this endpoint more than once has the same effect as sending it once. Ingest
+     * and submit are not idempotent, since each request analyzes the file again.
+     */
+    public boolean isIdempotent() {
+        return group != Group.INGEST && group != Group.SUBMIT;
+    }
+
+    /**
+     * @param request A request sent by the client
+     * @return The endpoint of the request, or empty if the request was not made by the client.
+     */
+    public static Optional<AssemblylineEndpoint> of(ClientRequest request) {
+        return request.attribute(ATTRIBUTE)
+                .filter(AssemblylineEndpoint.class::isInstance)
+                .map(AssemblylineEndpoint.class::cast);
+    }
+}
@@ -0,0 +1,145 @@
+package ca.gc.cyber.ops.assemblyline.java.client.clients;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One AssemblyLine node that the client sends requests to, with its own session and a passive health check: after
+ * ejectAfterFailures requests in a row fail with a 5xx or without a response, the node is ejected, and not chosen
+ * while other nodes are available, for ejectionDuration.
+ */
+@Slf4j
+class AssemblylineNode {
+
+    private final String baseUrl;
+    private final AssemblylineSession session;
+    private final int ejectAfterFailures;
+    private final long ejectionNanos;
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong ejections = new AtomicLong();
+    private final NodeStats stats = new NodeStats(this);
+
+    /**
+     * System.nanoTime() at which the current ejection ends, or null if the node has never been ejected.
+     */
+    private volatile Long ejectedUntil;
+
+    /**
+     * @param baseUrl The base URL of the node, e.g. https://assemblyline-1.example.com
+     */
+    AssemblylineNode(String baseUrl, AssemblylineSession session, int ejectAfterFailures, long ejectionNanos) {
+        this.baseUrl = stripTrailingSlash(baseUrl);
+        this.session = session;
+        this.ejectAfterFailures = ejectAfterFailures;
+        this.ejectionNanos = ejectionNanos;
+    }
+
+    String getBaseUrl() {
+        return baseUrl;
+    }
+
+    AssemblylineSession getSession() {
+        return session;
+    }
+
+    NodeStats getStats() {
+        return stats;
+    }
+
+    int getOutstanding() {
+        return outstanding.get();
+    }
+
+    long getRequests() {
+        return requests.get();
+    }
+
+    long getFailures() {
+        return failures.get();
+    }
+
+    long getEjections() {
+        return ejections.get();
+    }
+
+    boolean isEjected(long now) {
+        Long until = ejectedUntil;
+        return until != null && now - until < 0;
+    }
+
+    /**
+     * @param url              The URL of a request, built on the base URL of another node.
+     * @param otherNodeBaseUrl The base URL of that node.
+     * @return The same URL on this node, or the URL itself if it does not start with the other node's base URL.
+     */
+    URI rebase(URI url, String otherNodeBaseUrl) {
+        String value = url.toString();
+        if (baseUrl.equals(otherNodeBaseUrl) || !value.startsWith(otherNodeBaseUrl)) {
+            return url;
+        }
+        return URI.create(baseUrl + value.substring(otherNodeBaseUrl.length()));
+    }
+
+    /**
+     * Sends a request to this node, counting it as outstanding until its response body has been read or released,
+     * and recording whether it failed.
+     */
+    Mono<ClientResponse> exchange(ClientRequest request, ExchangeFunction next) {
+        return Mono.defer(() -> {
+            outstanding.incrementAndGet();
+            requests.incrementAndGet();
+            AtomicBoolean done = new AtomicBoolean();
+            Runnable release = () -> {
+                if (done.compareAndSet(false, true)) {
+                    outstanding.decrementAndGet();
+                }
+            };
+            return next.exchange(request)
+                    .map(response -> {
+                        if (response.statusCode().is5xxServerError()) {
+                            recordFailure();
+                        } else {
+                            consecutiveFailures.set(0);
+                        }
+                        return response.mutate()
+                                .body(body -> body.doFinally(signal -> release.run()))
+                                .build();
+                    })
+                    .doOnError(e -> {
+                        // Requests not sent because of the client's own limits say nothing about the node.
+                        if (e instanceof WebClientRequestException) {
+                            recordFailure();
+                        }
+                        release.run();
+                    })
+                    .doOnCancel(release);
+        });
+    }
+
+    private void recordFailure() {
+        failures.incrementAndGet();
+        if (consecutiveFailures.incrementAndGet() >= ejectAfterFailures) {
+            consecutiveFailures.set(0);
+            ejectedUntil = System.nanoTime() + ejectionNanos;
+            ejections.incrementAndGet();
+            log.warn("AssemblyLine node {} failed {} requests in a row; it is ejected for {} ms.", baseUrl,
+                    ejectAfterFailures, ejectionNanos / 1_000_000);
+        }
+    }
+
+    static String stripTrailingSlash(String url) {
+        return url != null && url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+    }
+}
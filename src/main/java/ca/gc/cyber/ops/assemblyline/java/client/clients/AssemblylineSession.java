@@ -0,0 +1,209 @@
+package ca.gc.cyber.ops.assemblyline.java.client.clients;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Holds the AssemblyLine session cookie and coordinates re-authentication.
+ * <p>
+ * When many in-flight requests fail with a 401 at the same time, only the first one actually logs in; the others wait
+ * for that login to finish and then retry with the new cookie. If enabled, the session is also refreshed in the
+ * background shortly before it expires. This instance is shared between an {@link AssemblylineClient} and the copies
+ * made by {@link AssemblylineClient#withAuthBearerToken(String)}, since they all send requests through the same
+ * {@link org.springframework.web.reactive.function.client.WebClient}.
+ */
+@Slf4j
+class AssemblylineSession {
+
+    private final AssemblylineClientProperties.Session properties;
+
+    private volatile String cookie = "";
+
+    /**
+     * When the current session should be refreshed, based on the duration reported by the last login, or when to try
+     * again after a login failed. Null if no login has reported a duration.
+     */
+    private volatile Instant refreshAt;
+
+    /**
+     * Incremented every time a login completes successfully. Requests record the generation they were sent with so
+     * that a 401 received after someone else already logged in doesn't trigger yet another login.
+     */
+    private final AtomicLong generation = new AtomicLong();
+    private final AtomicReference<Mono<Void>> pendingLogin = new AtomicReference<>();
+    private final AtomicReference<Disposable> scheduledRefresh = new AtomicReference<>();
+    private final AtomicLong loginCount = new AtomicLong();
+    private final AtomicLong coalescedLoginCount = new AtomicLong();
+
+    AssemblylineSession(AssemblylineClientProperties.Session properties) {
+        this.properties = properties;
+    }
+
+    String getCookie() {
+        return cookie;
+    }
+
+    void setCookie(String cookie) {
+        this.cookie = cookie;
+    }
+
+    long getGeneration() {
+        return generation.get();
+    }
+
+    long getLoginCount() {
+        return loginCount.get();
+    }
+
+    long getCoalescedLoginCount() {
+        return coalescedLoginCount.get();
+    }
+
+    /**
+     * Re-authenticates with AssemblyLine, sharing a single login between all concurrent callers.
+     *
+     * @param observedGeneration The value of {@link #getGeneration()} when the failed request was sent.
+     * @param login              Performs the actual login. Only invoked if no other login is pending and no login
+     *                           has completed since {@code observedGeneration}.
+     * @return A Mono that completes once a valid session is available, or errors if the shared login failed.
+     */
+    Mono<Void> reauthenticate(long observedGeneration, Supplier<? extends Mono<?>> login) {
+        return Mono.defer(() -> {
+            if (pendingLogin.get() == null && generation.get() != observedGeneration) {
+                // Someone else logged in after our request was sent; just retry with the new cookie.
+                coalescedLoginCount.incrementAndGet();
+                return Mono.empty();
+            }
+            return startOrJoinLogin(login);
+        });
+    }
+
+    /**
+     * Called before every request. Starts a refresh if the session is about to expire and, if configured, holds the
+     * request until a login in progress has finished.
+     *
+     * @param login Performs the actual login, if one is needed.
+     * @return A Mono that completes when the request may be sent.
+     */
+    Mono<Void> beforeRequest(Supplier<? extends Mono<?>> login) {
+        return Mono.defer(() -> {
+            if (properties.isRefreshEnabled() && isRefreshDue()) {
+                /* The scheduled refresh should have run already (e.g. the host was suspended); start it now. The
+                login runs on its own, so the returned Mono doesn't need to be subscribed to. */
+                startOrJoinLogin(login);
+            }
+
+            Mono<Void> pending = pendingLogin.get();
+            if (pending == null || !properties.isHoldRequestsDuringRefresh()) {
+                return Mono.empty();
+            }
+            // If the login fails or takes too long, send the request anyway and let the 401 handling take over.
+            return pending
+                    .timeout(properties.getMaxHoldTime(), Mono.empty())
+                    .onErrorResume(e -> Mono.empty());
+        });
+    }
+
+    /**
+     * Records the duration of a new session and, if enabled, schedules a background refresh before it expires.
+     *
+     * @param sessionDuration Duration of the session, in seconds, as reported by the login response.
+     * @param login           Performs the refresh login.
+     */
+    void loggedIn(int sessionDuration, Supplier<? extends Mono<?>> login) {
+        if (sessionDuration <= 0 || !properties.isRefreshEnabled()) {
+            refreshAt = null;
+            return;
+        }
+        Duration duration = Duration.ofSeconds(sessionDuration);
+        Duration refreshIn = duration.minus(refreshMargin(duration));
+        refreshAt = Instant.now().plus(refreshIn);
+
+        Disposable refresh = Mono.delay(refreshIn, Schedulers.parallel())
+                .flatMap(tick -> startOrJoinLogin(login))
+                .subscribe(null, e -> log.warn("Failed to refresh AssemblyLine session; trying again in {}.",
+                        properties.getRefreshRetryInterval(), e));
+        Disposable previous = scheduledRefresh.getAndSet(refresh);
+        if (previous != null) {
+            previous.dispose();
+        }
+    }
+
+    /**
+     * Stops any scheduled background refresh.
+     */
+    void close() {
+        Disposable previous = scheduledRefresh.getAndSet(null);
+        if (previous != null) {
+            previous.dispose();
+        }
+    }
+
+    /**
+     * Pushes the refresh of a session back after a failed login, so that every request made until the session expires
+     * doesn't start a login of its own.
+     */
+    private void postponeRefresh() {
+        if (refreshAt != null) {
+            refreshAt = Instant.now().plus(properties.getRefreshRetryInterval());
+        }
+    }
+
+    private boolean isRefreshDue() {
+        Instant refreshTime = refreshAt;
+        return refreshTime != null && pendingLogin.get() == null && !Instant.now().isBefore(refreshTime);
+    }
+
+    /**
+     * @return The margin to use for a session of the given length. Falls back to half the session if the configured
+     * margin would have us log in again immediately.
+     */
+    private Duration refreshMargin(Duration sessionDuration) {
+        Duration margin = properties.getRefreshMargin();
+        return margin.compareTo(sessionDuration) < 0 ? margin : sessionDuration.dividedBy(2);
+    }
+
+    private Mono<Void> startOrJoinLogin(Supplier<? extends Mono<?>> login) {
+        while (true) {
+            Mono<Void> pending = pendingLogin.get();
+            if (pending != null) {
+                coalescedLoginCount.incrementAndGet();
+                return pending;
+            }
+
+            Sinks.Empty<Void> result = Sinks.empty();
+            Mono<Void> shared = result.asMono();
+            if (pendingLogin.compareAndSet(null, shared)) {
+                loginCount.incrementAndGet();
+                log.debug("Logging in to AssemblyLine.");
+                /* The login is subscribed to here rather than by the caller so that a caller cancelling doesn't
+                cancel the login that other callers are waiting on. The generation must be bumped before the
+                pending login is cleared, otherwise a concurrent 401 could see neither and log in again. */
+                Mono.defer(login).then().subscribe(
+                        null,
+                        e -> {
+                            // Postponed before the pending login is cleared, so that no request sees the refresh due.
+                            postponeRefresh();
+                            pendingLogin.set(null);
+                            result.tryEmitError(e);
+                        },
+                        () -> {
+                            generation.incrementAndGet();
+                            pendingLogin.set(null);
+                            result.tryEmitEmpty();
+                        });
+                return shared;
+            }
+            // Another caller started a login between our get() and compareAndSet(); loop around and join it.
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package ca.gc.cyber.ops.assemblyline.java.client.clients;
+
+import lombok.Getter;
+
+/**
+ * Thrown when a request is not sent because its group of endpoints already has its maximum number of requests in
+ * flight.
+ */
+@Getter
+public class BulkheadFullException extends RuntimeException {
+
+    private final AssemblylineEndpoint.Group group;
+    private final int maxConcurrent;
+
+    public BulkheadFullException(AssemblylineEndpoint.Group group, int maxConcurrent) {
+        super("Request to " + group + " endpoints was not sent: " + maxConcurrent + " of them are already in flight.");
+        this.group = group;
+        this.maxConcurrent = maxConcurrent;
+    }
+}
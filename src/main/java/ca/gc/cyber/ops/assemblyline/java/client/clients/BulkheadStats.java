@@ -0,0 +1,35 @@
+package ca.gc.cyber.ops.assemblyline.java.client.clients;
+
+/**
+ * Counters for the cap on the requests in flight of a group of endpoints of an {@link AssemblylineClient}. Shared by
+ * the client and all copies made from it.
+ */
+public class BulkheadStats {
+
+    private final Bulkheads.Bulkhead bulkhead;
+
+    BulkheadStats(Bulkheads.Bulkhead bulkhead) {
+        this.bulkhead = bulkhead;
+    }
+
+    /**
+     * @return The maximum number of requests of this group in flight at once.
+     */
+    public int getMaxConcurrent() {
+        return bulkhead.getMaxConcurrent();
+    }
+
+    /**
+     * @return Number of requests currently in flight, until their response bodies have been read.
+     */
+    public int getInFlight() {
+        return bulkhead.getInFlight();
+    }
+
+    /**
+     * @return Number of requests that failed with a {@link BulkheadFullException}.
+     */
+    public long getRejected() {
+        return bulkhead.getRejected();
+    }
+}
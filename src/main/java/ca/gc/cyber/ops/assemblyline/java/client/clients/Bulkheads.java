@@ -0,0 +1,107 @@
+package ca.gc.cyber.ops.assemblyline.java.client.clients;
+
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caps the number of requests of each group of endpoints in flight at once, so that a slow group cannot take every
+ * connection of the pool it shares with the others. A request holds its place until its response body has been read
+ * or released; a request over the cap fails right away with a {@link BulkheadFullException}. Logins and requests
+ * without an {@link AssemblylineEndpoint} are not capped.
+ */
+class Bulkheads implements ExchangeFilterFunction {
+
+    private final Map<AssemblylineEndpoint.Group, Bulkhead> groups = new EnumMap<>(AssemblylineEndpoint.Group.class);
+
+    Bulkheads(AssemblylineClientProperties.Bulkhead properties) {
+        properties.getMaxConcurrent().forEach((group, maxConcurrent) -> {
+            if (group != AssemblylineEndpoint.Group.AUTH) {
+                if (maxConcurrent < 1) {
+                    throw new IllegalArgumentException("The maximum number of concurrent requests of " + group
+                            + " endpoints must be at least 1: " + maxConcurrent);
+                }
+                groups.put(group, new Bulkhead(group, maxConcurrent));
+            }
+        });
+    }
+
+    /**
+     * @return Whether the properties cap any group of endpoints.
+     */
+    static boolean isEnabled(AssemblylineClientProperties.Bulkhead properties) {
+        return !properties.getMaxConcurrent().isEmpty();
+    }
+
+    /**
+     * @return The stats of each capped group of endpoints.
+     */
+    Map<AssemblylineEndpoint.Group, BulkheadStats> getStats() {
+        Map<AssemblylineEndpoint.Group, BulkheadStats> stats = new EnumMap<>(AssemblylineEndpoint.Group.class);
+        groups.forEach((group, bulkhead) -> stats.put(group, bulkhead.stats));
+        return Collections.unmodifiableMap(stats);
+    }
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        Bulkhead bulkhead = AssemblylineEndpoint.of(request)
+                .map(endpoint -> groups.get(endpoint.getGroup()))
+                .orElse(null);
+        return bulkhead != null ? bulkhead.exchange(request, next) : next.exchange(request);
+    }
+
+    static class Bulkhead {
+        private final AssemblylineEndpoint.Group group;
+        private final int maxConcurrent;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicLong rejected = new AtomicLong();
+        private final BulkheadStats stats = new BulkheadStats(this);
+
+        Bulkhead(AssemblylineEndpoint.Group group, int maxConcurrent) {
+            this.group = group;
+            this.maxConcurrent = maxConcurrent;
+        }
+
+        int getMaxConcurrent() {
+            return maxConcurrent;
+        }
+
+        int getInFlight() {
+            return inFlight.get();
+        }
+
+        long getRejected() {
+            return rejected.get();
+        }
+
+        Mono<ClientResponse> exchange(ClientRequest request, ExchangeFunction next) {
+            return Mono.defer(() -> {
+                if (inFlight.getAndUpdate(n -> n < maxConcurrent ? n + 1 : n) >= maxConcurrent) {
+                    rejected.incrementAndGet();
+                    return Mono.error(new BulkheadFullException(group, maxConcurrent));
+                }
+                AtomicBoolean released = new AtomicBoolean();
+                Runnable release = () -> {
+                    if (released.compareAndSet(false, true)) {
+                        inFlight.decrementAndGet();
+                    }
+                };
+                return next.exchange(request)
+                        .map(response -> response.mutate()
+                                .body(body -> body.doFinally(signal -> release.run()))
+                                .build())
+                        .doOnError(e -> release.run())
+                        .doOnCancel(release);
+            });
+        }
+    }
+}
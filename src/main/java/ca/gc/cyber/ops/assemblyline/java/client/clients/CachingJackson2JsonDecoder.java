@@ -0,0 +1,59 @@
+package ca.gc.cyber.ops.assemblyline.java.client.clients;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.util.MimeType;
+
+import java.lang.reflect.Type;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A {@link Jackson2JsonDecoder} that resolves the {@link JavaType} of each response type, and whether it can be
+ * decoded, only once. Jackson2JsonDecoder does both for every response, through the mapper's TypeFactory. There are
+ * only as many entries as there are response types, such as those in {@link ApiResponseTypes}.
+ */
+class CachingJackson2JsonDecoder extends Jackson2JsonDecoder {
+
+    private final Map<Type, JavaType> javaTypes = new ConcurrentHashMap<>();
+    private final Map<Type, Boolean> decodable = new ConcurrentHashMap<>();
+
+    CachingJackson2JsonDecoder(ObjectMapper mapper) {
+        super(mapper);
+    }
+
+    /**
+     * Whether a type can be decoded depends only on the type once the MIME type is supported, since no other mappers
+     * are registered for specific types.
+     */
+    @Override
+    public boolean canDecode(ResolvableType elementType, MimeType mimeType) {
+        if (!supportsMimeType(mimeType)) {
+            return false;
+        }
+        Boolean cached = decodable.get(elementType.getType());
+        if (cached == null) {
+            cached = super.canDecode(elementType, mimeType);
+            decodable.put(elementType.getType(), cached);
+        }
+        return cached;
+    }
+
+    /**
+     * Types resolved against a context class, e.g. the controller method of a server, are not cached.
+     */
+    @Override
+    protected JavaType getJavaType(Type type, Class<?> contextClass) {
+        if (contextClass != null) {
+            return super.getJavaType(type, contextClass);
+        }
+        JavaType javaType = javaTypes.get(type);
+        if (javaType == null) {
+            javaType = super.getJavaType(type, null);
+            javaTypes.put(type, javaType);
+        }
+        return javaType;
+    }
+}
@@ -0,0 +1,186 @@
+package ca.gc.cyber.ops.assemblyline.java.client.clients;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * The circuit breaker of a group of endpoints.
+ * <ul>
+ *     <li>While closed, the outcomes of the last slidingWindowSize requests are kept. Once at least minimumCalls of
+ *     them are known, the breaker opens if failureRateThreshold or more of them failed.</li>
+ *     <li>While open, no request is permitted. After openDuration, the breaker becomes half-open.</li>
+ *     <li>While half-open, halfOpenCalls trial requests are permitted. The breaker opens again as soon as one of them
+ *     fails, and closes once all of them have succeeded.</li>
+ * </ul>
+ * Each change of state starts a new generation, and the outcomes of requests permitted in an earlier generation are
+ * ignored, so that requests sent before the breaker opened do not decide whether it closes.
+ */
+class CircuitBreaker {
+
+    private final AssemblylineEndpoint.Group group;
+    private final double failureRateThreshold;
+    private final int minimumCalls;
+    private final long openNanos;
+    private final int halfOpenCalls;
+    private final Consumer<CircuitBreakerEvent> listener;
+    private final AtomicLong notPermitted = new AtomicLong();
+
+    /* Guarded by this. The window is a ring buffer of outcomes, true for a failure. */
+    private final boolean[] window;
+    private int windowNext;
+    private int windowCalls;
+    private int windowFailures;
+    private CircuitBreakerState state = CircuitBreakerState.CLOSED;
+    private long generation;
+    private long openedAt;
+    private int halfOpenPermits;
+    private int halfOpenSuccesses;
+
+    /**
+     * @param listener Called with every change of state, outside of the breaker's lock.
+     */
+    CircuitBreaker(AssemblylineEndpoint.Group group, double failureRateThreshold, int slidingWindowSize,
+                   int minimumCalls, long openNanos, int halfOpenCalls, Consumer<CircuitBreakerEvent> listener) {
+        if (slidingWindowSize < 1 || minimumCalls < 1 || minimumCalls > slidingWindowSize || halfOpenCalls < 1) {
+            throw new IllegalArgumentException("Circuit breaker settings must satisfy 1 <= minimumCalls <= "
+                    + "slidingWindowSize and halfOpenCalls >= 1. minimumCalls = " + minimumCalls
+                    + ", slidingWindowSize = " + slidingWindowSize + ", halfOpenCalls = " + halfOpenCalls);
+        }
+        this.group = group;
+        this.failureRateThreshold = failureRateThreshold;
+        this.minimumCalls = minimumCalls;
+        this.openNanos = openNanos;
+        this.halfOpenCalls = halfOpenCalls;
+        this.listener = listener;
+        this.window = new boolean[slidingWindowSize];
+    }
+
+    /**
+     * @return A permit to send a request, whose outcome must be recorded, or null if the breaker does not permit it.
+     */
+    Permit tryAcquire() {
+        CircuitBreakerEvent event = null;
+        Permit permit = null;
+        synchronized (this) {
+            if (state == CircuitBreakerState.OPEN && System.nanoTime() - openedAt >= openNanos) {
+                event = transition(CircuitBreakerState.HALF_OPEN, 0);
+            }
+            if (state == CircuitBreakerState.CLOSED) {
+                permit = new Permit(generation);
+            } else if (state == CircuitBreakerState.HALF_OPEN && halfOpenPermits > 0) {
+                halfOpenPermits--;
+                permit = new Permit(generation);
+            }
+        }
+        if (permit == null) {
+            notPermitted.incrementAndGet();
+        }
+        publish(event);
+        return permit;
+    }
+
+    synchronized CircuitBreakerState getState() {
+        return state;
+    }
+
+    /**
+     * @return The fraction of the requests in the sliding window that failed, or 0 if there are none.
+     */
+    synchronized double getFailureRate() {
+        return windowCalls == 0 ? 0 : (double) windowFailures / windowCalls;
+    }
+
+    long getNotPermitted() {
+        return notPermitted.get();
+    }
+
+    private void record(long permitGeneration, Boolean failed) {
+        CircuitBreakerEvent event = null;
+        synchronized (this) {
+            if (permitGeneration != generation) {
+                return;
+            }
+            if (state == CircuitBreakerState.CLOSED && failed != null) {
+                if (windowCalls == window.length) {
+                    windowFailures -= window[windowNext] ? 1 : 0;
+                } else {
+                    windowCalls++;
+                }
+                window[windowNext] = failed;
+                windowFailures += failed ? 1 : 0;
+                windowNext = (windowNext + 1) % window.length;
+                double failureRate = (double) windowFailures / windowCalls;
+                if (windowCalls >= minimumCalls && failureRate >= failureRateThreshold) {
+                    event = transition(CircuitBreakerState.OPEN, failureRate);
+                }
+            } else if (state == CircuitBreakerState.HALF_OPEN) {
+                if (failed == null) {
+                    // The trial did not tell anything, so another request may try instead.
+                    halfOpenPermits++;
+                } else if (failed) {
+                    event = transition(CircuitBreakerState.OPEN, 0);
+                } else if (++halfOpenSuccesses == halfOpenCalls) {
+                    event = transition(CircuitBreakerState.CLOSED, 0);
+                }
+            }
+        }
+        publish(event);
+    }
+
+    /**
+     * Called while holding the lock.
+     */
+    private CircuitBreakerEvent transition(CircuitBreakerState to, double failureRate) {
+        CircuitBreakerEvent event = new CircuitBreakerEvent(group, state, to, failureRate, Instant.now());
+        state = to;
+        generation++;
+        windowNext = 0;
+        windowCalls = 0;
+        windowFailures = 0;
+        halfOpenPermits = halfOpenCalls;
+        halfOpenSuccesses = 0;
+        openedAt = System.nanoTime();
+        return event;
+    }
+
+    private void publish(CircuitBreakerEvent event) {
+        if (event != null) {
+            listener.accept(event);
+        }
+    }
+
+    /**
+     * Permission to send one request. Only the first outcome recorded counts.
+     */
+    class Permit {
+        private final long generation;
+        private final AtomicBoolean recorded = new AtomicBoolean();
+
+        private Permit(long generation) {
+            this.generation = generation;
+        }
+
+        void onSuccess() {
+            onOutcome(false);
+        }
+
+        void onFailure() {
+            onOutcome(true);
+        }
+
+        /**
+         * Records that the request neither succeeded nor failed, e.g. it was cancelled or was not sent.
+         */
+        void onIgnored() {
+            onOutcome(null);
+        }
+
+        private void onOutcome(Boolean failed) {
+            if (recorded.compareAndSet(false, true)) {
+                record(generation, failed);
+            }
+        }
+    }
+}
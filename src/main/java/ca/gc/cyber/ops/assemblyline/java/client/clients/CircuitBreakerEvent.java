@@ -0,0 +1,21 @@
+package ca.gc.cyber.ops.assemblyline.java.client.clients;
+
+import lombok.Value;
+
+import java.time.Instant;
+
+/**
+ * A change of state of the circuit breaker of a group of endpoints, published by
+ * {@link AssemblylineClient#circuitBreakerEvents()}.
+ */
+@Value
+public class CircuitBreakerEvent {
+    AssemblylineEndpoint.Group group;
+    CircuitBreakerState from;
+    CircuitBreakerState to;
+    /**
+     * The failure rate over the sliding window that made the breaker open, or 0 for other changes.
+     */
+    double failureRate;
+    Instant time;
+}
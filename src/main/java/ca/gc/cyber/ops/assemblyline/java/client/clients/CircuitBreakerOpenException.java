@@ -0,0 +1,19 @@
+package ca.gc.cyber.ops.assemblyline.java.client.clients;
+
+import lombok.Getter;
+
+/**
+ * Thrown when a request is not sent because the circuit breaker of its group of endpoints is open: too many of the
+ * group's recent requests failed.
+ */
+@Getter
+public class CircuitBreakerOpenException extends RuntimeException {
+
+    private final AssemblylineEndpoint.Group group;
+
+    public CircuitBreakerOpenException(AssemblylineEndpoint.Group group) {
+        super("Request to " + group + " endpoints was not sent: the circuit breaker is open because too many of "
+                + "them failed.");
+        this.group = group;
+    }
+}
@@ -0,0 +1,20 @@
+package ca.gc.cyber.ops.assemblyline.java.client.clients;
+
+/**
+ * The states of the circuit breaker of a group of endpoints.
+ */
+public enum CircuitBreakerState {
+    /**
+     * Requests are sent, and their failures are counted.
+     */
+    CLOSED,
+    /**
+     * Too many requests failed. Requests fail right away with a {@link CircuitBreakerOpenException} until the breaker
+     * has been open for its open duration.
+     */
+    OPEN,
+    /**
+     * A few trial requests are sent to find out whether AssemblyLine has recovered. Other requests fail right away.
+     */
+    HALF_OPEN
+}
@@ -0,0 +1,32 @@
+package ca.gc.cyber.ops.assemblyline.java.client.clients;
+
+/**
+ * The state and counters of the circuit breaker of a group of endpoints of an {@link AssemblylineClient}. Shared by
+ * the client and all copies made from it.
+ */
+public class CircuitBreakerStats {
+
+    private final CircuitBreaker circuitBreaker;
+
+    CircuitBreakerStats(CircuitBreaker circuitBreaker) {
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    public CircuitBreakerState getState() {
+        return circuitBreaker.getState();
+    }
+
+    /**
+     * @return The fraction of the recent requests that failed while the breaker was closed, or 0 if it is not closed.
+     */
+    public double getFailureRate() {
+        return circuitBreaker.getFailureRate();
+    }
+
+    /**
+     * @return Number of requests that failed with a {@link CircuitBreakerOpenException}.
+     */
+    public long getNotPermitted() {
+        return circuitBreaker.getNotPermitted();
+    }
+}
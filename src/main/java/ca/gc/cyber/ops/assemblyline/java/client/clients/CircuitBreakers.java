@@ -0,0 +1,103 @@
+package ca.gc.cyber.ops.assemblyline.java.client.clients;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Fails requests right away, with a {@link CircuitBreakerOpenException}, while the {@link CircuitBreaker} of their group
+ * of endpoints is open, so that callers of a failing group do not tie up threads and connections waiting for it. A
+ * request fails if it gets a 5xx response or no response at all; requests that are not sent because of the client's
+ * own limits count as neither. Logins and requests without an {@link AssemblylineEndpoint} are not affected.
+ */
+@Slf4j
+class CircuitBreakers implements ExchangeFilterFunction {
+
+    private final Map<AssemblylineEndpoint.Group, CircuitBreaker> groups = new EnumMap<>(AssemblylineEndpoint.Group.class);
+    private final Map<AssemblylineEndpoint.Group, CircuitBreakerStats> stats =
+            new EnumMap<>(AssemblylineEndpoint.Group.class);
+
+    /**
+     * Events are only published to the subscribers present at the time; none are buffered.
+     */
+    private final Sinks.Many<CircuitBreakerEvent> events = Sinks.many().multicast().directBestEffort();
+
+    CircuitBreakers(AssemblylineClientProperties.CircuitBreaker properties) {
+        for (AssemblylineEndpoint.Group group : AssemblylineEndpoint.Group.values()) {
+            if (group != AssemblylineEndpoint.Group.AUTH) {
+                CircuitBreaker circuitBreaker = new CircuitBreaker(group, properties.getFailureRateThreshold(),
+                        properties.getSlidingWindowSize(), properties.getMinimumCalls(),
+                        properties.getOpenDuration().toNanos(), properties.getHalfOpenCalls(), this::publish);
+                groups.put(group, circuitBreaker);
+                stats.put(group, new CircuitBreakerStats(circuitBreaker));
+            }
+        }
+    }
+
+    /**
+     * @return The stats of the circuit breaker of each group of endpoints.
+     */
+    Map<AssemblylineEndpoint.Group, CircuitBreakerStats> getStats() {
+        return Collections.unmodifiableMap(stats);
+    }
+
+    Flux<CircuitBreakerEvent> events() {
+        return events.asFlux();
+    }
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        AssemblylineEndpoint.Group group = AssemblylineEndpoint.of(request)
+                .map(AssemblylineEndpoint::getGroup)
+                .orElse(null);
+        CircuitBreaker circuitBreaker = group != null ? groups.get(group) : null;
+        if (circuitBreaker == null) {
+            return next.exchange(request);
+        }
+        return Mono.defer(() -> {
+            CircuitBreaker.Permit permit = circuitBreaker.tryAcquire();
+            if (permit == null) {
+                return Mono.error(new CircuitBreakerOpenException(group));
+            }
+            return next.exchange(request)
+                    .doOnNext(response -> {
+                        if (response.statusCode().is5xxServerError()) {
+                            permit.onFailure();
+                        } else {
+                            permit.onSuccess();
+                        }
+                    })
+                    .doOnError(e -> {
+                        if (e instanceof WebClientRequestException) {
+                            permit.onFailure();
+                        } else {
+                            permit.onIgnored();
+                        }
+                    })
+                    .doOnCancel(permit::onIgnored);
+        });
+    }
+
+    /**
+     * Synchronized because a sink must not be emitted to from several threads at once.
+     */
+    private synchronized void publish(CircuitBreakerEvent event) {
+        if (event.getTo() == CircuitBreakerState.OPEN) {
+            log.warn("Circuit breaker of {} endpoints opened; failure rate {}.", event.getGroup(),
+                    event.getFailureRate());
+        } else {
+            log.info("Circuit breaker of {} endpoints is now {}.", event.getGroup(), event.getTo());
+        }
+        events.tryEmitNext(event);
+    }
+}
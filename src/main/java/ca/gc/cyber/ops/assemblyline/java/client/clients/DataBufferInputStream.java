@@ -0,0 +1,226 @@
+package ca.gc.cyber.ops.assemblyline.java.client.clients;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscription;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import reactor.core.publisher.BaseSubscriber;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Objects;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * An InputStream that reads from a Publisher of DataBuffers.
+ * <p>
+ * Buffers are requested from the publisher one at a time for as long as fewer than {@code maxBufferedBytes} bytes are
+ * waiting to be read, so the publisher can stay up to that far ahead of the reader (plus at most one buffer). The
+ * buffers are handed to the reader as they are, without being copied into an intermediate buffer. Closing the stream
+ * cancels the subscription, which for a response body also ends the HTTP exchange.
+ */
+final class DataBufferInputStream extends InputStream {
+
+    private final long maxBufferedBytes;
+    private final BufferSubscriber subscriber = new BufferSubscriber();
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+
+    /* All of the following are guarded by lock. */
+    private final ArrayDeque<DataBuffer> buffers = new ArrayDeque<>();
+    private long bufferedBytes;
+    private boolean requestOutstanding;
+    private boolean complete;
+    private Throwable error;
+    private boolean closed;
+
+    /**
+     * @param source           The data to read. Subscribed to immediately.
+     * @param maxBufferedBytes How many bytes may be received ahead of the reader.
+     */
+    DataBufferInputStream(Publisher<DataBuffer> source, long maxBufferedBytes) {
+        if (maxBufferedBytes <= 0) {
+            throw new IllegalArgumentException("maxBufferedBytes must be positive.");
+        }
+        this.maxBufferedBytes = maxBufferedBytes;
+        source.subscribe(subscriber);
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] single = new byte[1];
+        int read = read(single, 0, 1);
+        return read == -1 ? -1 : Byte.toUnsignedInt(single[0]);
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        Objects.checkFromIndexSize(off, len, b.length);
+        if (len == 0) {
+            return 0;
+        }
+
+        int read = 0;
+        boolean request;
+        lock.lock();
+        try {
+            while (buffers.isEmpty() && !complete && !closed) {
+                awaitChange();
+            }
+            if (closed) {
+                throw new IOException("Stream closed.");
+            }
+            if (buffers.isEmpty()) {
+                if (error != null) {
+                    throw new IOException("Failed to read response body.", error);
+                }
+                return -1;
+            }
+
+            // Read as much as is available without blocking.
+            while (read < len && !buffers.isEmpty()) {
+                DataBuffer head = buffers.peek();
+                int count = Math.min(len - read, head.readableByteCount());
+                head.read(b, off + read, count);
+                read += count;
+                bufferedBytes -= count;
+                if (head.readableByteCount() == 0) {
+                    DataBufferUtils.release(buffers.poll());
+                }
+            }
+            request = shouldRequest();
+        } finally {
+            lock.unlock();
+        }
+
+        if (request) {
+            subscriber.request(1);
+        }
+        return read;
+    }
+
+    @Override
+    public int available() throws IOException {
+        lock.lock();
+        try {
+            if (closed) {
+                throw new IOException("Stream closed.");
+            }
+            return (int) Math.min(bufferedBytes, Integer.MAX_VALUE);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            releaseBuffers();
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        // Stops the download if the reader gave up before the end, rather than reading and discarding the rest of it.
+        subscriber.cancel();
+    }
+
+    /**
+     * Must be called with the lock held. If it returns true, the caller must request one buffer after releasing the
+     * lock; requesting while holding the lock could deliver the buffer on this thread while the state is inconsistent.
+     */
+    private boolean shouldRequest() {
+        if (requestOutstanding || complete || closed || bufferedBytes >= maxBufferedBytes) {
+            return false;
+        }
+        requestOutstanding = true;
+        return true;
+    }
+
+    private void awaitChange() throws InterruptedIOException {
+        try {
+            changed.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            InterruptedIOException interrupted = new InterruptedIOException("Interrupted while waiting for data.");
+            interrupted.initCause(e);
+            throw interrupted;
+        }
+    }
+
+    private void releaseBuffers() {
+        DataBuffer buffer;
+        while ((buffer = buffers.poll()) != null) {
+            DataBufferUtils.release(buffer);
+        }
+        bufferedBytes = 0;
+    }
+
+    private class BufferSubscriber extends BaseSubscriber<DataBuffer> {
+
+        @Override
+        protected void hookOnSubscribe(Subscription subscription) {
+            boolean request;
+            lock.lock();
+            try {
+                request = shouldRequest();
+            } finally {
+                lock.unlock();
+            }
+            if (request) {
+                request(1);
+            }
+        }
+
+        @Override
+        protected void hookOnNext(DataBuffer buffer) {
+            boolean request;
+            lock.lock();
+            try {
+                requestOutstanding = false;
+                if (closed) {
+                    DataBufferUtils.release(buffer);
+                    return;
+                }
+                buffers.add(buffer);
+                bufferedBytes += buffer.readableByteCount();
+                request = shouldRequest();
+                changed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            if (request) {
+                request(1);
+            }
+        }
+
+        @Override
+        protected void hookOnComplete() {
+            finish(null);
+        }
+
+        @Override
+        protected void hookOnError(Throwable throwable) {
+            finish(throwable);
+        }
+
+        private void finish(Throwable throwable) {
+            lock.lock();
+            try {
+                complete = true;
+                error = throwable;
+                changed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package ca.gc.cyber.ops.assemblyline.java.client.clients;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded set of SHA-256 hashes that AssemblyLine is known to have, so that hash-first ingestion can skip the
+ * presence check for files it has recently seen. The least recently used hashes are dropped first.
+ */
+class FilePresenceCache {
+
+    private final Map<String, Boolean> knownFiles;
+
+    FilePresenceCache(int maxSize) {
+        knownFiles = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > maxSize;
+            }
+        });
+    }
+
+    boolean contains(String sha256) {
+        // get() rather than containsKey() so that the entry counts as recently used.
+        return knownFiles.get(sha256) != null;
+    }
+
+    void add(String sha256) {
+        knownFiles.put(sha256, Boolean.TRUE);
+    }
+
+    void remove(String sha256) {
+        knownFiles.remove(sha256);
+    }
+}
@@ -1,17 +1,24 @@
 package ca.gc.cyber.ops.assemblyline.java.client.clients;
 
 import ca.gc.cyber.ops.assemblyline.java.client.model.DownloadFileParams;
+import ca.gc.cyber.ops.assemblyline.java.client.model.DownloadResult;
 import ca.gc.cyber.ops.assemblyline.java.client.model.FileInfo;
 import ca.gc.cyber.ops.assemblyline.java.client.model.FileResultForService;
 import ca.gc.cyber.ops.assemblyline.java.client.model.FileResults;
+import ca.gc.cyber.ops.assemblyline.java.client.model.FileResultsView;
 import ca.gc.cyber.ops.assemblyline.java.client.model.HashSearchResult;
+import ca.gc.cyber.ops.assemblyline.java.client.model.IngestMessageStreamOptions;
 import ca.gc.cyber.ops.assemblyline.java.client.model.IngestResponse;
 import ca.gc.cyber.ops.assemblyline.java.client.model.LoginResponse;
 import ca.gc.cyber.ops.assemblyline.java.client.model.ResultBlock;
 import ca.gc.cyber.ops.assemblyline.java.client.model.ingest.AsyncBinaryFile;
 import ca.gc.cyber.ops.assemblyline.java.client.model.ingest.BinaryFile;
+import ca.gc.cyber.ops.assemblyline.java.client.model.ingest.BulkIngestOptions;
 import ca.gc.cyber.ops.assemblyline.java.client.model.ingest.IngestBase;
+import ca.gc.cyber.ops.assemblyline.java.client.model.ingest.IngestOutcome;
 import ca.gc.cyber.ops.assemblyline.java.client.model.ingest.NonBinaryIngest;
+import ca.gc.cyber.ops.assemblyline.java.client.model.ingest.PathBinaryFile;
+import ca.gc.cyber.ops.assemblyline.java.client.model.submission.AwaitOptions;
 import ca.gc.cyber.ops.assemblyline.java.client.model.submission.IngestSubmissionResponse;
 import ca.gc.cyber.ops.assemblyline.java.client.model.submission.Submission;
 import ca.gc.cyber.ops.assemblyline.java.client.model.submission.SubmissionFileResults;
@@ -19,10 +26,13 @@ import ca.gc.cyber.ops.assemblyline.java.client.model.submission.SubmissionFull;
 import ca.gc.cyber.ops.assemblyline.java.client.model.submission.SubmissionTree;
 import ca.gc.cyber.ops.assemblyline.java.client.model.submit.NonBinarySubmit;
 import ca.gc.cyber.ops.assemblyline.java.client.model.submit.SubmitMetadata;
+import org.reactivestreams.Publisher;
+import org.springframework.core.io.buffer.DataBuffer;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.io.InputStream;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.Map;
 
@@ -47,6 +57,23 @@ public interface IAssemblylineClient {
 
     AssemblylineClient withAuthBearerToken(String authBearerToken);
 
+    /**
+     * @return A copy of this client that bypasses the response cache.
+     */
+    AssemblylineClient withoutCache();
+
+    /**
+     * Removes cached getFileInfo(), getFileResults() and getFileResultForService() responses for a file, e.g. after
+     * submitting it for analysis again.
+     *
+     * @param sha256 SHA256 of the file
+     */
+    void invalidateCachedFile(String sha256);
+
+    void invalidateCachedResult(String cacheKey);
+
+    void invalidateCache();
+
     Mono<LoginResponse> login();
 
     Mono<Boolean> isSubmissionComplete(String sid);
@@ -55,6 +82,8 @@ public interface IAssemblylineClient {
 
     Mono<FileResults> getFileResults(String sha256);
 
+    Mono<FileResults> getFileResults(String sha256, FileResultsView view);
+
     Mono<FileResultForService> getFileResultForService(String sha256, String serviceName);
 
     Mono<ResultBlock> getResult(String cacheKey);
@@ -65,6 +94,10 @@ public interface IAssemblylineClient {
 
     Mono<Submission> getSubmission(String sid);
 
+    Mono<Submission> awaitCompletion(String sid, AwaitOptions options);
+
+    Flux<Submission> awaitCompletion(Publisher<String> sids, AwaitOptions options);
+
     Mono<SubmissionFull> getSubmissionFull(String sid);
 
     Mono<IngestResponse> ingestUrlOrSha256(NonBinaryIngest ingest);
@@ -73,18 +106,53 @@ public interface IAssemblylineClient {
 
     Mono<IngestResponse> ingestAsyncBinary(AsyncBinaryFile<IngestBase> asyncBinaryIngest);
 
+    Mono<IngestResponse> ingestPathBinary(PathBinaryFile<IngestBase> pathBinaryIngest);
+
+    Flux<IngestOutcome<AsyncBinaryFile<IngestBase>>> ingestAll(Publisher<AsyncBinaryFile<IngestBase>> files,
+                                                               BulkIngestOptions options);
+
+    Flux<IngestOutcome<NonBinaryIngest>> ingestAllUrlOrSha256(Publisher<? extends NonBinaryIngest> ingests,
+                                                              BulkIngestOptions options);
+
     Flux<IngestSubmissionResponse> getIngestMessageList(String notification);
 
+    Flux<IngestSubmissionResponse> streamIngestMessages(String notificationQueue, IngestMessageStreamOptions options);
+
     Mono<Submission> submitUrlOrSha256(NonBinarySubmit submit);
 
     Mono<Submission> submitBinary(BinaryFile<SubmitMetadata> binaryIngest);
 
     Mono<Submission> submitAsyncBinary(AsyncBinaryFile<SubmitMetadata> asyncBinaryIngest);
 
+    Mono<Submission> submitPathBinary(PathBinaryFile<SubmitMetadata> pathBinaryIngest);
+
     InputStream downloadFile(String sha256);
 
     InputStream downloadFile(String sha256, DownloadFileParams params);
 
+    /**
+     * Downloads a file without blocking. The caller is responsible for releasing the returned buffers, e.g. with
+     * {@link org.springframework.core.io.buffer.DataBufferUtils#release(DataBuffer)}.
+     *
+     * @param sha256 SHA-256 of the file to download
+     * @param params Download parameters
+     * @return The contents of the file, as they are received
+     */
+    Flux<DataBuffer> downloadFileAsFlux(String sha256, DownloadFileParams params);
+
+    Mono<DownloadResult> downloadTo(Path destination, String sha256);
+
+    /**
+     * Downloads a file directly to local disk without blocking, replacing the destination if it already exists. The
+     * destination is deleted if the download fails.
+     *
+     * @param destination File to write to
+     * @param sha256      SHA-256 of the file to download
+     * @param params      Download parameters
+     * @return The number of bytes written and their SHA-256, computed while downloading
+     */
+    Mono<DownloadResult> downloadTo(Path destination, String sha256, DownloadFileParams params);
+
     Mono<List<String>> getHashSearchDataSources();
 
     Mono<Map<String, HashSearchResult>> hashSearch(String fileHash, List<String> dataSources, Integer maxTimeout);
@@ -0,0 +1,64 @@
+package ca.gc.cyber.ops.assemblyline.java.client.clients;
+
+import ca.gc.cyber.ops.assemblyline.java.client.model.submission.IngestSubmissionResponse;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters for the pollers reading a single notification queue with
+ * {@link IAssemblylineClient#streamIngestMessages}. Shared by all streams reading the same queue from the same client.
+ */
+public class IngestMessageStreamStats {
+
+    private final AtomicLong polls = new AtomicLong();
+    private final AtomicLong emptyPolls = new AtomicLong();
+    private final AtomicLong messages = new AtomicLong();
+    private final AtomicLong lagMillis = new AtomicLong();
+
+    /**
+     * @return Total number of polls.
+     */
+    public long getPolls() {
+        return polls.get();
+    }
+
+    /**
+     * @return Number of polls that returned no messages.
+     */
+    public long getEmptyPolls() {
+        return emptyPolls.get();
+    }
+
+    /**
+     * @return Total number of messages received.
+     */
+    public long getMessages() {
+        return messages.get();
+    }
+
+    /**
+     * @return Time between the ingestion of the newest message in the last non-empty batch and that batch being
+     * received. This is how far behind AssemblyLine the consumer is.
+     */
+    public Duration getLag() {
+        return Duration.ofMillis(lagMillis.get());
+    }
+
+    void recordPoll(List<IngestSubmissionResponse> batch) {
+        polls.incrementAndGet();
+        if (batch.isEmpty()) {
+            emptyPolls.incrementAndGet();
+            return;
+        }
+        messages.addAndGet(batch.size());
+        batch.stream()
+                .map(IngestSubmissionResponse::getIngestTime)
+                .filter(Objects::nonNull)
+                .max(Instant::compareTo)
+                .ifPresent(newest -> lagMillis.set(Math.max(0, Duration.between(newest, Instant.now()).toMillis())));
+    }
+}
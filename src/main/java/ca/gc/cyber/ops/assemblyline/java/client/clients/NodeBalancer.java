@@ -0,0 +1,112 @@
+package ca.gc.cyber.ops.assemblyline.java.client.clients;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Chooses the AssemblyLine node of each request, among the nodes that are not ejected:
+ * <ul>
+ *     <li>{@link AssemblylineClientProperties.LoadBalancing.Strategy#LEAST_OUTSTANDING}: the node with the fewest
+ *     outstanding requests, ties broken at random.</li>
+ *     <li>{@link AssemblylineClientProperties.LoadBalancing.Strategy#POWER_OF_TWO_CHOICES}: the one of two nodes
+ *     chosen at random with the fewer outstanding requests. Nearly as even, but many clients sharing the same nodes do
+ *     not all rush to the same least loaded one.</li>
+ * </ul>
+ * If every node is ejected, one is chosen anyway, since trying a node that may have recovered is better than failing
+ * every request.
+ */
+class NodeBalancer {
+
+    private final List<AssemblylineNode> nodes;
+    private final boolean leastOutstanding;
+
+    /**
+     * @param properties Properties with the URL, or URLs, of the nodes.
+     */
+    NodeBalancer(AssemblylineClientProperties properties) {
+        AssemblylineClientProperties.LoadBalancing loadBalancing = properties.getLoadBalancing();
+        List<AssemblylineNode> list = new ArrayList<>();
+        for (String url : urls(properties)) {
+            list.add(new AssemblylineNode(url, new AssemblylineSession(properties.getSession()),
+                    loadBalancing.getEjectAfterFailures(), loadBalancing.getEjectionDuration().toNanos()));
+        }
+        this.nodes = Collections.unmodifiableList(list);
+        this.leastOutstanding =
+                loadBalancing.getStrategy() == AssemblylineClientProperties.LoadBalancing.Strategy.LEAST_OUTSTANDING;
+    }
+
+    /**
+     * @return The base URLs of the nodes: the urls property if it is set, otherwise the url property.
+     */
+    static List<String> urls(AssemblylineClientProperties properties) {
+        List<String> urls = properties.getUrls();
+        return urls == null || urls.isEmpty() ? Collections.singletonList(properties.getUrl()) : urls;
+    }
+
+    List<AssemblylineNode> getNodes() {
+        return nodes;
+    }
+
+    /**
+     * @return The first node, whose base URL requests are built on.
+     */
+    AssemblylineNode getPrimary() {
+        return nodes.get(0);
+    }
+
+    boolean isSingleNode() {
+        return nodes.size() == 1;
+    }
+
+    /**
+     * @param avoid A node not to choose unless it is the only one available, e.g. the node a request to be sent again
+     *              just failed on. May be null.
+     * @return The node to send a request to.
+     */
+    AssemblylineNode choose(AssemblylineNode avoid) {
+        if (nodes.size() == 1) {
+            return nodes.get(0);
+        }
+        long now = System.nanoTime();
+        AssemblylineNode chosen = choose(now, avoid, true);
+        if (chosen == null && avoid != null) {
+            chosen = choose(now, null, true);
+        }
+        return chosen != null ? chosen : choose(now, null, false);
+    }
+
+    private AssemblylineNode choose(long now, AssemblylineNode avoid, boolean skipEjected) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        AssemblylineNode first = scan(random.nextInt(nodes.size()), now, avoid, skipEjected, null);
+        if (first == null || leastOutstanding) {
+            return first;
+        }
+        AssemblylineNode second = scan(random.nextInt(nodes.size()), now, avoid, skipEjected, first);
+        return second != null && second.getOutstanding() < first.getOutstanding() ? second : first;
+    }
+
+    /**
+     * @return Starting at the given index and wrapping around, the first node that can be chosen (for power of two
+     * choices) or the one of them with the fewest outstanding requests (for least outstanding), or null if none can
+     * be chosen.
+     */
+    private AssemblylineNode scan(int start, long now, AssemblylineNode avoid, boolean skipEjected,
+                                  AssemblylineNode exclude) {
+        AssemblylineNode best = null;
+        for (int i = 0; i < nodes.size(); i++) {
+            AssemblylineNode node = nodes.get((start + i) % nodes.size());
+            if (node == avoid || node == exclude || (skipEjected && node.isEjected(now))) {
+                continue;
+            }
+            if (!leastOutstanding) {
+                return node;
+            }
+            if (best == null || node.getOutstanding() < best.getOutstanding()) {
+                best = node;
+            }
+        }
+        return best;
+    }
+}
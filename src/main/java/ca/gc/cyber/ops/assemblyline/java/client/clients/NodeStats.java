@@ -0,0 +1,56 @@
+package ca.gc.cyber.ops.assemblyline.java.client.clients;
+
+/**
+ * Counters for one of the AssemblyLine nodes an {@link AssemblylineClient} balances its requests over. Shared by the
+ * client and all copies made from it.
+ */
+public class NodeStats {
+
+    private final AssemblylineNode node;
+
+    NodeStats(AssemblylineNode node) {
+        this.node = node;
+    }
+
+    /**
+     * @return The base URL of the node.
+     */
+    public String getUrl() {
+        return node.getBaseUrl();
+    }
+
+    /**
+     * @return Number of requests sent to the node whose response bodies have not been read yet.
+     */
+    public int getOutstanding() {
+        return node.getOutstanding();
+    }
+
+    /**
+     * @return Number of requests sent to the node.
+     */
+    public long getRequests() {
+        return node.getRequests();
+    }
+
+    /**
+     * @return Number of requests to the node that failed with a 5xx or without a response.
+     */
+    public long getFailures() {
+        return node.getFailures();
+    }
+
+    /**
+     * @return Number of times the node was ejected.
+     */
+    public long getEjections() {
+        return node.getEjections();
+    }
+
+    /**
+     * @return Whether the node is currently ejected.
+     */
+    public boolean isEjected() {
+        return node.isEjected(System.nanoTime());
+    }
+}
@@ -0,0 +1,92 @@
+package ca.gc.cyber.ops.assemblyline.java.client.clients;
+
+import org.springframework.web.util.UriUtils;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The path of an AssemblyLine endpoint, such as {@code api/v4/file/info/{sha256}/}, split once into the literal parts
+ * around its variables so that expanding it only appends strings. Values are encoded the way
+ * {@link org.springframework.web.util.UriBuilder#build(Object...)} encodes them: every character that is not
+ * unreserved is percent-encoded, including "/". SHA256s, SIDs and cache keys are made only of unreserved characters,
+ * so they are appended as they are.
+ */
+final class PathTemplate {
+
+    private final String template;
+
+    /**
+     * The parts of the template before, between and after its variables.
+     */
+    private final String[] literals;
+
+    /**
+     * @param template The path, relative to the base URL, with variables between braces.
+     * @throws IllegalArgumentException If the path does not end with a slash.
+     */
+    PathTemplate(String template) {
+        /* If the path doesn't end with a "/", Assemblyline returns a redirect. If we try to follow the redirect,
+        authentication (and by extension the entire request) fails. */
+        if (!template.endsWith("/")) {
+            throw new IllegalArgumentException("Request URI path template does not end with a slash. URI = " + template);
+        }
+        List<String> parts = new ArrayList<>();
+        int start = 0;
+        int open;
+        while ((open = template.indexOf('{', start)) >= 0) {
+            int close = template.indexOf('}', open);
+            if (close < 0) {
+                throw new IllegalArgumentException("Request URI path template has an unclosed variable. URI = " + template);
+            }
+            parts.add(template.substring(start, open));
+            start = close + 1;
+        }
+        parts.add(template.substring(start));
+        this.template = template;
+        this.literals = parts.toArray(new String[0]);
+    }
+
+    /**
+     * @param baseUrl The base URL, without a trailing slash.
+     * @param values  The values of the variables, in order. Null values are expanded to an empty string.
+     * @return The URI of the path on the base URL.
+     */
+    URI expand(String baseUrl, Object... values) {
+        if (values.length < literals.length - 1) {
+            throw new IllegalArgumentException("Not enough values to expand " + template);
+        }
+        StringBuilder uri = new StringBuilder(baseUrl.length() + template.length() + 64)
+                .append(baseUrl)
+                .append('/')
+                .append(literals[0]);
+        for (int i = 1; i < literals.length; i++) {
+            appendEncoded(uri, values[i - 1]);
+            uri.append(literals[i]);
+        }
+        return URI.create(uri.toString());
+    }
+
+    @Override
+    public String toString() {
+        return template;
+    }
+
+    private static void appendEncoded(StringBuilder uri, Object value) {
+        String string = value != null ? value.toString() : "";
+        for (int i = 0; i < string.length(); i++) {
+            if (!isUnreserved(string.charAt(i))) {
+                uri.append(UriUtils.encode(string, StandardCharsets.UTF_8));
+                return;
+            }
+        }
+        uri.append(string);
+    }
+
+    private static boolean isUnreserved(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                || c == '-' || c == '.' || c == '_' || c == '~';
+    }
+}
@@ -0,0 +1,44 @@
+package ca.gc.cyber.ops.assemblyline.java.client.clients;
+
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Spaces out polls so that all of them together stay under a fixed rate, however many submissions are being waited
+ * on. Each poll reserves the next free slot and waits for it, so polls are spread evenly rather than sent in bursts.
+ */
+class PollBudget {
+
+    private final long intervalNanos;
+    private final AtomicLong nextSlot = new AtomicLong(System.nanoTime());
+
+    /**
+     * @param maxPollsPerSecond Maximum rate of polls. Zero or less means no limit.
+     */
+    PollBudget(double maxPollsPerSecond) {
+        this.intervalNanos = maxPollsPerSecond > 0 ? (long) (1_000_000_000L / maxPollsPerSecond) : 0;
+    }
+
+    /**
+     * @return A Mono that completes when the caller may send its poll.
+     */
+    Mono<Void> acquire() {
+        return Mono.defer(() -> {
+            if (intervalNanos == 0) {
+                return Mono.empty();
+            }
+            long now = System.nanoTime();
+            long slot = nextSlot.getAndUpdate(next -> later(next, now) + intervalNanos);
+            long wait = later(slot, now) - now;
+            return wait <= 0 ? Mono.empty() : Mono.delay(Duration.ofNanos(wait), Schedulers.parallel()).then();
+        });
+    }
+
+    private static long later(long a, long b) {
+        // nanoTime() values must be compared by their difference, in case they overflow.
+        return a - b > 0 ? a : b;
+    }
+}
@@ -0,0 +1,23 @@
+package ca.gc.cyber.ops.assemblyline.java.client.clients;
+
+import lombok.Getter;
+
+import java.time.Duration;
+
+/**
+ * Thrown when a request is not sent because it could not get past the client's rate or concurrency limit for its
+ * group of endpoints within the maximum wait, or because too many requests were already waiting.
+ */
+@Getter
+public class RequestLimitExceededException extends RuntimeException {
+
+    private final AssemblylineEndpoint.Group group;
+    private final Duration maxWait;
+
+    public RequestLimitExceededException(AssemblylineEndpoint.Group group, Duration maxWait) {
+        super("Request to " + group + " endpoints was not sent: the client's limit was not available within "
+                + maxWait + ".");
+        this.group = group;
+        this.maxWait = maxWait;
+    }
+}
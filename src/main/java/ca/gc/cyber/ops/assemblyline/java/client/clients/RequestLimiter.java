@@ -0,0 +1,136 @@
+package ca.gc.cyber.ops.assemblyline.java.client.clients;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Shapes the requests of an {@link AssemblylineClient} with a rate limit ({@link TokenBucket}) and an adaptive
+ * concurrency limit ({@link AdaptiveConcurrencyLimit}) for each group of endpoints. A request first waits for its rate
+ * slot, then for a concurrency permit, for up to maxWait in total; if it cannot be sent in time, it fails with a
+ * {@link RequestLimitExceededException}. A request holds its concurrency permit until its response body has been read
+ * or released. Logins and requests without an {@link AssemblylineEndpoint} are not limited.
+ */
+class RequestLimiter implements ExchangeFilterFunction {
+
+    private final Duration maxWait;
+    private final Map<AssemblylineEndpoint.Group, GroupLimiter> groups = new EnumMap<>(AssemblylineEndpoint.Group.class);
+
+    RequestLimiter(AssemblylineClientProperties.Limiter properties) {
+        this.maxWait = properties.getMaxWait();
+        AssemblylineClientProperties.Limiter.Concurrency concurrency = properties.getConcurrency();
+        for (AssemblylineEndpoint.Group group : AssemblylineEndpoint.Group.values()) {
+            AssemblylineClientProperties.Limiter.Rate rate = properties.getRates().get(group);
+            if (group == AssemblylineEndpoint.Group.AUTH || (rate == null && !concurrency.isEnabled())) {
+                continue;
+            }
+            TokenBucket bucket = rate != null ? new TokenBucket(rate.getRequestsPerSecond(), rate.getBurst()) : null;
+            AdaptiveConcurrencyLimit concurrencyLimit = concurrency.isEnabled()
+                    ? new AdaptiveConcurrencyLimit(concurrency.getInitialLimit(), concurrency.getMinLimit(),
+                    concurrency.getMaxLimit(), concurrency.getBackoffRatio(), concurrency.getLatencyTolerance(),
+                    properties.getMaxQueued())
+                    : null;
+            groups.put(group, new GroupLimiter(group, bucket, concurrencyLimit));
+        }
+    }
+
+    /**
+     * @return Whether the properties limit any group of endpoints.
+     */
+    static boolean isEnabled(AssemblylineClientProperties.Limiter properties) {
+        return !properties.getRates().isEmpty() || properties.getConcurrency().isEnabled();
+    }
+
+    /**
+     * @return The stats of each limited group of endpoints.
+     */
+    Map<AssemblylineEndpoint.Group, RequestLimiterStats> getStats() {
+        Map<AssemblylineEndpoint.Group, RequestLimiterStats> stats = new EnumMap<>(AssemblylineEndpoint.Group.class);
+        groups.forEach((group, limiter) -> stats.put(group, limiter.stats));
+        return Collections.unmodifiableMap(stats);
+    }
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        GroupLimiter limiter = AssemblylineEndpoint.of(request)
+                .map(endpoint -> groups.get(endpoint.getGroup()))
+                .orElse(null);
+        return limiter != null ? limiter.exchange(request, next) : next.exchange(request);
+    }
+
+    /**
+     * @return Whether the response shows that AssemblyLine is overloaded.
+     */
+    private static boolean isOverloaded(ClientResponse response) {
+        int status = response.statusCode().value();
+        return status == HttpStatus.TOO_MANY_REQUESTS.value() || status == HttpStatus.SERVICE_UNAVAILABLE.value();
+    }
+
+    private class GroupLimiter {
+        private final AssemblylineEndpoint.Group group;
+        private final TokenBucket bucket;
+        private final AdaptiveConcurrencyLimit concurrencyLimit;
+        private final RequestLimiterStats stats;
+
+        GroupLimiter(AssemblylineEndpoint.Group group, TokenBucket bucket, AdaptiveConcurrencyLimit concurrencyLimit) {
+            this.group = group;
+            this.bucket = bucket;
+            this.concurrencyLimit = concurrencyLimit;
+            this.stats = new RequestLimiterStats(concurrencyLimit);
+        }
+
+        Mono<ClientResponse> exchange(ClientRequest request, ExchangeFunction next) {
+            return Mono.defer(() -> {
+                long start = System.nanoTime();
+                long rateWait = bucket != null ? bucket.reserve(maxWait.toNanos()) : 0;
+                if (rateWait < 0) {
+                    return rejected();
+                }
+                Mono<Void> rateSlot = rateWait > 0
+                        ? Mono.delay(Duration.ofNanos(rateWait), Schedulers.parallel()).then()
+                        : Mono.empty();
+                if (concurrencyLimit == null) {
+                    return rateSlot.then(Mono.defer(() -> {
+                        stats.recordAcquired(rateWait);
+                        return next.exchange(request);
+                    }));
+                }
+                return rateSlot.then(Mono.defer(() -> concurrencyLimit.acquire(maxWait.toNanos() - rateWait)))
+                        .flatMap(permit -> {
+                            long sent = System.nanoTime();
+                            stats.recordAcquired(rateWait > 0 || permit.wasQueued() ? sent - start : 0);
+                            return next.exchange(request)
+                                    .map(response -> {
+                                        boolean overloaded = isOverloaded(response);
+                                        return response.mutate()
+                                                // Released before the body completes downstream, so that the
+                                                // stats are up to date once the caller has the decoded response.
+                                                .body(body -> body
+                                                        .doOnComplete(() -> permit.release(System.nanoTime() - sent,
+                                                                overloaded))
+                                                        .doOnError(e -> permit.release(System.nanoTime() - sent, true))
+                                                        .doOnCancel(permit::cancel))
+                                                .build();
+                                    })
+                                    .doOnError(e -> permit.release(System.nanoTime() - sent, true))
+                                    .doOnCancel(permit::cancel);
+                        })
+                        .switchIfEmpty(Mono.defer(this::rejected));
+            });
+        }
+
+        private Mono<ClientResponse> rejected() {
+            stats.recordRejected();
+            return Mono.error(new RequestLimitExceededException(group, maxWait));
+        }
+    }
+}
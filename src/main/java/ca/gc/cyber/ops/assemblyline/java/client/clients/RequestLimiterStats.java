@@ -0,0 +1,85 @@
+package ca.gc.cyber.ops.assemblyline.java.client.clients;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters for the rate and concurrency limits of a group of endpoints of an {@link AssemblylineClient}. Shared by the
+ * client and all copies made from it.
+ */
+public class RequestLimiterStats {
+
+    private final AdaptiveConcurrencyLimit concurrencyLimit;
+    private final AtomicLong acquired = new AtomicLong();
+    private final AtomicLong delayed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong waitNanos = new AtomicLong();
+
+    RequestLimiterStats(AdaptiveConcurrencyLimit concurrencyLimit) {
+        this.concurrencyLimit = concurrencyLimit;
+    }
+
+    /**
+     * @return Number of requests that were let through, including those that had to wait.
+     */
+    public long getAcquired() {
+        return acquired.get();
+    }
+
+    /**
+     * @return Number of requests that had to wait before being sent.
+     */
+    public long getDelayed() {
+        return delayed.get();
+    }
+
+    /**
+     * @return Number of requests that failed with a {@link RequestLimitExceededException}.
+     */
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    /**
+     * @return Total time that the requests let through spent waiting.
+     */
+    public Duration getTotalWait() {
+        return Duration.ofNanos(waitNanos.get());
+    }
+
+    /**
+     * @return Current concurrency limit, or 0 if the concurrency of this group is not limited.
+     */
+    public int getConcurrencyLimit() {
+        return concurrencyLimit != null ? concurrencyLimit.getLimit() : 0;
+    }
+
+    /**
+     * @return Number of requests currently in flight, if the concurrency of this group is limited. Otherwise 0.
+     */
+    public int getInFlight() {
+        return concurrencyLimit != null ? concurrencyLimit.getInFlight() : 0;
+    }
+
+    /**
+     * @return Number of requests currently waiting for the concurrency limit.
+     */
+    public int getQueued() {
+        return concurrencyLimit != null ? concurrencyLimit.getQueued() : 0;
+    }
+
+    /**
+     * @param waitedNanos How long the request waited, or 0 if it did not have to wait.
+     */
+    void recordAcquired(long waitedNanos) {
+        acquired.incrementAndGet();
+        if (waitedNanos > 0) {
+            delayed.incrementAndGet();
+            waitNanos.addAndGet(waitedNanos);
+        }
+    }
+
+    void recordRejected() {
+        rejected.incrementAndGet();
+    }
+}
@@ -0,0 +1,172 @@
+package ca.gc.cyber.ops.assemblyline.java.client.clients;
+
+import lombok.Value;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Predicate;
+
+/**
+ * An in-memory cache of AssemblyLine responses, bounded by the number of entries and by their total size. The least
+ * recently used responses are evicted first, and each response expires after the TTL configured for its endpoint.
+ * <p>
+ * Responses are cached separately for each auth bearer token, since AssemblyLine may show different users different
+ * data for the same file.
+ * <p>
+ * The cache holds the bodies of the responses, which are never modified, so each hit can be decoded into a new object.
+ * An entry weighs the size of its body.
+ */
+class ResponseCache {
+
+    enum Endpoint {
+        FILE_INFO,
+        FILE_RESULTS,
+        FILE_RESULT_FOR_SERVICE,
+        RESULT
+    }
+
+    private final AssemblylineClientProperties.Cache properties;
+    private final long maxWeight;
+    private final ResponseCacheStats stats = new ResponseCacheStats();
+
+    /* Guarded by this. */
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long weight;
+
+    ResponseCache(AssemblylineClientProperties.Cache properties) {
+        this.properties = properties;
+        this.maxWeight = properties.getMaxWeight().toBytes();
+    }
+
+    ResponseCacheStats getStats() {
+        return stats;
+    }
+
+    boolean isCached(Endpoint endpoint) {
+        Duration ttl = ttl(endpoint);
+        return !ttl.isNegative() && !ttl.isZero();
+    }
+
+    /**
+     * @param principal The auth bearer token the response was requested with, or null.
+     * @param id        The SHA256 or cache key that was looked up.
+     * @param service   The service name for {@link Endpoint#FILE_RESULT_FOR_SERVICE}, otherwise null.
+     * @return The body of the cached response, or null if there is none or it has expired.
+     */
+    synchronized byte[] get(Endpoint endpoint, String principal, String id, String service) {
+        Key key = new Key(endpoint, principal, id, service);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            stats.recordMiss();
+            return null;
+        }
+        if (entry.isExpired(System.nanoTime())) {
+            remove(key);
+            stats.recordExpiration();
+            stats.recordMiss();
+            return null;
+        }
+        stats.recordHit();
+        return entry.body;
+    }
+
+    /**
+     * @param body The body of the response. It must not be modified afterwards.
+     */
+    void put(Endpoint endpoint, String principal, String id, String service, byte[] body) {
+        if (body.length > maxWeight) {
+            return;
+        }
+        long expiresAt = System.nanoTime() + ttl(endpoint).toNanos();
+        synchronized (this) {
+            Entry previous = entries.put(new Key(endpoint, principal, id, service), new Entry(body, expiresAt));
+            if (previous != null) {
+                weight -= previous.weight();
+            }
+            weight += body.length;
+            evictIfNeeded();
+        }
+    }
+
+    /**
+     * Removes all responses about the given file, except results looked up by cache key.
+     */
+    synchronized void invalidateFile(String sha256) {
+        removeIf(key -> key.endpoint != Endpoint.RESULT && key.id.equals(sha256));
+    }
+
+    synchronized void invalidateResult(String cacheKey) {
+        removeIf(key -> key.endpoint == Endpoint.RESULT && key.id.equals(cacheKey));
+    }
+
+    synchronized void invalidateAll() {
+        entries.clear();
+        weight = 0;
+    }
+
+    private Duration ttl(Endpoint endpoint) {
+        return switch (endpoint) {
+            case FILE_INFO -> properties.getFileInfoTtl();
+            case FILE_RESULTS -> properties.getFileResultsTtl();
+            case FILE_RESULT_FOR_SERVICE -> properties.getFileResultForServiceTtl();
+            case RESULT -> properties.getResultTtl();
+        };
+    }
+
+    private void remove(Key key) {
+        Entry removed = entries.remove(key);
+        if (removed != null) {
+            weight -= removed.weight();
+        }
+    }
+
+    private void removeIf(Predicate<Key> predicate) {
+        // Iterates over the entries rather than calling get(), which would reorder the map while iterating.
+        Iterator<Map.Entry<Key, Entry>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Key, Entry> entry = iterator.next();
+            if (predicate.test(entry.getKey())) {
+                weight -= entry.getValue().weight();
+                iterator.remove();
+            }
+        }
+    }
+
+    private void evictIfNeeded() {
+        Iterator<Map.Entry<Key, Entry>> eldest = entries.entrySet().iterator();
+        while ((entries.size() > properties.getMaxEntries() || weight > maxWeight) && eldest.hasNext()) {
+            weight -= eldest.next().getValue().weight();
+            eldest.remove();
+            stats.recordEviction();
+        }
+    }
+
+    @Value
+    private static class Key {
+        Endpoint endpoint;
+        String principal;
+        String id;
+        String service;
+    }
+
+    private static final class Entry {
+        private final byte[] body;
+        private final long expiresAt;
+
+        private Entry(byte[] body, long expiresAt) {
+            this.body = Objects.requireNonNull(body);
+            this.expiresAt = expiresAt;
+        }
+
+        private long weight() {
+            return body.length;
+        }
+
+        private boolean isExpired(long now) {
+            return now - expiresAt >= 0;
+        }
+    }
+}
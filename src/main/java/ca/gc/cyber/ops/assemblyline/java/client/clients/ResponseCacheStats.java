@@ -0,0 +1,58 @@
+package ca.gc.cyber.ops.assemblyline.java.client.clients;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters for the response cache of an {@link AssemblylineClient}. Shared by the client and all copies made from it.
+ */
+public class ResponseCacheStats {
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+
+    /**
+     * @return Number of lookups answered from the cache.
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return Number of lookups that had to be sent to AssemblyLine, including lookups of expired responses.
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * @return Number of responses removed to stay within the configured number of entries or size.
+     */
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * @return Number of responses removed because their TTL had passed.
+     */
+    public long getExpirations() {
+        return expirations.get();
+    }
+
+    void recordHit() {
+        hits.incrementAndGet();
+    }
+
+    void recordMiss() {
+        misses.incrementAndGet();
+    }
+
+    void recordEviction() {
+        evictions.incrementAndGet();
+    }
+
+    void recordExpiration() {
+        expirations.incrementAndGet();
+    }
+}
@@ -0,0 +1,45 @@
+package ca.gc.cyber.ops.assemblyline.java.client.clients;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stops retries when too many requests are failing, so that retries do not add to the load of an AssemblyLine that is
+ * already struggling. This is the retry throttling of gRPC: the budget starts full with maxTokens tokens; every
+ * retryable failure takes one token, and every other response gives back tokenRatio of a token. Retries are only
+ * allowed while more than half of the tokens are left, so in the long run, retries stop once more than about
+ * tokenRatio failures happen per success.
+ */
+class RetryBudget {
+
+    /**
+     * Tokens are counted in thousandths, so that fractions of a token can be given back without locking.
+     */
+    private static final long SCALE = 1000;
+
+    private final long maxTokens;
+    private final long tokenRatio;
+    private final AtomicLong tokens;
+
+    RetryBudget(int maxTokens, double tokenRatio) {
+        this.maxTokens = maxTokens * SCALE;
+        this.tokenRatio = (long) (tokenRatio * SCALE);
+        this.tokens = new AtomicLong(this.maxTokens);
+    }
+
+    void recordSuccess() {
+        if (tokens.get() < maxTokens) {
+            tokens.updateAndGet(current -> Math.min(maxTokens, current + tokenRatio));
+        }
+    }
+
+    /**
+     * @return Whether the failed request may be retried.
+     */
+    boolean recordFailure() {
+        return tokens.updateAndGet(current -> Math.max(0, current - SCALE)) > maxTokens / 2;
+    }
+
+    double getTokens() {
+        return (double) tokens.get() / SCALE;
+    }
+}
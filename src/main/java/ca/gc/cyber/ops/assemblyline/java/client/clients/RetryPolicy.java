@@ -0,0 +1,221 @@
+package ca.gc.cyber.ops.assemblyline.java.client.clients;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.util.context.ContextView;
+
+import java.net.ConnectException;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Retries requests that fail transiently: without a response (e.g. the connection was reset, or no connection could be
+ * taken from the pool in time), or with one of the configured statuses (by default 429, and the 502, 503 and 504
+ * returned by the load balancer in front of AssemblyLine). Each retry waits for an exponentially growing, jittered
+ * delay, or for the Retry-After of the response if that is longer, up to maxBackoff. Retries stop when the
+ * {@link RetryBudget} runs out.
+ * <p>
+ * Whether a request can be sent again depends on its endpoint:
+ * <ul>
+ *     <li>Logins and lookups are idempotent, and are always retried.</li>
+ *     <li>Ingest and submit are not: sending one again may analyze the file twice. They are only retried if the
+ *     request cannot have reached AssemblyLine (the connection could not be opened, or taken from the pool), or was
+ *     refused with a 429 or 503. If the caller gave the request an idempotency key, so that it can recognize
+ *     duplicates, they are retried like lookups.</li>
+ *     <li>Uploads read from a publisher are only retried if the request could not be sent, since the publisher may
+ *     not be readable twice.</li>
+ * </ul>
+ * Each attempt is sent with its number in the {@link AssemblylineClient#RETRY_ATTEMPT_CONTEXT_KEY} context entry.
+ */
+class RetryPolicy implements ExchangeFilterFunction {
+
+    /**
+     * Context entry set to true for a non-idempotent request that the caller gave an idempotency key.
+     */
+    static final String IDEMPOTENT_CONTEXT_KEY = RetryPolicy.class.getName() + ".idempotent";
+    /**
+     * Context entry set to true for a request whose body can only be written once.
+     */
+    static final String SINGLE_USE_BODY_CONTEXT_KEY = RetryPolicy.class.getName() + ".singleUseBody";
+
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final double multiplier;
+    private final double jitter;
+    private final Set<Integer> statusCodes;
+    private final RetryBudget budget;
+    private final RetryStats stats;
+
+    RetryPolicy(AssemblylineClientProperties.Retry properties) {
+        this.maxAttempts = properties.getMaxAttempts();
+        this.initialBackoff = properties.getInitialBackoff();
+        this.maxBackoff = properties.getMaxBackoff();
+        this.multiplier = properties.getMultiplier();
+        this.jitter = properties.getJitter();
+        this.statusCodes = Set.copyOf(properties.getStatusCodes());
+        this.budget = new RetryBudget(properties.getBudget().getMaxTokens(), properties.getBudget().getTokenRatio());
+        this.stats = new RetryStats(budget);
+    }
+
+    RetryStats getStats() {
+        return stats;
+    }
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        return Mono.deferContextual(context -> attempt(request, next, new Safety(request, context),
+                context.getOrDefault(AssemblylineClient.RETRY_ATTEMPT_CONTEXT_KEY, 0), 0));
+    }
+
+    /**
+     * @param firstAttempt The attempt number of the first attempt, which is more than 0 for a request that was
+     *                     already sent again after a 401.
+     * @param retries      Number of retries so far.
+     */
+    private Mono<ClientResponse> attempt(ClientRequest request, ExchangeFunction next, Safety safety, int firstAttempt,
+                                         int retries) {
+        int attempt = firstAttempt + retries;
+        // An empty result means that the request is to be sent again.
+        return next.exchange(request)
+                .contextWrite(context -> attempt > 0
+                        ? context.put(AssemblylineClient.RETRY_ATTEMPT_CONTEXT_KEY, attempt)
+                        : context)
+                .flatMap(response -> {
+                    int status = response.statusCode().value();
+                    if (!statusCodes.contains(status)) {
+                        budget.recordSuccess();
+                        return Mono.just(response);
+                    }
+                    Duration delay = retryDelay(retries, safety.allowsRetryOf(status), retryAfter(response));
+                    return delay == null
+                            ? Mono.just(response)
+                            : response.releaseBody().then(Mono.delay(delay)).then(Mono.<ClientResponse>empty());
+                })
+                .onErrorResume(WebClientRequestException.class, e -> {
+                    Duration delay = retryDelay(retries, safety.allowsRetryOf(e), null);
+                    return delay == null
+                            ? Mono.error(e)
+                            : Mono.delay(delay).then(Mono.empty());
+                })
+                .switchIfEmpty(Mono.defer(() -> attempt(request, next, safety, firstAttempt, retries + 1)));
+    }
+
+    /**
+     * Records a transient failure, and decides whether to retry it.
+     *
+     * @param retries    Number of retries so far.
+     * @param allowed    Whether the request can safely be sent again.
+     * @param retryAfter The Retry-After of the response, if any.
+     * @return How long to wait before retrying, or null not to retry.
+     */
+    private Duration retryDelay(int retries, boolean allowed, Duration retryAfter) {
+        boolean withinBudget = budget.recordFailure();
+        if (!allowed) {
+            stats.recordUnsafe();
+            return null;
+        }
+        if (retries + 1 >= maxAttempts) {
+            stats.recordExhausted();
+            return null;
+        }
+        if (!withinBudget) {
+            stats.recordBudgetExceeded();
+            return null;
+        }
+        stats.recordRetry();
+        double backoffNanos = initialBackoff.toNanos() * Math.pow(multiplier, retries);
+        Duration backoff = AssemblylineClient.jittered(backoffNanos >= maxBackoff.toNanos()
+                ? maxBackoff
+                : Duration.ofNanos((long) backoffNanos), jitter);
+        if (retryAfter != null && retryAfter.compareTo(backoff) > 0) {
+            return retryAfter.compareTo(maxBackoff) < 0 ? retryAfter : maxBackoff;
+        }
+        return backoff;
+    }
+
+    /**
+     * @return The delay in seconds given by the Retry-After header of the response, or null if there is none. Dates
+     * are not supported.
+     */
+    private static Duration retryAfter(ClientResponse response) {
+        return response.headers().header(HttpHeaders.RETRY_AFTER).stream()
+                .findFirst()
+                .filter(value -> !value.isEmpty() && value.chars().allMatch(Character::isDigit))
+                .map(value -> Duration.ofSeconds(Long.parseLong(value)))
+                .orElse(null);
+    }
+
+    /**
+     * @return Whether the request failed before it could be sent: it could not connect, or could not get a
+     * connection from the pool in time.
+     */
+    private static boolean wasNotSent(Throwable throwable) {
+        for (Throwable cause = throwable; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConnectException || cause instanceof TimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * How safe it is to send a request again. Also used by callers that retry a whole operation, such as
+     * {@link AssemblylineClient#ingestAll}, so that they do not retry what this policy would refuse to.
+     */
+    static class Safety {
+        private final boolean idempotent;
+        private final boolean singleUseBody;
+
+        /**
+         * @param idempotent    Whether sending the request twice has the same effect as sending it once.
+         * @param singleUseBody Whether the body of the request can only be written once.
+         */
+        Safety(boolean idempotent, boolean singleUseBody) {
+            this.idempotent = idempotent;
+            this.singleUseBody = singleUseBody;
+        }
+
+        Safety(ClientRequest request, ContextView context) {
+            this(AssemblylineEndpoint.of(request)
+                            .map(AssemblylineEndpoint::isIdempotent)
+                            .orElse(HttpMethod.GET.equals(request.method()))
+                            || context.getOrDefault(IDEMPOTENT_CONTEXT_KEY, false),
+                    context.getOrDefault(SINGLE_USE_BODY_CONTEXT_KEY, false));
+        }
+
+        boolean allowsRetryOf(int status) {
+            return !singleUseBody && (idempotent
+                    || status == HttpStatus.TOO_MANY_REQUESTS.value()
+                    || status == HttpStatus.SERVICE_UNAVAILABLE.value());
+        }
+
+        boolean allowsRetryOf(WebClientRequestException e) {
+            return wasNotSent(e) || (idempotent && !singleUseBody);
+        }
+
+        /**
+         * @return Whether the request can safely be sent again after failing with the given error: it failed without
+         * a response and {@link #allowsRetryOf(WebClientRequestException)}, or with a 429 or 5xx response and
+         * {@link #allowsRetryOf(int)}.
+         */
+        boolean allowsRetryOf(Throwable throwable) {
+            if (throwable instanceof WebClientRequestException e) {
+                return allowsRetryOf(e);
+            }
+            return throwable instanceof WebClientResponseException e
+                    && (e.getStatusCode().is5xxServerError()
+                    || e.getStatusCode().value() == HttpStatus.TOO_MANY_REQUESTS.value())
+                    && allowsRetryOf(e.getStatusCode().value());
+        }
+    }
+}
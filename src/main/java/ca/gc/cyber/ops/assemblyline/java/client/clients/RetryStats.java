@@ -0,0 +1,72 @@
+package ca.gc.cyber.ops.assemblyline.java.client.clients;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters for the retries of transient failures by an {@link AssemblylineClient}. Shared by the client and all copies
+ * made from it. Retries after a 401 are not counted here.
+ */
+public class RetryStats {
+
+    private final RetryBudget budget;
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong exhausted = new AtomicLong();
+    private final AtomicLong budgetExceeded = new AtomicLong();
+    private final AtomicLong unsafe = new AtomicLong();
+
+    RetryStats(RetryBudget budget) {
+        this.budget = budget;
+    }
+
+    /**
+     * @return Number of requests sent again after a transient failure.
+     */
+    public long getRetries() {
+        return retries.get();
+    }
+
+    /**
+     * @return Number of requests that still failed after their last attempt.
+     */
+    public long getExhausted() {
+        return exhausted.get();
+    }
+
+    /**
+     * @return Number of failures that were not retried because too many requests were failing.
+     */
+    public long getBudgetExceeded() {
+        return budgetExceeded.get();
+    }
+
+    /**
+     * @return Number of failures that were not retried because the request may already have been processed, and it
+     * could not safely be sent again.
+     */
+    public long getUnsafe() {
+        return unsafe.get();
+    }
+
+    /**
+     * @return Tokens left in the retry budget.
+     */
+    public double getBudgetTokens() {
+        return budget.getTokens();
+    }
+
+    void recordRetry() {
+        retries.incrementAndGet();
+    }
+
+    void recordExhausted() {
+        exhausted.incrementAndGet();
+    }
+
+    void recordBudgetExceeded() {
+        budgetExceeded.incrementAndGet();
+    }
+
+    void recordUnsafe() {
+        unsafe.incrementAndGet();
+    }
+}
@@ -0,0 +1,79 @@
+package ca.gc.cyber.ops.assemblyline.java.client.clients;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import reactor.core.publisher.Mono;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Computes SHA-256 hashes of local data, in the lowercase hex format used by AssemblyLine.
+ */
+final class Sha256Digest {
+
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    private final MessageDigest digest;
+
+    Sha256Digest() {
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java implementation is required to support SHA-256.
+            throw new IllegalStateException("SHA-256 is not supported by this JVM.", e);
+        }
+    }
+
+    /**
+     * Adds the readable bytes of the buffer to the hash, without changing the buffer's read position.
+     *
+     * @param dataBuffer The data to add.
+     */
+    void update(DataBuffer dataBuffer) {
+        try (DataBuffer.ByteBufferIterator iterator = dataBuffer.readableByteBuffers()) {
+            while (iterator.hasNext()) {
+                digest.update(iterator.next());
+            }
+        }
+    }
+
+    void update(ByteBuffer byteBuffer) {
+        digest.update(byteBuffer);
+    }
+
+    /**
+     * @return The hash of all data added so far, as lowercase hex.
+     */
+    String hex() {
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    static String of(byte[] data) {
+        Sha256Digest sha256 = new Sha256Digest();
+        sha256.update(ByteBuffer.wrap(data));
+        return sha256.hex();
+    }
+
+    /**
+     * Hashes a local file by streaming it through the digest, so the file is never held in memory as a whole.
+     *
+     * @param path The file to hash.
+     * @return The hash of the file, as lowercase hex.
+     */
+    static Mono<String> of(Path path) {
+        return Mono.defer(() -> {
+            Sha256Digest sha256 = new Sha256Digest();
+            return DataBufferUtils.read(path, DefaultDataBufferFactory.sharedInstance, READ_BUFFER_SIZE)
+                    .doOnNext(dataBuffer -> {
+                        sha256.update(dataBuffer);
+                        DataBufferUtils.release(dataBuffer);
+                    })
+                    .then(Mono.fromCallable(sha256::hex));
+        });
+    }
+}
@@ -0,0 +1,229 @@
+package ca.gc.cyber.ops.assemblyline.java.client.clients;
+
+import ca.gc.cyber.ops.assemblyline.java.client.model.submission.Submission;
+import ca.gc.cyber.ops.assemblyline.java.client.model.submission.SubmissionTrackerOptions;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.concurrent.Queues;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * Tracks many submissions until they complete, checking them in rate-limited waves instead of polling each one on its
+ * own schedule.
+ * <p>
+ * Every {@link SubmissionTrackerOptions#getTickInterval() tick}, up to
+ * {@link SubmissionTrackerOptions#getMaxChecksPerTick() maxChecksPerTick} of the tracked submissions are checked, and
+ * each one that has completed is fetched once and published on {@link #completions()}. Submissions are checked in a
+ * round-robin order, so a large backlog is worked through evenly. If a state file is configured, the tracked
+ * submissions survive a restart.
+ * <p>
+ * The tracker starts checking as soon as it is created. Call {@link #close()} to stop it.
+ */
+@Slf4j
+public class SubmissionCompletionTracker implements AutoCloseable {
+
+    private final IAssemblylineClient client;
+    private final SubmissionTrackerOptions options;
+
+    /**
+     * Completions are buffered while there are no subscribers. If the buffer fills up because subscribers are too
+     * slow, completed submissions stay tracked and are published on a later wave. The sink is not terminated when the
+     * last subscriber cancels, so that subscribers that come later still receive completions.
+     */
+    private final Sinks.Many<Submission> completions =
+            Sinks.many().multicast().onBackpressureBuffer(Queues.SMALL_BUFFER_SIZE, false);
+
+    /* Guarded by this. The iteration order is the order in which submissions are checked. */
+    private final LinkedHashSet<String> pending = new LinkedHashSet<>();
+    private boolean changed;
+
+    /**
+     * Held while writing the state file, so that a save at close doesn't interleave with a save after a wave.
+     */
+    private final Object saveLock = new Object();
+
+    private final Disposable ticks;
+
+    /**
+     * Creates a tracker and starts checking. If the state file exists, the submissions saved in it are tracked again.
+     *
+     * @param client  Client used to check and fetch submissions
+     * @param options Tick interval, limits and state file
+     * @throws UncheckedIOException if the state file exists but can't be read
+     */
+    public SubmissionCompletionTracker(IAssemblylineClient client, SubmissionTrackerOptions options) {
+        this.client = client;
+        this.options = options;
+        if (options.getStateFile() != null && Files.exists(options.getStateFile())) {
+            try {
+                Files.readAllLines(options.getStateFile(), StandardCharsets.UTF_8).stream()
+                        .map(String::strip)
+                        .filter(sid -> !sid.isEmpty())
+                        .forEach(pending::add);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read submission tracker state from " + options.getStateFile(), e);
+            }
+        }
+
+        // Ticks that arrive while a wave is still running are dropped rather than queued.
+        this.ticks = Flux.interval(options.getTickInterval(), Schedulers.parallel())
+                .onBackpressureDrop()
+                .concatMap(tick -> checkWave().then(saveIfChanged()), 0)
+                .subscribe(null, e -> log.error("Submission completion tracker stopped unexpectedly.", e));
+    }
+
+    /**
+     * @return Submissions as they complete. This is a hot stream: subscribers only see submissions that complete after
+     * they subscribe, except that completions are buffered while there are no subscribers.
+     */
+    public Flux<Submission> completions() {
+        return completions.asFlux();
+    }
+
+    public synchronized void track(String sid) {
+        changed |= pending.add(sid);
+    }
+
+    public synchronized void trackAll(Collection<String> sids) {
+        changed |= pending.addAll(sids);
+    }
+
+    /**
+     * Stops tracking a submission without waiting for it to complete.
+     */
+    public synchronized void untrack(String sid) {
+        changed |= pending.remove(sid);
+    }
+
+    public synchronized int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Stops checking, saves the tracked submissions to the state file (if configured) and completes
+     * {@link #completions()}.
+     */
+    @Override
+    public void close() {
+        ticks.dispose();
+        save();
+        completions.tryEmitComplete();
+    }
+
+    private Mono<Void> checkWave() {
+        return Flux.fromIterable(nextWave())
+                .flatMap(this::check, options.getMaxConcurrency())
+                .then();
+    }
+
+    /**
+     * @return The submissions to check in this wave. They are moved to the back of the line, so the next wave starts
+     * with the submissions after them.
+     */
+    private synchronized List<String> nextWave() {
+        List<String> wave = new ArrayList<>(Math.min(pending.size(), options.getMaxChecksPerTick()));
+        Iterator<String> iterator = pending.iterator();
+        while (iterator.hasNext() && wave.size() < options.getMaxChecksPerTick()) {
+            wave.add(iterator.next());
+            iterator.remove();
+        }
+        pending.addAll(wave);
+        return wave;
+    }
+
+    private Mono<Void> check(String sid) {
+        return client.isSubmissionComplete(sid)
+                .filter(Boolean::booleanValue)
+                .flatMap(complete -> client.getSubmission(sid))
+                .doOnNext(submission -> publish(sid, submission))
+                .onErrorResume(e -> {
+                    if (AssemblylineClient.isTransientFailure(e)) {
+                        log.debug("Failed to check submission {}; it will be checked again.", sid, e);
+                    } else {
+                        log.warn("Failed to check submission {}; it will no longer be tracked.", sid, e);
+                        untrack(sid);
+                    }
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    /**
+     * Synchronized because a sink must not be emitted to from several threads at once.
+     */
+    private synchronized void publish(String sid, Submission submission) {
+        if (!pending.contains(sid)) {
+            // Untracked while it was being checked.
+            return;
+        }
+        Sinks.EmitResult result = completions.tryEmitNext(submission);
+        if (result == Sinks.EmitResult.FAIL_OVERFLOW) {
+            log.debug("Completion buffer is full; submission {} will be published on a later wave.", sid);
+            return;
+        }
+        if (result.isFailure()) {
+            // E.g. the tracker was closed. Checking the submission again would only fail the same way.
+            log.warn("Failed to publish the completion of submission {} ({}); it will no longer be tracked.", sid,
+                    result);
+        }
+        pending.remove(sid);
+        changed = true;
+    }
+
+    private Mono<Void> saveIfChanged() {
+        if (options.getStateFile() == null) {
+            return Mono.empty();
+        }
+        return Mono.fromRunnable(this::save)
+                .subscribeOn(Schedulers.boundedElastic())
+                .then();
+    }
+
+    private void save() {
+        Path stateFile = options.getStateFile();
+        if (stateFile == null) {
+            return;
+        }
+        synchronized (saveLock) {
+            writeStateFile(stateFile);
+        }
+    }
+
+    private void writeStateFile(Path stateFile) {
+        List<String> snapshot;
+        synchronized (this) {
+            if (!changed) {
+                return;
+            }
+            snapshot = new ArrayList<>(pending);
+            changed = false;
+        }
+
+        // Written to a temporary file first so that a crash while writing doesn't lose the previous state.
+        Path temporaryFile = stateFile.resolveSibling(stateFile.getFileName() + ".tmp");
+        try {
+            Files.write(temporaryFile, snapshot, StandardCharsets.UTF_8);
+            Files.move(temporaryFile, stateFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Failed to save submission tracker state to {}.", stateFile, e);
+            synchronized (this) {
+                changed = true;
+            }
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package ca.gc.cyber.ops.assemblyline.java.client.clients;
+
+import lombok.Getter;
+
+import java.time.Duration;
+
+/**
+ * Thrown when a submission does not complete within the timeout given to
+ * {@link IAssemblylineClient#awaitCompletion}.
+ */
+@Getter
+public class SubmissionTimeoutException extends RuntimeException {
+
+    private final String sid;
+    private final Duration timeout;
+
+    public SubmissionTimeoutException(String sid, Duration timeout) {
+        super("Submission " + sid + " did not complete within " + timeout + ".");
+        this.sid = sid;
+        this.timeout = timeout;
+    }
+}
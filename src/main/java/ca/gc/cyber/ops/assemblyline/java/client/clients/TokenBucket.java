@@ -0,0 +1,54 @@
+package ca.gc.cyber.ops.assemblyline.java.client.clients;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limits requests to an average rate, while allowing a burst of requests after a quiet period. Like
+ * {@link PollBudget}, each request reserves the next free slot and waits for it, so requests over the rate are spread
+ * evenly rather than sent in bursts. A request whose slot is further away than it is willing to wait is rejected
+ * without reserving anything, so rejected requests do not delay the others.
+ */
+class TokenBucket {
+
+    private final long intervalNanos;
+    private final long burstNanos;
+    private final AtomicLong nextSlot = new AtomicLong(System.nanoTime());
+
+    /**
+     * @param requestsPerSecond Average rate of requests. Must be more than 0.
+     * @param burst             Number of requests that may be sent at once after a quiet period. At least 1.
+     */
+    TokenBucket(double requestsPerSecond, int burst) {
+        if (requestsPerSecond <= 0) {
+            throw new IllegalArgumentException("requestsPerSecond must be more than 0. Value = " + requestsPerSecond);
+        }
+        this.intervalNanos = (long) (1_000_000_000L / requestsPerSecond);
+        this.burstNanos = intervalNanos * (Math.max(1, burst) - 1);
+    }
+
+    /**
+     * @param maxWaitNanos How long the caller is willing to wait.
+     * @return How long the caller must wait before sending its request, or -1 if that would be longer than
+     * maxWaitNanos, in which case no slot is reserved.
+     */
+    long reserve(long maxWaitNanos) {
+        long now = System.nanoTime();
+        while (true) {
+            long next = nextSlot.get();
+            // After a quiet period, up to burst slots are available right away.
+            long slot = later(next, now - burstNanos);
+            long wait = Math.max(0, slot - now);
+            if (wait > maxWaitNanos) {
+                return -1;
+            }
+            if (nextSlot.compareAndSet(next, slot + intervalNanos)) {
+                return wait;
+            }
+        }
+    }
+
+    private static long later(long a, long b) {
+        // nanoTime() values must be compared by their difference, in case they overflow.
+        return a - b > 0 ? a : b;
+    }
+}
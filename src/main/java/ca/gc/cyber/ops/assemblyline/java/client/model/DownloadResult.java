@@ -0,0 +1,27 @@
+package ca.gc.cyber.ops.assemblyline.java.client.model;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.nio.file.Path;
+
+/**
+ * The result of downloading a file from Assemblyline directly to local disk.
+ */
+@Value
+@Builder
+public class DownloadResult {
+    /**
+     * The file the download was written to
+     */
+    Path path;
+    /**
+     * Number of bytes written
+     */
+    long size;
+    /**
+     * SHA-256 of the bytes written, computed locally while downloading. If the file was downloaded with
+     * {@link DownloadFileParams.Encoding#CART}, this is the hash of the CaRT file, not of the original file.
+     */
+    String sha256;
+}
@@ -11,9 +11,6 @@ import java.time.Instant;
 import java.util.List;
 import java.util.Map;
 
-import static java.util.stream.Collectors.toUnmodifiableList;
-import static java.util.stream.Collectors.toUnmodifiableMap;
-
 /**
  * Maps the response from /file/result/{sha256}
  */
@@ -87,16 +84,11 @@ public class FileResults {
          * @return The builder.
          */
         @JsonProperty("heuristics")
+        @JsonDeserialize(using = HeuristicsDeserializer.class)
         // This method is used by Jackson for JSON deserialization.
         @SuppressWarnings("unused")
-        public FileResultsBuilder heuristicsFromJson(Map<String, List<List<String>>> map) {
-            heuristics = map.entrySet().stream()
-                    .collect(toUnmodifiableMap(
-                            Map.Entry::getKey,
-                            entry -> entry.getValue().stream()
-                                    .map(Heuristic::fromList)
-                                    .collect(toUnmodifiableList())));
-
+        public FileResultsBuilder heuristicsFromJson(Map<String, List<Heuristic>> map) {
+            heuristics = map;
             return this;
         }
 
@@ -107,16 +99,11 @@ public class FileResults {
          * @return The builder.
          */
         @JsonProperty("attack_matrix")
+        @JsonDeserialize(using = AttackMatrixDeserializer.class)
         // This method is used by Jackson for JSON deserialization.
         @SuppressWarnings("unused")
-        public FileResultsBuilder attackMatrixFromJson(Map<String, List<List<String>>> map) {
-            attackMatrix = map.entrySet().stream()
-                    .collect(toUnmodifiableMap(
-                            Map.Entry::getKey,
-                            entry -> entry.getValue().stream()
-                                    .map(Attack::fromList)
-                                    .collect(toUnmodifiableList())));
-
+        public FileResultsBuilder attackMatrixFromJson(Map<String, List<Attack>> map) {
+            attackMatrix = map;
             return this;
         }
 
@@ -127,20 +114,42 @@ public class FileResults {
          * @return The builder.
          */
         @JsonProperty("tags")
+        @JsonDeserialize(using = TagsDeserializer.class)
         // This method is used by Jackson for JSON deserialization.
         @SuppressWarnings("unused")
-        public FileResultsBuilder tagsFromJson(Map<String, List<List<String>>> map) {
-            tags = map.entrySet().stream()
-                    .collect(toUnmodifiableMap(
-                            Map.Entry::getKey,
-                            entry -> entry.getValue().stream()
-                                    .map(Tag::fromList)
-                                    .collect(toUnmodifiableList())));
-
+        public FileResultsBuilder tagsFromJson(Map<String, List<Tag>> map) {
+            tags = map;
             return this;
         }
     }
 
+    /**
+     * Reads [heurId, name] tuples.
+     */
+    static class HeuristicsDeserializer extends TupleMapDeserializer<Heuristic> {
+        HeuristicsDeserializer() {
+            super(2, tuple -> new Heuristic(tuple[0], tuple[1]));
+        }
+    }
+
+    /**
+     * Reads [attackId, attackPattern, heuristicType] tuples.
+     */
+    static class AttackMatrixDeserializer extends TupleMapDeserializer<Attack> {
+        AttackMatrixDeserializer() {
+            super(3, tuple -> new Attack(tuple[0], tuple[1], tuple[2]));
+        }
+    }
+
+    /**
+     * Reads [tagValue, heuristicType] tuples. Newer versions of Assemblyline add more elements, which are skipped.
+     */
+    static class TagsDeserializer extends TupleMapDeserializer<Tag> {
+        TagsDeserializer() {
+            super(2, tuple -> new Tag(tuple[0], tuple[1]));
+        }
+    }
+
     @Value
     @Builder
     public static class AlternateResult {
@@ -224,7 +233,10 @@ public class FileResults {
          *
          * @param list 3-element list structured as [attackId, attackPattern, heuristicType]
          * @return An Attack instance
+         * @deprecated FileResults reads the tuples straight into Attack instances and no longer uses this. Use
+         * {@link #builder()} instead.
          */
+        @Deprecated(forRemoval = true, since = "2.4")
         public static Attack fromList(List<String> list) {
             return new Attack(list.get(0), list.get(1), list.get(2));
         }
@@ -263,7 +275,10 @@ public class FileResults {
          *
          * @param list 2-element list structured as [heurId, name]
          * @return An Heuristic instance
+         * @deprecated FileResults reads the tuples straight into Heuristic instances and no longer uses this. Use
+         * {@link #builder()} instead.
          */
+        @Deprecated(forRemoval = true, since = "2.4")
         public static Heuristic fromList(List<String> list) {
             return new Heuristic(list.get(0), list.get(1));
         }
@@ -280,7 +295,10 @@ public class FileResults {
          *
          * @param list 2-element list structured as [tageValue, heuristicType]
          * @return An Heuristic instance
+         * @deprecated FileResults reads the tuples straight into Tag instances and no longer uses this. Use
+         * {@link #builder()} instead.
          */
+        @Deprecated(forRemoval = true, since = "2.4")
         public static Tag fromList(List<String> list) {
             return new Tag(list.get(0), list.get(1));
         }
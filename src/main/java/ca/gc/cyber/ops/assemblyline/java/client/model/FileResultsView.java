@@ -0,0 +1,79 @@
+package ca.gc.cyber.ops.assemblyline.java.client.model;
+
+import lombok.Value;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Selects which sections of {@link FileResults} to decode. Sections that are not selected are skipped while the
+ * response is read, and are null (or false) in the returned FileResults.
+ * <p>
+ * Example: {@code client.getFileResults(sha256, FileResultsView.of(TAGS, HEURISTICS))}
+ */
+@Value
+public class FileResultsView {
+
+    public enum Section {
+        ALTERNATES("alternates"),
+        ATTACK_MATRIX("attack_matrix"),
+        CHILDRENS("childrens"),
+        ERRORS("errors"),
+        FILE_INFO("file_info"),
+        FILE_VIEWER_ONLY("file_viewer_only"),
+        HEURISTICS("heuristics"),
+        METADATA("metadata"),
+        PARENTS("parents"),
+        RESULTS("results"),
+        SIGNATURES("signatures"),
+        TAGS("tags");
+
+        private final String jsonField;
+
+        Section(String jsonField) {
+            this.jsonField = jsonField;
+        }
+
+        /**
+         * @return Name of the field in the JSON response from Assemblyline.
+         */
+        public String getJsonField() {
+            return jsonField;
+        }
+    }
+
+    /**
+     * The sections to decode
+     */
+    Set<Section> sections;
+
+    private FileResultsView(Set<Section> sections) {
+        this.sections = Collections.unmodifiableSet(sections);
+    }
+
+    public static FileResultsView of(Section first, Section... rest) {
+        return new FileResultsView(EnumSet.of(first, rest));
+    }
+
+    /**
+     * @return A view that decodes every section, the same as {@link FileResults} without a view.
+     */
+    public static FileResultsView all() {
+        return new FileResultsView(EnumSet.allOf(Section.class));
+    }
+
+    /**
+     * @param jsonField Name of a field of the JSON response from Assemblyline.
+     * @return true if the field belongs to a selected section. Fields this class doesn't know about are never
+     * included.
+     */
+    public boolean includes(String jsonField) {
+        for (Section section : sections) {
+            if (section.jsonField.equals(jsonField)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,46 @@
+package ca.gc.cyber.ops.assemblyline.java.client.model;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.Duration;
+
+/**
+ * This class holds options for continuously reading a notification queue with
+ * {@link ca.gc.cyber.ops.assemblyline.java.client.clients.IAssemblylineClient#streamIngestMessages}.
+ */
+@Value
+@Builder
+public class IngestMessageStreamOptions {
+    /**
+     * Number of concurrent pollers reading the queue. More pollers help when a single poller can't keep up with the
+     * rate at which messages arrive.
+     * <p>
+     * Default: 1.
+     */
+    @Builder.Default
+    int pollers = 1;
+    /**
+     * Delay before polling again after the first empty poll. After a non-empty poll, the queue is polled again
+     * immediately.
+     * <p>
+     * Default: 100 milliseconds.
+     */
+    @Builder.Default
+    Duration minBackoff = Duration.ofMillis(100);
+    /**
+     * The delay after an empty poll doubles with each consecutive empty poll, up to this value.
+     * <p>
+     * Default: 5 seconds.
+     */
+    @Builder.Default
+    Duration maxBackoff = Duration.ofSeconds(5);
+    /**
+     * Fraction of each delay that is randomized, so that pollers on many hosts don't all poll at the same moment.
+     * Must be between 0 and 1.
+     * <p>
+     * Default: 0.5.
+     */
+    @Builder.Default
+    double jitter = 0.5;
+}
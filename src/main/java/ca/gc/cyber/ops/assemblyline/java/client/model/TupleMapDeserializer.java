@@ -0,0 +1,98 @@
+package ca.gc.cyber.ops.assemblyline.java.client.model;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Deserializes a JSON object of the form {@code {"key": [["a", "b"], ["c", "d"]]}}, where each inner array is a tuple
+ * that stands for an object, into a map of lists of those objects.
+ * <p>
+ * The tuples are read straight into their objects, without first building the lists of strings. Only the first
+ * tupleSize elements of a tuple are used; any extra elements are skipped. Scalar elements that aren't strings are
+ * converted to strings.
+ *
+ * @param <T> The type of object that each tuple stands for.
+ */
+abstract class TupleMapDeserializer<T> extends StdDeserializer<Map<String, List<T>>> {
+
+    private final int tupleSize;
+    private final Function<String[], T> fromTuple;
+
+    /**
+     * @param tupleSize Number of tuple elements used to build an object
+     * @param fromTuple Builds an object from the first tupleSize elements of a tuple. The array is reused between
+     *                  tuples, so it must not be kept.
+     */
+    protected TupleMapDeserializer(int tupleSize, Function<String[], T> fromTuple) {
+        super(Map.class);
+        this.tupleSize = tupleSize;
+        this.fromTuple = fromTuple;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Map<String, List<T>> deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+        if (!p.isExpectedStartObjectToken()) {
+            return (Map<String, List<T>>) ctxt.handleUnexpectedToken(Map.class, p);
+        }
+
+        Map<String, List<T>> map = new LinkedHashMap<>();
+        String[] tuple = new String[tupleSize];
+        for (String key = p.nextFieldName(); key != null; key = p.nextFieldName()) {
+            p.nextToken();
+            map.put(key, readTuples(p, ctxt, tuple));
+        }
+        return Collections.unmodifiableMap(map);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<T> readTuples(JsonParser p, DeserializationContext ctxt, String[] tuple) throws IOException {
+        if (p.currentToken() == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (!p.isExpectedStartArrayToken()) {
+            return (List<T>) ctxt.handleUnexpectedToken(List.class, p);
+        }
+
+        List<T> list = new ArrayList<>();
+        while (p.nextToken() != JsonToken.END_ARRAY) {
+            if (!p.isExpectedStartArrayToken()) {
+                ctxt.reportInputMismatch(this, "Expected a tuple array but got %s", p.currentToken());
+            }
+            readTuple(p, ctxt, tuple);
+            list.add(fromTuple.apply(tuple));
+        }
+        return Collections.unmodifiableList(list);
+    }
+
+    private void readTuple(JsonParser p, DeserializationContext ctxt, String[] tuple) throws IOException {
+        for (int i = 0; i < tupleSize; i++) {
+            JsonToken token = p.nextToken();
+            if (token == JsonToken.END_ARRAY) {
+                ctxt.reportInputMismatch(this, "Expected a tuple of at least %d elements but got %d", tupleSize, i);
+            }
+            if (token == JsonToken.VALUE_NULL) {
+                tuple[i] = null;
+            } else if (token.isScalarValue()) {
+                tuple[i] = p.getValueAsString();
+            } else {
+                ctxt.reportInputMismatch(this, "Expected a scalar tuple element but got %s", token);
+            }
+        }
+
+        // Skip the elements that aren't used.
+        while (p.nextToken() != JsonToken.END_ARRAY) {
+            p.skipChildren();
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package ca.gc.cyber.ops.assemblyline.java.client.model.ingest;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.Duration;
+
+/**
+ * This class holds options for bulk ingestion with
+ * {@link ca.gc.cyber.ops.assemblyline.java.client.clients.IAssemblylineClient#ingestAll}.
+ */
+@Value
+@Builder
+public class BulkIngestOptions {
+    /**
+     * Maximum number of ingest requests in flight at the same time. Items are only requested from the source as
+     * requests complete, so a slow AssemblyLine slows down the source instead of buffering items in memory.
+     * <p>
+     * Default: 8.
+     */
+    @Builder.Default
+    int maxInFlight = 8;
+    /**
+     * If true, outcomes are emitted in the same order as the items they belong to. Otherwise, outcomes are emitted as
+     * soon as their request completes.
+     * <p>
+     * Default: false.
+     */
+    boolean ordered;
+    /**
+     * Number of times an item is retried after a transient failure, on top of the client's own retries. Ingest is not
+     * idempotent, so an item is only retried if AssemblyLine cannot have received it: the request could not be sent,
+     * or was refused with a 429 or 503. Items with an idempotency key are also retried after other connection errors
+     * and 5xx responses, unless they are binary files, whose publisher may not be readable twice.
+     * <p>
+     * Default: 0.
+     */
+    int maxRetries;
+    /**
+     * Initial delay before retrying an item. The delay grows exponentially with each attempt.
+     * <p>
+     * Default: 1 second.
+     */
+    @Builder.Default
+    Duration retryBackoff = Duration.ofSeconds(1);
+}
@@ -0,0 +1,32 @@
+package ca.gc.cyber.ops.assemblyline.java.client.model.ingest;
+
+import ca.gc.cyber.ops.assemblyline.java.client.model.IngestResponse;
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * The outcome of ingesting a single item during bulk ingestion. Exactly one of {@link #response} and {@link #error} is
+ * set.
+ *
+ * @param <T> The type of item that was ingested.
+ */
+@Value
+@Builder
+public class IngestOutcome<T> {
+    /**
+     * The item that was ingested
+     */
+    T item;
+    /**
+     * Response from AssemblyLine, if the item was ingested successfully
+     */
+    IngestResponse response;
+    /**
+     * Error that caused the item to fail, after any retries
+     */
+    Throwable error;
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+}
@@ -0,0 +1,30 @@
+package ca.gc.cyber.ops.assemblyline.java.client.model.ingest;
+
+import ca.gc.cyber.ops.assemblyline.java.client.model.submit.SubmitBase;
+import lombok.Value;
+import lombok.experimental.SuperBuilder;
+
+import java.nio.file.Path;
+
+/**
+ * A binary file that is read from local disk while it is being uploaded, instead of being loaded into memory first.
+ */
+@SuperBuilder
+@Value
+public class PathBinaryFile<T extends SubmitBase> {
+
+    /**
+     * Metadata of file being submitted; in Http post, sent as Json String
+     * For Ingest endpoint it is IngestBase
+     * For Submit endpoint it is SubmitBase
+     */
+    T metadata;
+    /**
+     * Binary File Name. If not set, the name of the file on disk is used.
+     */
+    String filename;
+    /**
+     * Path of the Binary File on local disk
+     */
+    Path file;
+}
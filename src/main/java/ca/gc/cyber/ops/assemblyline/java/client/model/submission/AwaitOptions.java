@@ -0,0 +1,46 @@
+package ca.gc.cyber.ops.assemblyline.java.client.model.submission;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.Duration;
+
+/**
+ * This class holds options for waiting for submissions to complete with
+ * {@link ca.gc.cyber.ops.assemblyline.java.client.clients.IAssemblylineClient#awaitCompletion}.
+ */
+@Value
+@Builder
+public class AwaitOptions {
+    /**
+     * Delay between the first and second check of whether the submission is complete. The first check is made
+     * immediately.
+     * <p>
+     * Default: 1 second.
+     */
+    @Builder.Default
+    Duration initialInterval = Duration.ofSeconds(1);
+    /**
+     * The delay doubles after every check that finds the submission still running, up to this value.
+     * <p>
+     * Default: 30 seconds.
+     */
+    @Builder.Default
+    Duration maxInterval = Duration.ofSeconds(30);
+    /**
+     * Fraction of each delay that is randomized, so that submissions made at the same time aren't all checked at the
+     * same moment. Must be between 0 and 1.
+     * <p>
+     * Default: 0.5.
+     */
+    @Builder.Default
+    double jitter = 0.5;
+    /**
+     * How long to wait for the submission to complete before failing with a
+     * {@link ca.gc.cyber.ops.assemblyline.java.client.clients.SubmissionTimeoutException}.
+     * <p>
+     * Default: 1 hour.
+     */
+    @Builder.Default
+    Duration timeout = Duration.ofHours(1);
+}
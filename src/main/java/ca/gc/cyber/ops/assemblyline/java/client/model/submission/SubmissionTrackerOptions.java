@@ -0,0 +1,46 @@
+package ca.gc.cyber.ops.assemblyline.java.client.model.submission;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * This class holds options for
+ * {@link ca.gc.cyber.ops.assemblyline.java.client.clients.SubmissionCompletionTracker}.
+ */
+@Value
+@Builder
+public class SubmissionTrackerOptions {
+    /**
+     * Time between waves of completion checks.
+     * <p>
+     * Default: 5 seconds.
+     */
+    @Builder.Default
+    Duration tickInterval = Duration.ofSeconds(5);
+    /**
+     * Maximum number of submissions checked in each wave. Submissions are checked in the order they were tracked,
+     * and those still running go to the back of the line, so every submission is eventually checked. Together with
+     * {@link #tickInterval}, this limits the rate of requests to AssemblyLine.
+     * <p>
+     * Default: 200.
+     */
+    @Builder.Default
+    int maxChecksPerTick = 200;
+    /**
+     * Maximum number of requests in flight at the same time during a wave.
+     * <p>
+     * Default: 8.
+     */
+    @Builder.Default
+    int maxConcurrency = 8;
+    /**
+     * File to save the submissions still being tracked to, so that a restarted tracker can resume tracking them. The
+     * file is rewritten after every wave that changed the set of tracked submissions.
+     * <p>
+     * Default: not set, nothing is saved.
+     */
+    Path stateFile;
+}
@@ -2,14 +2,36 @@ package ca.gc.cyber.ops.assemblyline.java.client.clients;
 
 import ca.gc.cyber.ops.assemblyline.java.client.AssemblylineClientConfig;
 import ca.gc.cyber.ops.assemblyline.java.client.model.DownloadFileParams;
+import ca.gc.cyber.ops.assemblyline.java.client.model.DownloadResult;
+import ca.gc.cyber.ops.assemblyline.java.client.model.FileInfo;
+import ca.gc.cyber.ops.assemblyline.java.client.model.FileResults;
+import ca.gc.cyber.ops.assemblyline.java.client.model.FileResultsView;
+import ca.gc.cyber.ops.assemblyline.java.client.model.IngestMessageStreamOptions;
+import ca.gc.cyber.ops.assemblyline.java.client.model.ingest.BinaryFile;
+import ca.gc.cyber.ops.assemblyline.java.client.model.ingest.BulkIngestOptions;
+import ca.gc.cyber.ops.assemblyline.java.client.model.ingest.IngestBase;
+import ca.gc.cyber.ops.assemblyline.java.client.model.ingest.IngestOutcome;
+import ca.gc.cyber.ops.assemblyline.java.client.model.ingest.NonBinaryIngest;
+import ca.gc.cyber.ops.assemblyline.java.client.model.ingest.Sha256Ingest;
+import ca.gc.cyber.ops.assemblyline.java.client.model.submission.AwaitOptions;
+import ca.gc.cyber.ops.assemblyline.java.client.model.submission.SubmissionTrackerOptions;
 import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.PropertyNamingStrategies;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.buffer.UnpooledByteBufAllocator;
 import lombok.Data;
+import okhttp3.mockwebserver.Dispatcher;
 import okhttp3.mockwebserver.MockResponse;
 import okhttp3.mockwebserver.MockWebServer;
 import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.mockwebserver.SocketPolicy;
+import okio.Buffer;
 import org.apache.commons.fileupload2.core.FileItem;
 import org.apache.commons.fileupload2.core.FileItemFactory;
 import org.apache.commons.fileupload2.core.FileUploadException;
@@ -20,25 +42,49 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.reactivestreams.Publisher;
 import org.skyscreamer.jsonassert.JSONAssert;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
 import org.springframework.boot.test.autoconfigure.json.AutoConfigureJson;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
 import org.springframework.util.unit.DataSize;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.netty.http.HttpProtocol;
 import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
 import reactor.test.StepVerifier;
+import reactor.util.function.Tuples;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPOutputStream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
@@ -321,6 +367,170 @@ class AssemblylineClientTest {
                 .verify();
     }
 
+    @Test
+    void testConcurrentUnauthorizedRequestsShareOneLogin() {
+        String newSession = "newSession";
+        mockBackEnd.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                if ("/api/v4/auth/login/".equals(request.getPath())) {
+                    return new MockResponse().setBody(MockResponseModels.getLoginResponseJson())
+                            .addHeader("Content-Type", "application/json")
+                            .addHeader("Set-Cookie", "session=" + newSession)
+                            // Delay the login so that the other requests are rejected while it is in progress.
+                            .setBodyDelay(200, TimeUnit.MILLISECONDS);
+                }
+                String cookie = request.getHeader("Cookie");
+                if (cookie == null || !cookie.contains("session=" + newSession)) {
+                    return new MockResponse().setResponseCode(401).setBody(MockResponseModels.notLoggedInJson());
+                }
+                return new MockResponse().setBody(MockResponseModels.getIsSubmissionCompleteResponseJson())
+                        .addHeader("Content-Type", "application/json");
+            }
+        });
+
+        int requestCount = 20;
+        StepVerifier.create(Flux.range(0, requestCount)
+                        .flatMap(i -> this.assemblylineClient.isSubmissionComplete("test" + i), requestCount))
+                .expectNextCount(requestCount)
+                .expectComplete()
+                .verify();
+
+        assertEquals(newSession, assemblylineClient.getSession());
+        assertEquals(1, assemblylineClient.getLoginCount());
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    void testSessionSetBySubclass() throws InterruptedException {
+        this.assemblylineClient.setSession("subclassSession");
+        mockResponse(MockResponseModels.getIsSubmissionCompleteResponseJson());
+
+        StepVerifier.create(this.assemblylineClient.isSubmissionComplete("test"))
+                .expectNext(MockResponseModels.getIsSubmissionCompleteResponse())
+                .expectComplete()
+                .verify();
+
+        RecordedRequest request = mockBackEnd.takeRequest(5, TimeUnit.SECONDS);
+        Assertions.assertTrue(request.getHeader("Cookie").contains("session=subclassSession"));
+    }
+
+    @Test
+    void testSessionRefreshedBeforeExpiry() throws InterruptedException {
+        // The mocked login reports a 300 second session, so this margin triggers a refresh after roughly 200ms.
+        assemblylineClientProperties.getSession().setRefreshEnabled(true);
+        assemblylineClientProperties.getSession().setRefreshMargin(Duration.ofSeconds(300).minusMillis(200));
+        // Requests sent while the refresh is in progress wait for the refreshed session.
+        assemblylineClientProperties.getSession().setHoldRequestsDuringRefresh(true);
+        assemblylineClient = new AssemblylineClient(assemblylineClientProperties, httpClient,
+                new AssemblylineAuthenticationTestImpl());
+        AtomicInteger logins = new AtomicInteger();
+        mockBackEnd.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                if ("/api/v4/auth/login/".equals(request.getPath())) {
+                    if (logins.incrementAndGet() == 1) {
+                        return new MockResponse().setBody(MockResponseModels.getLoginResponseJson())
+                                .addHeader("Content-Type", MediaType.APPLICATION_JSON_VALUE)
+                                .addHeader("Set-Cookie", "session=" + session);
+                    }
+                    // A longer session, so that the refreshed session is not refreshed again during the test.
+                    return new MockResponse()
+                            .setBody(MockResponseModels.getLoginResponseJson()
+                                    .replace("\"session_duration\" : 300", "\"session_duration\" : 3600"))
+                            .addHeader("Content-Type", MediaType.APPLICATION_JSON_VALUE)
+                            .addHeader("Set-Cookie", "session=refreshedSession");
+                }
+                return new MockResponse().setBody(MockResponseModels.getIsSubmissionCompleteResponseJson())
+                        .addHeader("Content-Type", MediaType.APPLICATION_JSON_VALUE);
+            }
+        });
+
+        StepVerifier.create(this.assemblylineClient.login())
+                .expectNext(MockResponseModels.getLoginResponse())
+                .expectComplete()
+                .verify();
+
+        verifyExpectedPath("/api/v4/auth/login/");
+        // The second login is sent by the client on its own, without any request being rejected.
+        verifyExpectedPath("/api/v4/auth/login/");
+        StepVerifier.create(this.assemblylineClient.isSubmissionComplete("test"))
+                .expectNext(MockResponseModels.getIsSubmissionCompleteResponse())
+                .expectComplete()
+                .verify();
+
+        RecordedRequest request = mockBackEnd.takeRequest(5, TimeUnit.SECONDS);
+        assertEquals("/api/v4/submission/is_completed/test/", request.getPath());
+        Assertions.assertTrue(request.getHeader("Cookie").contains("session=refreshedSession"));
+        assertEquals("refreshedSession", assemblylineClient.getSession());
+        assertEquals(1, assemblylineClient.getLoginCount());
+        assertEquals(2, logins.get());
+
+        assemblylineClient.close();
+    }
+
+    @Test
+    void testFailedSessionRefreshRetriedAfterInterval() throws InterruptedException {
+        // The mocked login reports a 300 second session, so this margin triggers a refresh after roughly 200ms.
+        assemblylineClientProperties.getSession().setRefreshEnabled(true);
+        assemblylineClientProperties.getSession().setRefreshMargin(Duration.ofSeconds(300).minusMillis(200));
+        assemblylineClientProperties.getSession().setRefreshRetryInterval(Duration.ofSeconds(1));
+        assemblylineClient = new AssemblylineClient(assemblylineClientProperties, httpClient,
+                new AssemblylineAuthenticationTestImpl());
+        AtomicInteger logins = new AtomicInteger();
+        mockBackEnd.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                if ("/api/v4/auth/login/".equals(request.getPath())) {
+                    if (logins.incrementAndGet() == 1) {
+                        return new MockResponse().setBody(MockResponseModels.getLoginResponseJson())
+                                .addHeader("Content-Type", MediaType.APPLICATION_JSON_VALUE)
+                                .addHeader("Set-Cookie", "session=" + session);
+                    }
+                    // Every refresh fails.
+                    return new MockResponse().setResponseCode(500)
+                            .setBody(MockResponseModels.getInternalErrorJson())
+                            .addHeader("Content-Type", MediaType.APPLICATION_JSON_VALUE);
+                }
+                return new MockResponse().setBody(MockResponseModels.getIsSubmissionCompleteResponseJson())
+                        .addHeader("Content-Type", MediaType.APPLICATION_JSON_VALUE);
+            }
+        });
+
+        StepVerifier.create(this.assemblylineClient.login())
+                .expectNext(MockResponseModels.getLoginResponse())
+                .expectComplete()
+                .verify();
+        verifyExpectedPath("/api/v4/auth/login/");
+        verifyExpectedPath("/api/v4/auth/login/");
+        // Give the client time to handle the failed refresh.
+        Thread.sleep(100);
+
+        // The session is still valid, so requests are sent with it, without starting a login of their own.
+        for (int i = 0; i < 5; i++) {
+            verifyHttpGet(this.assemblylineClient.isSubmissionComplete("test"),
+                    "/api/v4/submission/is_completed/test/",
+                    MockResponseModels.getIsSubmissionCompleteResponse());
+        }
+        assertEquals(1, assemblylineClient.getLoginCount());
+        assertEquals(2, logins.get());
+
+        // Once the retry interval has elapsed, the next request starts another refresh.
+        Thread.sleep(1100);
+        StepVerifier.create(this.assemblylineClient.isSubmissionComplete("test"))
+                .expectNext(MockResponseModels.getIsSubmissionCompleteResponse())
+                .expectComplete()
+                .verify();
+        List<String> paths = new ArrayList<>();
+        paths.add(mockBackEnd.takeRequest(5, TimeUnit.SECONDS).getPath());
+        paths.add(mockBackEnd.takeRequest(5, TimeUnit.SECONDS).getPath());
+        Assertions.assertTrue(paths.contains("/api/v4/auth/login/"));
+        assertEquals(2, assemblylineClient.getLoginCount());
+        assertEquals(session, assemblylineClient.getSession());
+
+        assemblylineClient.close();
+    }
+
     @Test
     void testIsSubmissionCompleteServerError() {
         mockBackEnd.enqueue(
@@ -367,6 +577,567 @@ class AssemblylineClientTest {
                 MockResponseModels.getFileInfo());
     }
 
+    @Test
+    void testMetrics() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        assemblylineClient.addFilter(new AssemblylineClientMetrics(registry));
+        String sha256 = "334d016f755cd6dc58c53a86e183882f8ec14f52fb05345887c8a5edd42c87b7";
+        mockResponse(MockResponseModels.getFileInfoJson());
+
+        verifyHttpGet(this.assemblylineClient.getFileInfo(sha256), "/api/v4/file/info/" + sha256 + "/",
+                MockResponseModels.getFileInfo());
+
+        // Tagged with the endpoint, not the URI.
+        Timer timer = registry.get(AssemblylineClientMetrics.REQUESTS)
+                .tags("endpoint", "file.info", "method", "GET", "status", "200", "outcome", "SUCCESS", "retry", "0")
+                .timer();
+        assertEquals(1, timer.count());
+        DistributionSummary responseSize = registry.get(AssemblylineClientMetrics.RESPONSE_SIZE)
+                .tag("endpoint", "file.info")
+                .summary();
+        assertEquals(1, responseSize.count());
+        assertEquals(MockResponseModels.getFileInfoJson().getBytes(StandardCharsets.UTF_8).length,
+                responseSize.totalAmount());
+        Assertions.assertNull(registry.find(AssemblylineClientMetrics.RETRIES).counter());
+    }
+
+    @Test
+    void testMetricsRetryWithLogin() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        assemblylineClient.addFilter(new AssemblylineClientMetrics(registry));
+        mockBackEnd.enqueue(new MockResponse()
+                .setResponseCode(401)
+                .setBody(MockResponseModels.notLoggedInJson()));
+        mockResponse(MockResponseModels.getLoginResponseJson());
+        mockResponse(MockResponseModels.getIsSubmissionCompleteResponseJson());
+
+        StepVerifier.create(this.assemblylineClient.isSubmissionComplete("test"))
+                .expectNext(MockResponseModels.getIsSubmissionCompleteResponse())
+                .expectComplete()
+                .verify();
+
+        assertEquals(1, registry.get(AssemblylineClientMetrics.REQUESTS)
+                .tags("endpoint", "submission.is_completed", "status", "401", "retry", "0")
+                .timer().count());
+        assertEquals(1, registry.get(AssemblylineClientMetrics.REQUESTS)
+                .tags("endpoint", "auth.login", "status", "200")
+                .timer().count());
+        assertEquals(1, registry.get(AssemblylineClientMetrics.REQUESTS)
+                .tags("endpoint", "submission.is_completed", "status", "200", "retry", "1")
+                .timer().count());
+        assertEquals(1, registry.get(AssemblylineClientMetrics.RETRIES)
+                .tag("endpoint", "submission.is_completed")
+                .counter().count());
+    }
+
+    @Test
+    void testGetFileInfoCached() {
+        assemblylineClientProperties.getCache().setEnabled(true);
+        assemblylineClient = new AssemblylineClient(assemblylineClientProperties, httpClient,
+                new AssemblylineAuthenticationTestImpl());
+        String sha256 = "334d016f755cd6dc58c53a86e183882f8ec14f52fb05345887c8a5edd42c87b7";
+        String expectedPath = "/api/v4/file/info/" + sha256 + "/";
+        mockResponse(MockResponseModels.getFileInfoJson());
+        mockResponse(MockResponseModels.getFileInfoJson());
+        mockResponse(MockResponseModels.getFileInfoJson());
+
+        verifyHttpGet(this.assemblylineClient.getFileInfo(sha256), expectedPath, MockResponseModels.getFileInfo());
+        // Answered from the cache, so the next request the server sees is the one that bypasses the cache.
+        StepVerifier.create(this.assemblylineClient.getFileInfo(sha256))
+                .expectNext(MockResponseModels.getFileInfo())
+                .expectComplete()
+                .verify();
+        verifyHttpGet(this.assemblylineClient.withoutCache().getFileInfo(sha256), expectedPath,
+                MockResponseModels.getFileInfo());
+
+        this.assemblylineClient.invalidateCachedFile(sha256);
+        verifyHttpGet(this.assemblylineClient.getFileInfo(sha256), expectedPath, MockResponseModels.getFileInfo());
+
+        ResponseCacheStats stats = this.assemblylineClient.getResponseCacheStats();
+        assertEquals(1, stats.getHits());
+        assertEquals(2, stats.getMisses());
+        assertEquals(3, mockBackEnd.getRequestCount());
+    }
+
+    @Test
+    void testCachedResponseNotAffectedByChangesToEarlierResult() {
+        assemblylineClientProperties.getCache().setEnabled(true);
+        assemblylineClientProperties.getCache().setFileResultsTtl(Duration.ofHours(1));
+        assemblylineClient = new AssemblylineClient(assemblylineClientProperties, httpClient,
+                new AssemblylineAuthenticationTestImpl());
+        String sha256 = "334d016f755cd6dc58c53a86e183882f8ec14f52fb05345887c8a5edd42c87b7";
+        mockResponse(MockResponseModels.getFileResultsJson());
+
+        FileResults first = this.assemblylineClient.getFileResults(sha256).block();
+        first.getAlternates().clear();
+        first.getResults().clear();
+
+        StepVerifier.create(this.assemblylineClient.getFileResults(sha256))
+                .expectNext(MockResponseModels.getFileResults())
+                .expectComplete()
+                .verify();
+        assertEquals(1, this.assemblylineClient.getResponseCacheStats().getHits());
+        assertEquals(1, mockBackEnd.getRequestCount());
+    }
+
+    @Test
+    void testConcurrentIdenticalRequestsCoalesced() {
+        assemblylineClientProperties.setCoalesceRequests(true);
+        assemblylineClient = new AssemblylineClient(assemblylineClientProperties, httpClient,
+                new AssemblylineAuthenticationTestImpl());
+        String sha256 = "334d016f755cd6dc58c53a86e183882f8ec14f52fb05345887c8a5edd42c87b7";
+        // Delay the response so that both requests are in flight at the same time.
+        mockBackEnd.enqueue(new MockResponse()
+                .setBody(MockResponseModels.getFileInfoJson())
+                .addHeader("Content-Type", MediaType.APPLICATION_JSON_VALUE)
+                .setBodyDelay(200, TimeUnit.MILLISECONDS));
+
+        StepVerifier.create(Mono.zip(this.assemblylineClient.getFileInfo(sha256),
+                        this.assemblylineClient.getFileInfo(sha256)))
+                .assertNext(results -> {
+                    assertEquals(MockResponseModels.getFileInfo(), results.getT1());
+                    Assertions.assertSame(results.getT1(), results.getT2());
+                })
+                .expectComplete()
+                .verify();
+
+        assertEquals(1, mockBackEnd.getRequestCount());
+        assertEquals(1, this.assemblylineClient.getCoalescedRequestCount());
+    }
+
+    @Test
+    void testRequestJoiningCoalescedExchangeAfterResponseGetsResponse() throws Exception {
+        assemblylineClientProperties.setCoalesceRequests(true);
+        assemblylineClient = new AssemblylineClient(assemblylineClientProperties, httpClient,
+                new AssemblylineAuthenticationTestImpl());
+        String sha256 = "334d016f755cd6dc58c53a86e183882f8ec14f52fb05345887c8a5edd42c87b7";
+        mockResponse(MockResponseModels.getFileInfoJson());
+        AtomicReference<CompletableFuture<FileInfo>> late = new AtomicReference<>();
+
+        // The second request joins once the response has been emitted, before the exchange has terminated.
+        StepVerifier.create(this.assemblylineClient.getFileInfo(sha256)
+                        .doOnNext(fileInfo -> late.set(this.assemblylineClient.getFileInfo(sha256).toFuture())))
+                .expectNext(MockResponseModels.getFileInfo())
+                .expectComplete()
+                .verify();
+
+        assertEquals(MockResponseModels.getFileInfo(), late.get().get(1, TimeUnit.SECONDS));
+        assertEquals(1, mockBackEnd.getRequestCount());
+        assertEquals(1, this.assemblylineClient.getCoalescedRequestCount());
+    }
+
+    @Test
+    void testRequestLimiterRejectsOverRate() {
+        AssemblylineClientProperties.Limiter.Rate rate = new AssemblylineClientProperties.Limiter.Rate();
+        rate.setRequestsPerSecond(0.1);
+        assemblylineClientProperties.getLimiter().getRates().put(AssemblylineEndpoint.Group.READ, rate);
+        assemblylineClientProperties.getLimiter().setMaxWait(Duration.ofMillis(100));
+        assemblylineClient = new AssemblylineClient(assemblylineClientProperties, httpClient,
+                new AssemblylineAuthenticationTestImpl());
+        mockResponse(MockResponseModels.getIsSubmissionCompleteResponseJson());
+
+        verifyHttpGet(this.assemblylineClient.isSubmissionComplete("test"),
+                "/api/v4/submission/is_completed/test/",
+                MockResponseModels.getIsSubmissionCompleteResponse());
+        // The next slot is 10 seconds away, more than the maximum wait.
+        StepVerifier.create(this.assemblylineClient.isSubmissionComplete("test"))
+                .expectError(RequestLimitExceededException.class)
+                .verify();
+
+        assertEquals(1, mockBackEnd.getRequestCount());
+        RequestLimiterStats stats = this.assemblylineClient.getRequestLimiterStats().get(AssemblylineEndpoint.Group.READ);
+        assertEquals(1, stats.getAcquired());
+        assertEquals(1, stats.getRejected());
+        // Other groups are not limited.
+        Assertions.assertNull(this.assemblylineClient.getRequestLimiterStats().get(AssemblylineEndpoint.Group.INGEST));
+    }
+
+    @Test
+    void testRequestLimiterQueuesOverConcurrencyLimit() {
+        assemblylineClientProperties.getLimiter().getConcurrency().setEnabled(true);
+        assemblylineClientProperties.getLimiter().getConcurrency().setInitialLimit(1);
+        assemblylineClient = new AssemblylineClient(assemblylineClientProperties, httpClient,
+                new AssemblylineAuthenticationTestImpl());
+        String sha256 = "334d016f755cd6dc58c53a86e183882f8ec14f52fb05345887c8a5edd42c87b7";
+        // Delay the first response so that the second request has to wait for it.
+        mockBackEnd.enqueue(new MockResponse()
+                .setBody(MockResponseModels.getFileInfoJson())
+                .addHeader("Content-Type", MediaType.APPLICATION_JSON_VALUE)
+                .setHeadersDelay(200, TimeUnit.MILLISECONDS));
+        mockResponse(MockResponseModels.getFileInfoJson());
+
+        StepVerifier.create(Mono.zip(this.assemblylineClient.getFileInfo(sha256),
+                        this.assemblylineClient.getFileInfo(sha256)))
+                .assertNext(results -> {
+                    assertEquals(MockResponseModels.getFileInfo(), results.getT1());
+                    assertEquals(MockResponseModels.getFileInfo(), results.getT2());
+                })
+                .expectComplete()
+                .verify();
+
+        RequestLimiterStats stats = this.assemblylineClient.getRequestLimiterStats().get(AssemblylineEndpoint.Group.READ);
+        assertEquals(2, stats.getAcquired());
+        assertEquals(1, stats.getDelayed());
+        assertEquals(0, stats.getInFlight());
+    }
+
+    @Test
+    void testRequestLimiterShrinksConcurrencyLimitWhenOverloaded() {
+        assemblylineClientProperties.getLimiter().getConcurrency().setEnabled(true);
+        assemblylineClientProperties.getLimiter().getConcurrency().setInitialLimit(8);
+        assemblylineClientProperties.getLimiter().getConcurrency().setBackoffRatio(0.5);
+        assemblylineClient = new AssemblylineClient(assemblylineClientProperties, httpClient,
+                new AssemblylineAuthenticationTestImpl());
+        RequestLimiterStats stats = this.assemblylineClient.getRequestLimiterStats().get(AssemblylineEndpoint.Group.READ);
+        assertEquals(8, stats.getConcurrencyLimit());
+
+        mockBackEnd.enqueue(new MockResponse()
+                .setBody(MockResponseModels.getInternalErrorJson()).setResponseCode(429)
+                .addHeader("Content-Type", MediaType.APPLICATION_JSON_VALUE));
+        StepVerifier.create(this.assemblylineClient.isSubmissionComplete("test"))
+                .expectError(WebClientResponseException.TooManyRequests.class)
+                .verify();
+        assertEquals(4, stats.getConcurrencyLimit());
+
+        mockBackEnd.enqueue(new MockResponse()
+                .setBody(MockResponseModels.getInternalErrorJson()).setResponseCode(503)
+                .addHeader("Content-Type", MediaType.APPLICATION_JSON_VALUE));
+        StepVerifier.create(this.assemblylineClient.isSubmissionComplete("test"))
+                .expectError(WebClientResponseException.ServiceUnavailable.class)
+                .verify();
+        assertEquals(2, stats.getConcurrencyLimit());
+        assertEquals(2, stats.getAcquired());
+        assertEquals(0, stats.getInFlight());
+    }
+
+    @Test
+    void testRequestLimiterShrinksConcurrencyLimitWhenSlow() {
+        // Warm up with the default client, so that the first limited request is not slowed down by class loading and
+        // sets a usual latency representative of the mock server.
+        mockResponse(MockResponseModels.getIsSubmissionCompleteResponseJson());
+        verifyHttpGet(this.assemblylineClient.isSubmissionComplete("test"),
+                "/api/v4/submission/is_completed/test/",
+                MockResponseModels.getIsSubmissionCompleteResponse());
+        assemblylineClientProperties.getLimiter().getConcurrency().setEnabled(true);
+        assemblylineClientProperties.getLimiter().getConcurrency().setInitialLimit(8);
+        assemblylineClientProperties.getLimiter().getConcurrency().setBackoffRatio(0.5);
+        assemblylineClientProperties.getLimiter().getConcurrency().setLatencyTolerance(2.0);
+        assemblylineClient = new AssemblylineClient(assemblylineClientProperties, httpClient,
+                new AssemblylineAuthenticationTestImpl());
+        RequestLimiterStats stats = this.assemblylineClient.getRequestLimiterStats().get(AssemblylineEndpoint.Group.READ);
+
+        mockResponse(MockResponseModels.getIsSubmissionCompleteResponseJson());
+        verifyHttpGet(this.assemblylineClient.isSubmissionComplete("test"),
+                "/api/v4/submission/is_completed/test/",
+                MockResponseModels.getIsSubmissionCompleteResponse());
+        assertEquals(8, stats.getConcurrencyLimit());
+
+        // The headers arrive right away; only the body is slow, and it counts towards the latency.
+        mockBackEnd.enqueue(new MockResponse()
+                .setBody(MockResponseModels.getIsSubmissionCompleteResponseJson())
+                .addHeader("Content-Type", MediaType.APPLICATION_JSON_VALUE)
+                .setBodyDelay(1, TimeUnit.SECONDS));
+        verifyHttpGet(this.assemblylineClient.isSubmissionComplete("test"),
+                "/api/v4/submission/is_completed/test/",
+                MockResponseModels.getIsSubmissionCompleteResponse());
+        assertEquals(4, stats.getConcurrencyLimit());
+        assertEquals(0, stats.getInFlight());
+    }
+
+    @Test
+    void testRequestLimiterGrowsConcurrencyLimitAfterSuccesses() {
+        assemblylineClientProperties.getLimiter().getConcurrency().setEnabled(true);
+        assemblylineClientProperties.getLimiter().getConcurrency().setInitialLimit(2);
+        assemblylineClientProperties.getLimiter().getConcurrency().setBackoffRatio(0.5);
+        assemblylineClient = new AssemblylineClient(assemblylineClientProperties, httpClient,
+                new AssemblylineAuthenticationTestImpl());
+        RequestLimiterStats stats = this.assemblylineClient.getRequestLimiterStats().get(AssemblylineEndpoint.Group.READ);
+
+        mockBackEnd.enqueue(new MockResponse()
+                .setBody(MockResponseModels.getInternalErrorJson()).setResponseCode(503)
+                .addHeader("Content-Type", MediaType.APPLICATION_JSON_VALUE));
+        StepVerifier.create(this.assemblylineClient.isSubmissionComplete("test"))
+                .expectError(WebClientResponseException.ServiceUnavailable.class)
+                .verify();
+        assertEquals(1, stats.getConcurrencyLimit());
+
+        // Each success adds 1 / limit while at least half of the limit is in use.
+        mockResponse(MockResponseModels.getIsSubmissionCompleteResponseJson());
+        verifyHttpGet(this.assemblylineClient.isSubmissionComplete("test"),
+                "/api/v4/submission/is_completed/test/",
+                MockResponseModels.getIsSubmissionCompleteResponse());
+        assertEquals(2, stats.getConcurrencyLimit());
+        assertEquals(2, stats.getAcquired());
+        assertEquals(0, stats.getDelayed());
+        assertEquals(0, stats.getInFlight());
+    }
+
+    @Test
+    void testCircuitBreakerOpensAfterFailures() {
+        assemblylineClientProperties.getCircuitBreaker().setEnabled(true);
+        assemblylineClientProperties.getCircuitBreaker().setMinimumCalls(2);
+        assemblylineClientProperties.getCircuitBreaker().setSlidingWindowSize(2);
+        assemblylineClient = new AssemblylineClient(assemblylineClientProperties, httpClient,
+                new AssemblylineAuthenticationTestImpl());
+        List<CircuitBreakerEvent> events = new ArrayList<>();
+        this.assemblylineClient.circuitBreakerEvents().subscribe(events::add);
+        for (int i = 0; i < 2; i++) {
+            mockBackEnd.enqueue(new MockResponse()
+                    .setBody(MockResponseModels.getInternalErrorJson()).setResponseCode(500)
+                    .addHeader("Content-Type", MediaType.APPLICATION_JSON_VALUE));
+            StepVerifier.create(this.assemblylineClient.isSubmissionComplete("test"))
+                    .expectError(WebClientResponseException.InternalServerError.class)
+                    .verify();
+        }
+
+        // Open, so the next request of the group is not sent, but other groups are not affected.
+        StepVerifier.create(this.assemblylineClient.isSubmissionComplete("test"))
+                .expectError(CircuitBreakerOpenException.class)
+                .verify();
+        mockResponse(MockResponseModels.getHashSearchJson());
+        StepVerifier.create(this.assemblylineClient.hashSearch("334d016f755cd6dc58c53a86e183882f8ec14f52fb05345887c8a5edd42c87b7"))
+                .expectNext(MockResponseModels.getHashSearch())
+                .expectComplete()
+                .verify();
+
+        assertEquals(3, mockBackEnd.getRequestCount());
+        CircuitBreakerStats stats = this.assemblylineClient.getCircuitBreakerStats().get(AssemblylineEndpoint.Group.READ);
+        assertEquals(CircuitBreakerState.OPEN, stats.getState());
+        assertEquals(1, stats.getNotPermitted());
+        assertEquals(1, events.size());
+        assertEquals(CircuitBreakerState.CLOSED, events.get(0).getFrom());
+        assertEquals(CircuitBreakerState.OPEN, events.get(0).getTo());
+    }
+
+    @Test
+    void testCircuitBreakerClosesAfterHalfOpenCallsSucceed() throws InterruptedException {
+        assemblylineClientProperties.getCircuitBreaker().setEnabled(true);
+        assemblylineClientProperties.getCircuitBreaker().setMinimumCalls(2);
+        assemblylineClientProperties.getCircuitBreaker().setSlidingWindowSize(2);
+        assemblylineClientProperties.getCircuitBreaker().setOpenDuration(Duration.ofMillis(200));
+        assemblylineClientProperties.getCircuitBreaker().setHalfOpenCalls(2);
+        assemblylineClient = new AssemblylineClient(assemblylineClientProperties, httpClient,
+                new AssemblylineAuthenticationTestImpl());
+        List<CircuitBreakerEvent> events = new ArrayList<>();
+        this.assemblylineClient.circuitBreakerEvents().subscribe(events::add);
+        for (int i = 0; i < 2; i++) {
+            mockBackEnd.enqueue(new MockResponse()
+                    .setBody(MockResponseModels.getInternalErrorJson()).setResponseCode(500)
+                    .addHeader("Content-Type", MediaType.APPLICATION_JSON_VALUE));
+            StepVerifier.create(this.assemblylineClient.isSubmissionComplete("test"))
+                    .expectError(WebClientResponseException.InternalServerError.class)
+                    .verify();
+        }
+        CircuitBreakerStats stats = this.assemblylineClient.getCircuitBreakerStats().get(AssemblylineEndpoint.Group.READ);
+        assertEquals(CircuitBreakerState.OPEN, stats.getState());
+
+        // Once the open duration has elapsed, the trial requests are sent, and closing the breaker needs both of them.
+        Thread.sleep(300);
+        mockResponse(MockResponseModels.getIsSubmissionCompleteResponseJson());
+        verifyHttpGet(this.assemblylineClient.isSubmissionComplete("test"),
+                "/api/v4/submission/is_completed/test/",
+                MockResponseModels.getIsSubmissionCompleteResponse());
+        assertEquals(CircuitBreakerState.HALF_OPEN, stats.getState());
+        mockResponse(MockResponseModels.getIsSubmissionCompleteResponseJson());
+        verifyHttpGet(this.assemblylineClient.isSubmissionComplete("test"),
+                "/api/v4/submission/is_completed/test/",
+                MockResponseModels.getIsSubmissionCompleteResponse());
+
+        assertEquals(CircuitBreakerState.CLOSED, stats.getState());
+        assertEquals(3, events.size());
+        assertEquals(CircuitBreakerState.OPEN, events.get(1).getFrom());
+        assertEquals(CircuitBreakerState.HALF_OPEN, events.get(1).getTo());
+        assertEquals(CircuitBreakerState.HALF_OPEN, events.get(2).getFrom());
+        assertEquals(CircuitBreakerState.CLOSED, events.get(2).getTo());
+    }
+
+    @Test
+    void testBulkheadRejectsOverCap() {
+        assemblylineClientProperties.getBulkhead().getMaxConcurrent().put(AssemblylineEndpoint.Group.READ, 1);
+        assemblylineClient = new AssemblylineClient(assemblylineClientProperties, httpClient,
+                new AssemblylineAuthenticationTestImpl());
+        // Delay the response so that the first request is still in flight when the second one is made.
+        mockBackEnd.enqueue(new MockResponse()
+                .setBody(MockResponseModels.getIsSubmissionCompleteResponseJson())
+                .addHeader("Content-Type", MediaType.APPLICATION_JSON_VALUE)
+                .setBodyDelay(200, TimeUnit.MILLISECONDS));
+
+        StepVerifier.create(Mono.zip(this.assemblylineClient.isSubmissionComplete("test"),
+                        this.assemblylineClient.isSubmissionComplete("test")
+                                .delaySubscription(Duration.ofMillis(50))
+                                .onErrorResume(BulkheadFullException.class, e -> Mono.just(false))))
+                .expectNext(Tuples.of(true, false))
+                .expectComplete()
+                .verify();
+
+        assertEquals(1, mockBackEnd.getRequestCount());
+        BulkheadStats stats = this.assemblylineClient.getBulkheadStats().get(AssemblylineEndpoint.Group.READ);
+        assertEquals(1, stats.getRejected());
+        assertEquals(0, stats.getInFlight());
+    }
+
+    @Test
+    void testRetryTransientFailure() {
+        assemblylineClientProperties.getRetry().setEnabled(true);
+        assemblylineClientProperties.getRetry().setInitialBackoff(Duration.ofMillis(10));
+        assemblylineClient = new AssemblylineClient(assemblylineClientProperties, httpClient,
+                new AssemblylineAuthenticationTestImpl());
+        mockBackEnd.enqueue(new MockResponse()
+                .setBody(MockResponseModels.getInternalErrorJson()).setResponseCode(503)
+                .addHeader("Content-Type", MediaType.APPLICATION_JSON_VALUE));
+        mockResponse(MockResponseModels.getIsSubmissionCompleteResponseJson());
+
+        StepVerifier.create(this.assemblylineClient.isSubmissionComplete("test"))
+                .expectNext(MockResponseModels.getIsSubmissionCompleteResponse())
+                .expectComplete()
+                .verify();
+
+        assertEquals(2, mockBackEnd.getRequestCount());
+        assertEquals(1, this.assemblylineClient.getRetryStats().orElseThrow().getRetries());
+    }
+
+    @Test
+    void testRetryIngestOnlyWithIdempotencyKey() {
+        assemblylineClientProperties.getRetry().setEnabled(true);
+        assemblylineClientProperties.getRetry().setInitialBackoff(Duration.ofMillis(10));
+        assemblylineClient = new AssemblylineClient(assemblylineClientProperties, httpClient,
+                new AssemblylineAuthenticationTestImpl());
+        MockResponse badGateway = new MockResponse()
+                .setBody(MockResponseModels.getInternalErrorJson()).setResponseCode(502)
+                .addHeader("Content-Type", MediaType.APPLICATION_JSON_VALUE);
+
+        // The ingest may have been processed before the gateway gave up on it, so it is not sent again.
+        mockBackEnd.enqueue(badGateway);
+        StepVerifier.create(this.assemblylineClient.ingestUrlOrSha256(RequestModels.getSha256IngestObject()))
+                .expectError(WebClientResponseException.BadGateway.class)
+                .verify();
+        assertEquals(1, mockBackEnd.getRequestCount());
+        assertEquals(1, this.assemblylineClient.getRetryStats().orElseThrow().getUnsafe());
+
+        // With an idempotency key, the caller can recognize duplicates, so it is.
+        mockBackEnd.enqueue(badGateway);
+        mockResponse(MockResponseModels.getIngestResponseJson());
+        StepVerifier.create(this.assemblylineClient.ingestUrlOrSha256(Sha256Ingest.builder()
+                        .sha256("abc256")
+                        .metadata(Map.of("idempotency_key", "3f1c2a"))
+                        .build()))
+                .expectNext(MockResponseModels.getIngestResponse())
+                .expectComplete()
+                .verify();
+        assertEquals(3, mockBackEnd.getRequestCount());
+        assertEquals(1, this.assemblylineClient.getRetryStats().orElseThrow().getRetries());
+    }
+
+    /**
+     * @param nodeSession The session cookie the node sets on login, and requires on every other request.
+     * @param status      The status of the node's responses to logged in requests.
+     * @return A dispatcher that acts as one AssemblyLine node with its own sessions.
+     */
+    private Dispatcher nodeDispatcher(String nodeSession, int status) {
+        return new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                if ("/api/v4/auth/login/".equals(request.getPath())) {
+                    return new MockResponse().setBody(MockResponseModels.getLoginResponseJson())
+                            .addHeader("Content-Type", "application/json")
+                            .addHeader("Set-Cookie", "session=" + nodeSession);
+                }
+                String cookie = request.getHeader("Cookie");
+                if (cookie == null || !cookie.contains("session=" + nodeSession)) {
+                    return new MockResponse().setResponseCode(401).setBody(MockResponseModels.notLoggedInJson());
+                }
+                if (status != 200) {
+                    return new MockResponse().setResponseCode(status).setBody(MockResponseModels.getInternalErrorJson())
+                            .addHeader("Content-Type", "application/json");
+                }
+                return new MockResponse().setBody(MockResponseModels.getIsSubmissionCompleteResponseJson())
+                        .addHeader("Content-Type", "application/json");
+            }
+        };
+    }
+
+    @Test
+    void testRequestsBalancedOverNodesWithOwnSessions() throws IOException {
+        try (MockWebServer otherNode = new MockWebServer()) {
+            mockBackEnd.setDispatcher(nodeDispatcher("session1", 200));
+            otherNode.setDispatcher(nodeDispatcher("session2", 200));
+            otherNode.start();
+            assemblylineClientProperties.setUrls(List.of(String.format("http://localhost:%s", mockBackEnd.getPort()),
+                    String.format("http://localhost:%s/", otherNode.getPort())));
+            assemblylineClient = new AssemblylineClient(assemblylineClientProperties, httpClient,
+                    new AssemblylineAuthenticationTestImpl());
+
+            int requestCount = 40;
+            StepVerifier.create(Flux.range(0, requestCount)
+                            .flatMap(i -> this.assemblylineClient.isSubmissionComplete("test" + i), 10))
+                    .expectNextCount(requestCount)
+                    .expectComplete()
+                    .verify();
+
+            // Each node is logged in to once, with its own session, after rejecting the requests sent without one.
+            assertEquals(2, assemblylineClient.getLoginCount());
+            List<NodeStats> nodeStats = assemblylineClient.getNodeStats();
+            assertEquals(2, nodeStats.size());
+            for (NodeStats stats : nodeStats) {
+                Assertions.assertTrue(stats.getRequests() > 1);
+                assertEquals(0, stats.getFailures());
+                assertEquals(0, stats.getOutstanding());
+            }
+        }
+    }
+
+    @Test
+    void testLoginWithSeveralNodesLogsInToFirstNode() throws IOException {
+        try (MockWebServer otherNode = new MockWebServer()) {
+            mockBackEnd.setDispatcher(nodeDispatcher("session1", 200));
+            otherNode.setDispatcher(nodeDispatcher("session2", 200));
+            otherNode.start();
+            assemblylineClientProperties.setUrls(List.of(String.format("http://localhost:%s", mockBackEnd.getPort()),
+                    String.format("http://localhost:%s", otherNode.getPort())));
+            assemblylineClient = new AssemblylineClient(assemblylineClientProperties, httpClient,
+                    new AssemblylineAuthenticationTestImpl());
+
+            for (int i = 0; i < 4; i++) {
+                StepVerifier.create(this.assemblylineClient.login())
+                        .expectNext(MockResponseModels.getLoginResponse())
+                        .expectComplete()
+                        .verify();
+                assertEquals("session1", assemblylineClient.getSession());
+            }
+            assertEquals(4, mockBackEnd.getRequestCount());
+            assertEquals(0, otherNode.getRequestCount());
+        }
+    }
+
+    @Test
+    void testFailingNodeEjected() throws IOException {
+        try (MockWebServer otherNode = new MockWebServer()) {
+            mockBackEnd.setDispatcher(nodeDispatcher("session1", 200));
+            otherNode.setDispatcher(nodeDispatcher("session2", 503));
+            otherNode.start();
+            assemblylineClientProperties.setUrls(List.of(String.format("http://localhost:%s", mockBackEnd.getPort()),
+                    String.format("http://localhost:%s", otherNode.getPort())));
+            assemblylineClientProperties.getLoadBalancing().setEjectAfterFailures(2);
+            assemblylineClientProperties.getLoadBalancing().setEjectionDuration(Duration.ofMinutes(1));
+            assemblylineClient = new AssemblylineClient(assemblylineClientProperties, httpClient,
+                    new AssemblylineAuthenticationTestImpl());
+
+            StepVerifier.create(Flux.range(0, 20)
+                            .concatMap(i -> this.assemblylineClient.isSubmissionComplete("test" + i)
+                                    .onErrorResume(WebClientResponseException.ServiceUnavailable.class,
+                                            e -> Mono.just(false))))
+                    .expectNextCount(20)
+                    .expectComplete()
+                    .verify();
+
+            NodeStats failing = assemblylineClient.getNodeStats().get(1);
+            Assertions.assertTrue(failing.isEjected());
+            assertEquals(1, failing.getEjections());
+            // Once ejected, the failing node gets no more requests.
+            assertEquals(2, failing.getFailures());
+        }
+    }
+
     @Test
     void testGetFileResults() {
         mockResponse(MockResponseModels.getFileResultsJson());
@@ -376,6 +1147,76 @@ class AssemblylineClientTest {
                 MockResponseModels.getFileResults());
     }
 
+    @Test
+    void testGetFileResultsView() {
+        mockResponse(MockResponseModels.getFileResultsJson());
+
+        FileResults expected = MockResponseModels.getFileResults();
+        StepVerifier.create(this.assemblylineClient.getFileResults(
+                        "334d016f755cd6dc58c53a86e183882f8ec14f52fb05345887c8a5edd42c87b7",
+                        FileResultsView.of(FileResultsView.Section.FILE_INFO, FileResultsView.Section.RESULTS)))
+                .assertNext(fileResults -> {
+                    assertEquals(expected.getFileInfo(), fileResults.getFileInfo());
+                    assertEquals(expected.getResults(), fileResults.getResults());
+                    // Sections that weren't selected are skipped.
+                    Assertions.assertNull(fileResults.getAlternates());
+                    Assertions.assertNull(fileResults.getSignatures());
+                })
+                .expectComplete()
+                .verify();
+
+        verifyExpectedPath("/api/v4/file/result/334d016f755cd6dc58c53a86e183882f8ec14f52fb05345887c8a5edd42c87b7/");
+    }
+
+    @Test
+    void testGetFileResultsWithNullsInTuples() {
+        mockResponse(fileResultsJson("{\"tags\": {\"file.string\": [[\"Hello!\", null]]}," +
+                " \"heuristics\": {\"info\": [[null, \"Suspicious string\"]]}}"));
+
+        StepVerifier.create(this.assemblylineClient.getFileResults("334d016f755cd6dc58c53a86e183882f8ec14f52fb05345887c8a5edd42c87b7"))
+                .assertNext(fileResults -> {
+                    FileResults.Tag tag = fileResults.getTags().get("file.string").get(0);
+                    assertEquals("Hello!", tag.getValue());
+                    Assertions.assertNull(tag.getHeuristicType());
+                    FileResults.Heuristic heuristic = fileResults.getHeuristics().get("info").get(0);
+                    Assertions.assertNull(heuristic.getHeurId());
+                    assertEquals("Suspicious string", heuristic.getName());
+                })
+                .expectComplete()
+                .verify();
+    }
+
+    @Test
+    void testGetFileResultsWithShortTupleFails() {
+        mockResponse(fileResultsJson("{\"attack_matrix\": {\"discovery\": [[\"T1082\", \"System Information Discovery\"]]}}"));
+
+        StepVerifier.create(this.assemblylineClient.getFileResults("334d016f755cd6dc58c53a86e183882f8ec14f52fb05345887c8a5edd42c87b7"))
+                .expectErrorMatches(e -> e instanceof DecodingException &&
+                        e.getMessage().contains("Expected a tuple of at least 3 elements but got 2"))
+                .verify();
+    }
+
+    @Test
+    void testGetFileResultsWithNonArrayTuplesFails() {
+        mockResponse(fileResultsJson("{\"tags\": {\"file.string\": \"Hello!\"}}"));
+
+        StepVerifier.create(this.assemblylineClient.getFileResults("334d016f755cd6dc58c53a86e183882f8ec14f52fb05345887c8a5edd42c87b7"))
+                .expectError(DecodingException.class)
+                .verify();
+
+        mockResponse(fileResultsJson("{\"tags\": {\"file.string\": [\"Hello!\"]}}"));
+
+        StepVerifier.create(this.assemblylineClient.getFileResults("334d016f755cd6dc58c53a86e183882f8ec14f52fb05345887c8a5edd42c87b7"))
+                .expectErrorMatches(e -> e instanceof DecodingException &&
+                        e.getMessage().contains("Expected a tuple array"))
+                .verify();
+    }
+
+    private static String fileResultsJson(String fileResults) {
+        return "{\"api_error_message\": \"\", \"api_response\": " + fileResults +
+                ", \"api_server_version\": \"4.0.0\", \"api_status_code\": 200}";
+    }
+
     @Test
     void testGetFileResultsForService() {
         mockResponse(MockResponseModels.getFileResultForServiceJson());
@@ -385,6 +1226,15 @@ class AssemblylineClientTest {
                 MockResponseModels.getFileResultForService());
     }
 
+    @Test
+    void testPathVariablesAreEncoded() {
+        mockResponse(MockResponseModels.getFileResultForServiceJson());
+
+        verifyHttpGet(this.assemblylineClient.getFileResultForService("334d016f755cd6dc58c53a86e183882f8ec14f52fb05345887c8a5edd42c87b7", "Extract/v2 beta"),
+                "/api/v4/file/result/334d016f755cd6dc58c53a86e183882f8ec14f52fb05345887c8a5edd42c87b7/Extract%2Fv2%20beta/",
+                MockResponseModels.getFileResultForService());
+    }
+
     @Test
     void testGetResult() {
         mockResponse(MockResponseModels.getResultBlockJson());
@@ -446,6 +1296,142 @@ class AssemblylineClientTest {
                 RequestModels.getBinaryData());
     }
 
+    @Test
+    void testIngestBinaryFileHashFirstKnownFile() throws InterruptedException, JSONException {
+        assemblylineClientProperties.getHashFirst().setEnabled(true);
+        assemblylineClient = new AssemblylineClient(assemblylineClientProperties, httpClient,
+                new AssemblylineAuthenticationTestImpl());
+        // SHA256 of RequestModels.getBinaryData()
+        String sha256 = "039058c6f2c0cb492c533b0a4d14ef77cc0f78abccced5287d84a1a2011cfb81";
+
+        mockResponse(MockResponseModels.getFileInfoJson());
+        mockResponse(MockResponseModels.getIngestResponseJson());
+
+        verifyHttpPostResponse(this.assemblylineClient.ingestBinary(RequestModels.getBinaryIngestObject()),
+                MockResponseModels.getIngestResponse());
+
+        verifyExpectedPath("/api/v4/file/info/" + sha256 + "/");
+        // AssemblyLine already has the file, so it is ingested by SHA256 instead of being uploaded.
+        RecordedRequest ingestRequest = mockBackEnd.takeRequest(5, TimeUnit.SECONDS);
+        assertEquals("/api/v4/ingest/", ingestRequest.getPath());
+        JSONAssert.assertEquals("{\"sha256\": \"" + sha256 + "\", \"name\": \"meta data\", \"notification_queue\": \"notificationQueue\"}",
+                ingestRequest.getBody().readUtf8(), false);
+    }
+
+    @Test
+    void testIngestBinaryFileHashFirstUnknownFile() throws InterruptedException {
+        assemblylineClientProperties.getHashFirst().setEnabled(true);
+        assemblylineClient = new AssemblylineClient(assemblylineClientProperties, httpClient,
+                new AssemblylineAuthenticationTestImpl());
+
+        mockBackEnd.enqueue(new MockResponse().setResponseCode(404)
+                .setBody("{\"api_error_message\": \"SHA256 does not exist in our datastore\"}")
+                .addHeader("Content-Type", "application/json"));
+        mockResponse(MockResponseModels.getIngestResponseJson());
+
+        verifyHttpPostResponse(this.assemblylineClient.ingestBinary(RequestModels.getBinaryIngestObject()),
+                MockResponseModels.getIngestResponse());
+
+        verifyExpectedPath("/api/v4/file/info/039058c6f2c0cb492c533b0a4d14ef77cc0f78abccced5287d84a1a2011cfb81/");
+        // AssemblyLine doesn't have the file, so it falls back to uploading it.
+        RecordedRequest ingestRequest = mockBackEnd.takeRequest(5, TimeUnit.SECONDS);
+        assertEquals("/api/v4/ingest/", ingestRequest.getPath());
+        Assertions.assertTrue(ingestRequest.getHeader("Content-Type").startsWith(MediaType.MULTIPART_FORM_DATA_VALUE));
+    }
+
+    @Test
+    void testIngestPathBinaryFile(@TempDir Path tempDir) throws IOException {
+        Path file = Files.write(tempDir.resolve("al_test.bin"), RequestModels.getBinaryData());
+
+        mockResponse(MockResponseModels.getIngestResponseJson());
+
+        this.verifyHttpPostJsonMultiformData(this.assemblylineClient.ingestPathBinary(RequestModels.getPathBinaryIngestObject(file)),
+                MockResponseModels.getIngestResponse(), "/api/v4/ingest/",
+                RequestModels.getBinaryIngestBaseJson(),
+                RequestModels.getBinaryData());
+    }
+
+    @Test
+    void testIngestAllUrlOrSha256() {
+        mockResponse(MockResponseModels.getIngestResponseJson());
+        mockBackEnd.enqueue(new MockResponse()
+                .setBody(MockResponseModels.getBadRequestJson()).setResponseCode(400)
+                .addHeader("Content-Type", "application/json"));
+        mockResponse(MockResponseModels.getIngestResponseJson());
+
+        NonBinaryIngest sha256Ingest = RequestModels.getSha256IngestObject();
+        NonBinaryIngest urlIngest = RequestModels.getUrlIngestObject();
+        // One request at a time, in order, so that the mocked responses line up with the items.
+        BulkIngestOptions options = BulkIngestOptions.builder().maxInFlight(1).ordered(true).build();
+
+        StepVerifier.create(this.assemblylineClient.ingestAllUrlOrSha256(Flux.just(sha256Ingest, urlIngest, sha256Ingest), options))
+                .expectNext(IngestOutcome.<NonBinaryIngest>builder().item(sha256Ingest)
+                        .response(MockResponseModels.getIngestResponse()).build())
+                // A failed item is reported with the item itself, and doesn't stop the remaining items.
+                .expectNextMatches(outcome -> !outcome.isSuccess() && outcome.getItem() == urlIngest
+                        && outcome.getError() instanceof WebClientResponseException.BadRequest)
+                .expectNext(IngestOutcome.<NonBinaryIngest>builder().item(sha256Ingest)
+                        .response(MockResponseModels.getIngestResponse()).build())
+                .expectComplete()
+                .verify();
+
+        assertEquals(3, mockBackEnd.getRequestCount());
+    }
+
+    @Test
+    void testIngestAllDoesNotResendAfterReadTimeout() {
+        assemblylineClientProperties.getHttp().setReadTimeout(Duration.ofMillis(500));
+        AssemblylineClientConfig config = new AssemblylineClientConfig();
+        ConnectionProvider connectionProvider = config.assemblylineConnectionProvider(assemblylineClientProperties);
+        assemblylineClient = new AssemblylineClient(assemblylineClientProperties,
+                config.assemblylineHttpClient(connectionProvider, assemblylineClientProperties),
+                new AssemblylineAuthenticationTestImpl());
+
+        // AssemblyLine received the item, but answers too late. Sending it again would ingest it twice.
+        mockBackEnd.enqueue(new MockResponse()
+                .setBody(MockResponseModels.getIngestResponseJson())
+                .addHeader("Content-Type", MediaType.APPLICATION_JSON_VALUE)
+                .setHeadersDelay(2, TimeUnit.SECONDS));
+        mockResponse(MockResponseModels.getIngestResponseJson());
+
+        NonBinaryIngest sha256Ingest = RequestModels.getSha256IngestObject();
+        BulkIngestOptions options = BulkIngestOptions.builder()
+                .maxRetries(2)
+                .retryBackoff(Duration.ofMillis(10))
+                .build();
+
+        StepVerifier.create(this.assemblylineClient.ingestAllUrlOrSha256(Flux.just(sha256Ingest), options))
+                .expectNextMatches(outcome -> !outcome.isSuccess()
+                        && outcome.getError() instanceof WebClientRequestException)
+                .expectComplete()
+                .verify(Duration.ofSeconds(10));
+
+        assertEquals(1, mockBackEnd.getRequestCount());
+        connectionProvider.dispose();
+    }
+
+    @Test
+    void testIngestAllRetriesServiceUnavailable() {
+        mockBackEnd.enqueue(new MockResponse()
+                .setBody(MockResponseModels.getBadRequestJson()).setResponseCode(503)
+                .addHeader("Content-Type", "application/json"));
+        mockResponse(MockResponseModels.getIngestResponseJson());
+
+        NonBinaryIngest sha256Ingest = RequestModels.getSha256IngestObject();
+        BulkIngestOptions options = BulkIngestOptions.builder()
+                .maxRetries(1)
+                .retryBackoff(Duration.ofMillis(10))
+                .build();
+
+        StepVerifier.create(this.assemblylineClient.ingestAllUrlOrSha256(Flux.just(sha256Ingest), options))
+                .expectNext(IngestOutcome.<NonBinaryIngest>builder().item(sha256Ingest)
+                        .response(MockResponseModels.getIngestResponse()).build())
+                .expectComplete()
+                .verify();
+
+        assertEquals(2, mockBackEnd.getRequestCount());
+    }
+
     @Test
     void testGetSubmissionTree() {
         mockResponse(MockResponseModels.getSubmissionTreeJson());
@@ -455,6 +1441,107 @@ class AssemblylineClientTest {
                 MockResponseModels.getSubmissionTree());
     }
 
+    @Test
+    void testAwaitCompletion() {
+        String sid = "3p9RPMzkoYJ1p4vfdZj6B0";
+        mockResponse(MockResponseModels.getIsSubmissionCompleteResponseJson().replace("true", "false"));
+        mockResponse(MockResponseModels.getIsSubmissionCompleteResponseJson());
+        mockResponse(MockResponseModels.getSubmissionJson());
+
+        AwaitOptions options = AwaitOptions.builder()
+                .initialInterval(Duration.ofMillis(10))
+                .build();
+        StepVerifier.create(this.assemblylineClient.awaitCompletion(sid, options))
+                .expectNext(MockResponseModels.getSubmission())
+                .expectComplete()
+                .verify();
+
+        verifyExpectedPath("/api/v4/submission/is_completed/" + sid + "/");
+        verifyExpectedPath("/api/v4/submission/is_completed/" + sid + "/");
+        verifyExpectedPath("/api/v4/submission/" + sid + "/");
+    }
+
+    @Test
+    void testAwaitCompletionTimeout() {
+        mockBackEnd.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                return new MockResponse()
+                        .setBody(MockResponseModels.getIsSubmissionCompleteResponseJson().replace("true", "false"))
+                        .addHeader("Content-Type", MediaType.APPLICATION_JSON_VALUE);
+            }
+        });
+
+        AwaitOptions options = AwaitOptions.builder()
+                .initialInterval(Duration.ofMillis(10))
+                .timeout(Duration.ofMillis(200))
+                .build();
+        StepVerifier.create(this.assemblylineClient.awaitCompletion("3p9RPMzkoYJ1p4vfdZj6B0", options))
+                .expectErrorMatches(e -> e instanceof SubmissionTimeoutException
+                        && ((SubmissionTimeoutException) e).getSid().equals("3p9RPMzkoYJ1p4vfdZj6B0"))
+                .verify();
+    }
+
+    @Test
+    void testSubmissionCompletionTracker(@TempDir Path tempDir) throws IOException {
+        String sid = "3p9RPMzkoYJ1p4vfdZj6B0";
+        Path stateFile = Files.write(tempDir.resolve("pending.txt"), List.of(sid));
+        mockResponse(MockResponseModels.getIsSubmissionCompleteResponseJson());
+        mockResponse(MockResponseModels.getSubmissionJson());
+
+        SubmissionTrackerOptions options = SubmissionTrackerOptions.builder()
+                .tickInterval(Duration.ofMillis(10))
+                .stateFile(stateFile)
+                .build();
+        // The SID saved in the state file by a previous tracker is picked up again.
+        try (SubmissionCompletionTracker tracker = new SubmissionCompletionTracker(this.assemblylineClient, options)) {
+            assertEquals(1, tracker.getPendingCount());
+            StepVerifier.create(tracker.completions().take(1))
+                    .expectNext(MockResponseModels.getSubmission())
+                    .expectComplete()
+                    .verify(Duration.ofSeconds(5));
+            assertEquals(0, tracker.getPendingCount());
+        }
+
+        assertEquals(List.of(), Files.readAllLines(stateFile));
+        verifyExpectedPath("/api/v4/submission/is_completed/" + sid + "/");
+        verifyExpectedPath("/api/v4/submission/" + sid + "/");
+    }
+
+    @Test
+    void testSubmissionCompletionTrackerAfterSubscriberCancels() {
+        mockBackEnd.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                String body = request.getPath().contains("/is_completed/")
+                        ? MockResponseModels.getIsSubmissionCompleteResponseJson()
+                        : MockResponseModels.getSubmissionJson();
+                return new MockResponse()
+                        .setBody(body)
+                        .addHeader("Content-Type", MediaType.APPLICATION_JSON_VALUE);
+            }
+        });
+
+        SubmissionTrackerOptions options = SubmissionTrackerOptions.builder()
+                .tickInterval(Duration.ofMillis(10))
+                .build();
+        try (SubmissionCompletionTracker tracker = new SubmissionCompletionTracker(this.assemblylineClient, options)) {
+            tracker.track("3p9RPMzkoYJ1p4vfdZj6B0");
+            // take(1) cancels the subscription once the first completion arrives.
+            StepVerifier.create(tracker.completions().take(1))
+                    .expectNext(MockResponseModels.getSubmission())
+                    .expectComplete()
+                    .verify(Duration.ofSeconds(5));
+
+            tracker.track("5UjxYb8kZUKLMgoNpkCPvJ");
+            StepVerifier.create(tracker.completions().take(1))
+                    .expectNext(MockResponseModels.getSubmission())
+                    .expectComplete()
+                    .verify(Duration.ofSeconds(5));
+            assertEquals(0, tracker.getPendingCount());
+        }
+    }
+
     @Test
     void testGetSubmission() {
         mockResponse(MockResponseModels.getSubmissionJson());
@@ -488,6 +1575,108 @@ class AssemblylineClientTest {
                 MockResponseModels.getSubmissionFullLarge());
     }
 
+    @Test
+    void testCompressedResponse() throws IOException, InterruptedException {
+        assemblylineClientProperties.setMaxInMemorySize(DataSize.ofMegabytes(2));
+        assemblylineClientProperties.getHttp().setCompression(true);
+        AssemblylineClientConfig config = new AssemblylineClientConfig();
+        ConnectionProvider connectionProvider = config.assemblylineConnectionProvider(assemblylineClientProperties);
+        assemblylineClient = new AssemblylineClient(assemblylineClientProperties,
+                config.assemblylineHttpClient(connectionProvider, assemblylineClientProperties),
+                new AssemblylineAuthenticationTestImpl());
+
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (OutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(MockResponseModels.getSubmissionFullLargeJson().getBytes(StandardCharsets.UTF_8));
+        }
+        mockBackEnd.enqueue(new MockResponse()
+                .setBody(new Buffer().write(compressed.toByteArray()))
+                .addHeader("Content-Type", MediaType.APPLICATION_JSON_VALUE)
+                .addHeader("Content-Encoding", "gzip"));
+
+        StepVerifier.create(this.assemblylineClient.getSubmissionFull("3p9RPMzkoYJ1p4vfdZj6B0"))
+                .expectNext(MockResponseModels.getSubmissionFullLarge())
+                .expectComplete()
+                .verify();
+
+        RecordedRequest request = mockBackEnd.takeRequest(5, TimeUnit.SECONDS);
+        assertEquals("gzip, deflate", request.getHeader("Accept-Encoding"));
+        connectionProvider.dispose();
+    }
+
+    @Test
+    void testHttp2FallsBackToHttp11() throws InterruptedException {
+        assemblylineClientProperties.getHttp().setHttp2(true);
+        AssemblylineClientConfig config = new AssemblylineClientConfig();
+        ConnectionProvider connectionProvider = config.assemblylineConnectionProvider(assemblylineClientProperties);
+        HttpClient httpClient = config.assemblylineHttpClient(connectionProvider, assemblylineClientProperties);
+        assertEquals(List.of(HttpProtocol.H2, HttpProtocol.H2C, HttpProtocol.HTTP11),
+                List.of(httpClient.configuration().protocols()));
+        assemblylineClient = new AssemblylineClient(assemblylineClientProperties, httpClient,
+                new AssemblylineAuthenticationTestImpl());
+
+        // The mock server only speaks HTTP/1.1, so it ignores the request to upgrade to h2c and answers as it is.
+        mockBackEnd.enqueue(new MockResponse().setBody(MockResponseModels.getIsSubmissionCompleteResponseJson())
+                .addHeader("Content-Type", MediaType.APPLICATION_JSON_VALUE));
+
+        StepVerifier.create(this.assemblylineClient.isSubmissionComplete("test"))
+                .expectNext(true)
+                .expectComplete()
+                .verify();
+
+        RecordedRequest request = mockBackEnd.takeRequest(5, TimeUnit.SECONDS);
+        assertEquals("h2c", request.getHeader("Upgrade"));
+        connectionProvider.dispose();
+    }
+
+    @Test
+    void testConnectionProviderCreatedWithDefaultHttpClient() {
+        new ApplicationContextRunner()
+                .withConfiguration(AutoConfigurations.of(AssemblylineClientConfig.class))
+                .run(context -> {
+                    assertEquals(1, context.getBeansOfType(HttpClient.class).size());
+                    assertEquals(1, context.getBeansOfType(ConnectionProvider.class).size());
+                });
+    }
+
+    @Test
+    void testNoConnectionProviderWithCustomHttpClient() {
+        new ApplicationContextRunner()
+                .withConfiguration(AutoConfigurations.of(AssemblylineClientConfig.class))
+                .withBean(HttpClient.class, HttpClient::create)
+                .run(context -> Assertions.assertTrue(context.getBeansOfType(ConnectionProvider.class).isEmpty()));
+    }
+
+    @Test
+    void testReadTimeoutStartsAfterUpload() throws InterruptedException {
+        assemblylineClientProperties.getHttp().setReadTimeout(Duration.ofSeconds(2));
+        AssemblylineClientConfig config = new AssemblylineClientConfig();
+        ConnectionProvider connectionProvider = config.assemblylineConnectionProvider(assemblylineClientProperties);
+        assemblylineClient = new AssemblylineClient(assemblylineClientProperties,
+                config.assemblylineHttpClient(connectionProvider, assemblylineClientProperties),
+                new AssemblylineAuthenticationTestImpl());
+
+        // The server takes several seconds to read the file, and sends nothing until it has read all of it. Only the
+        // part of the file buffered by the sockets is left to read once the client has sent the request.
+        mockBackEnd.enqueue(new MockResponse()
+                .setBody(MockResponseModels.getIngestResponseJson())
+                .addHeader("Content-Type", MediaType.APPLICATION_JSON_VALUE)
+                .throttleBody(4096, 1, TimeUnit.MILLISECONDS));
+        BinaryFile<IngestBase> largeFile = BinaryFile.<IngestBase>builder()
+                .filename("fileName")
+                .file(new byte[32 * 1024 * 1024])
+                .metadata(RequestModels.getBinaryIngestObject().getMetadata())
+                .build();
+
+        StepVerifier.create(this.assemblylineClient.ingestBinary(largeFile))
+                .expectNext(MockResponseModels.getIngestResponse())
+                .expectComplete()
+                .verify(Duration.ofSeconds(30));
+
+        verifyExpectedPath("/api/v4/ingest/");
+        connectionProvider.dispose();
+    }
+
     @Test
     void testSubmit() {
         mockResponse(MockResponseModels.getSubmissionJson());
@@ -583,6 +1772,68 @@ class AssemblylineClientTest {
         }
     }
 
+    @Test
+    void testDownloadFileInterrupted() {
+        mockBackEnd.enqueue(new MockResponse()
+                .setBody(MockResponseModels.getDownloadFileBuffer())
+                .addHeader("Content-Type", MediaType.APPLICATION_OCTET_STREAM_VALUE)
+                .setSocketPolicy(SocketPolicy.DISCONNECT_DURING_RESPONSE_BODY));
+
+        // The failure should reach the reader as an IOException, not just look like the end of the file.
+        Assertions.assertThrows(IOException.class, () -> {
+            try (InputStream fileStream = this.assemblylineClient.downloadFile("334d016f755cd6dc58c53a86e183882f8ec14f52fb05345887c8a5edd42c87b7")) {
+                fileStream.transferTo(OutputStream.nullOutputStream());
+            }
+        });
+    }
+
+    @Test
+    void testDownloadStreamClosedEarlyReleasesBuffersAndCancels() throws IOException {
+        NettyDataBufferFactory bufferFactory = new NettyDataBufferFactory(UnpooledByteBufAllocator.DEFAULT);
+        List<ByteBuf> received = new ArrayList<>();
+        AtomicBoolean cancelled = new AtomicBoolean();
+        Flux<DataBuffer> body = Flux.range(0, 100)
+                .map(i -> {
+                    ByteBuf buffer = Unpooled.wrappedBuffer(new byte[1024]);
+                    received.add(buffer);
+                    return (DataBuffer) bufferFactory.wrap(buffer);
+                })
+                .doOnCancel(() -> cancelled.set(true));
+
+        InputStream fileStream = new DataBufferInputStream(body, 4096);
+        assertEquals(10, fileStream.read(new byte[10]));
+        fileStream.close();
+
+        // Only the buffers up to the limit were received, and the ones the reader hadn't got to yet were released.
+        Assertions.assertTrue(received.size() < 100);
+        Assertions.assertTrue(received.stream().allMatch(buffer -> buffer.refCnt() == 0));
+        Assertions.assertTrue(cancelled.get());
+        Assertions.assertThrows(IOException.class, fileStream::read);
+    }
+
+    @Test
+    void testDownloadTo(@TempDir Path tempDir) throws IOException {
+        mockBackEnd.enqueue(new MockResponse()
+                .setBody(MockResponseModels.getDownloadFileBuffer())
+                .addHeader("Content-Type", MediaType.APPLICATION_OCTET_STREAM_VALUE));
+
+        String sha256 = "334d016f755cd6dc58c53a86e183882f8ec14f52fb05345887c8a5edd42c87b7";
+        Path destination = tempDir.resolve("al_test.cart");
+        byte[] expectedBytes = MockResponseModels.getDownloadFileBytes();
+
+        StepVerifier.create(this.assemblylineClient.downloadTo(destination, sha256))
+                .expectNext(DownloadResult.builder()
+                        .path(destination)
+                        .size(expectedBytes.length)
+                        .sha256(Sha256Digest.of(expectedBytes))
+                        .build())
+                .expectComplete()
+                .verify();
+
+        Assertions.assertArrayEquals(expectedBytes, Files.readAllBytes(destination));
+        verifyExpectedPath("/api/v4/file/download/" + sha256 + "/?encoding=cart");
+    }
+
     @Test
     void testGetHashSearchDataSources() {
         mockResponse(MockResponseModels.getHashSearchDataSourcesJson());
@@ -622,6 +1873,50 @@ class AssemblylineClientTest {
                 "/api/v4/ingest/get_message_list/test_java_client/", MockResponseModels.getIngestMessageList());
     }
 
+    @Test
+    void testIngestGetMessageListLargerThanMaxInMemorySize() {
+        // Each message is limited by maxInMemorySize, not the whole list.
+        String messageListJson = MockResponseModels.getIngestMessageListJson();
+        String message = messageListJson.substring(messageListJson.indexOf('[') + 1, messageListJson.lastIndexOf(']'));
+        int messageCount = 2000;
+        String largeMessageListJson = messageListJson.substring(0, messageListJson.indexOf('[') + 1)
+                + String.join(",", Collections.nCopies(messageCount, message))
+                + messageListJson.substring(messageListJson.lastIndexOf(']'));
+        Assertions.assertTrue(largeMessageListJson.length() > DataSize.ofKilobytes(256).toBytes());
+        mockResponse(largeMessageListJson);
+
+        StepVerifier.create(this.assemblylineClient.getIngestMessageList("test_java_client"))
+                .expectNextCount(messageCount)
+                .expectComplete()
+                .verify();
+        verifyExpectedPath("/api/v4/ingest/get_message_list/test_java_client/");
+    }
+
+    @Test
+    void testStreamIngestMessages() {
+        String emptyMessageList = "{\"api_response\": []}";
+        mockResponse(emptyMessageList);
+        mockResponse(MockResponseModels.getIngestMessageListJson());
+        mockResponse(MockResponseModels.getIngestMessageListJson());
+
+        IngestMessageStreamOptions options = IngestMessageStreamOptions.builder()
+                .minBackoff(Duration.ofMillis(10))
+                .build();
+
+        // An empty poll is followed by another poll after a short delay, and non-empty polls by an immediate one.
+        StepVerifier.create(this.assemblylineClient.streamIngestMessages("test_java_client", options).take(2))
+                .expectNext(MockResponseModels.getIngestMessageList())
+                .expectNext(MockResponseModels.getIngestMessageList())
+                .expectComplete()
+                .verify();
+
+        IngestMessageStreamStats stats = this.assemblylineClient.getIngestMessageStreamStats("test_java_client");
+        assertEquals(3, stats.getPolls());
+        assertEquals(1, stats.getEmptyPolls());
+        assertEquals(2, stats.getMessages());
+        verifyExpectedPath("/api/v4/ingest/get_message_list/test_java_client/");
+    }
+
     @Data
     static class MetadataObjectTest {
         private String field1;
@@ -140,12 +140,23 @@ public final class MockResponseModels {
                                         .build())
                                 .build())
                 ))
-                .attackMatrixFromJson(Map.of())
+                .attackMatrix(Map.of(
+                        "discovery", List.of(FileResults.Attack.builder()
+                                .attackId("T1082")
+                                .attackPattern("System Information Discovery")
+                                .heuristicType("info")
+                                .build())
+                ))
                 .childrens(List.of())
                 .errors(List.of())
                 .fileInfo(getFileInfo())
                 .fileViewerOnly(true)
-                .heuristics(Map.of())
+                .heuristics(Map.of(
+                        "info", List.of(FileResults.Heuristic.builder()
+                                .heurId("CHARACTERIZE.1")
+                                .name("Low entropy")
+                                .build())
+                ))
                 .metadata(Map.of(
                         "submitter", Map.of(
                                 "username", 2
@@ -159,7 +170,12 @@ public final class MockResponseModels {
                         getCharacterizeResultBlockWithSectionHierarchy()
                 ))
                 .signatures(List.of())
-                .tags(Map.of())
+                .tags(Map.of(
+                        "file.string.extracted", List.of(FileResults.Tag.builder()
+                                .value("Hello!")
+                                .heuristicType("info")
+                                .build())
+                ))
                 .build();
     }
 
@@ -3,6 +3,7 @@ package ca.gc.cyber.ops.assemblyline.java.client.clients;
 import ca.gc.cyber.ops.assemblyline.java.client.model.ingest.AsyncBinaryFile;
 import ca.gc.cyber.ops.assemblyline.java.client.model.ingest.BinaryFile;
 import ca.gc.cyber.ops.assemblyline.java.client.model.ingest.IngestBase;
+import ca.gc.cyber.ops.assemblyline.java.client.model.ingest.PathBinaryFile;
 import ca.gc.cyber.ops.assemblyline.java.client.model.ingest.Sha256Ingest;
 import ca.gc.cyber.ops.assemblyline.java.client.model.ingest.UrlIngest;
 import ca.gc.cyber.ops.assemblyline.java.client.model.submit.Sha256Submit;
@@ -17,6 +18,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.Map;
 
 @UtilityClass
@@ -98,6 +100,14 @@ public class RequestModels {
                 .build();
     }
 
+    public PathBinaryFile<IngestBase> getPathBinaryIngestObject(Path file) {
+        return PathBinaryFile.<IngestBase>builder()
+                .filename("fileName")
+                .file(file)
+                .metadata(getBinaryIngestObject().getMetadata())
+                .build();
+    }
+
     public byte[] getBinaryData(){
         return new byte[]{1, 2, 3};
     }